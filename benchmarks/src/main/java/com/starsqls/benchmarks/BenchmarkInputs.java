@@ -0,0 +1,81 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import java.util.StringJoiner;
+
+/**
+ * SQL inputs shared by the benchmarks, selected with the "input" parameter
+ */
+final class BenchmarkInputs {
+
+    static final String SIMPLE = "SELECT id, name, age FROM users WHERE age > 18 AND status = 'active' "
+            + "ORDER BY created_at DESC LIMIT 100";
+
+    static final String COMPLEX = """
+            WITH regional_sales AS (
+                SELECT region, SUM(amount) AS total_sales FROM orders GROUP BY region
+            ), top_regions AS (
+                SELECT region FROM regional_sales WHERE total_sales > (SELECT SUM(total_sales)/10 FROM regional_sales)
+            )
+            SELECT region, product, SUM(quantity) AS product_units, SUM(amount) AS product_sales
+            FROM orders WHERE region IN (SELECT region FROM top_regions) GROUP BY region, product
+            UNION ALL
+            SELECT 'Other' AS region, product, SUM(quantity) AS product_units, SUM(amount) AS product_sales
+            FROM orders WHERE region NOT IN (SELECT region FROM top_regions) GROUP BY product""";
+
+    private BenchmarkInputs() {
+    }
+
+    static String sql(String input) {
+        return switch (input) {
+            case "simple" -> SIMPLE;
+            case "complex" -> COMPLEX;
+            case "large" -> large();
+            case "script" -> script();
+            default -> throw new IllegalArgumentException("Unknown input: " + input);
+        };
+    }
+
+    /**
+     * One wide statement: 50 columns, 10 joined tables, 20 predicates
+     */
+    private static String large() {
+        StringBuilder sb = new StringBuilder("SELECT ");
+        for (int i = 0; i < 50; i++) {
+            sb.append(i > 0 ? ", " : "").append("col").append(i);
+        }
+        sb.append(" FROM table0");
+        for (int i = 1; i < 10; i++) {
+            sb.append(" JOIN table").append(i).append(" ON table0.id = table").append(i).append(".fk");
+        }
+        sb.append(" WHERE ");
+        for (int i = 0; i < 20; i++) {
+            sb.append(i > 0 ? " AND " : "").append("col").append(i).append(" > ").append(i * 10);
+        }
+        return sb.append(" ORDER BY col0, col1, col2").toString();
+    }
+
+    /**
+     * A script of 50 statements
+     */
+    private static String script() {
+        StringJoiner script = new StringJoiner(";\n", "", ";");
+        for (int i = 0; i < 25; i++) {
+            script.add(SIMPLE.replace("users", "users_" + i));
+            script.add(COMPLEX.replace("orders", "orders_" + i));
+        }
+        return script.toString();
+    }
+}
@@ -0,0 +1,137 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starsqls.web.controller.DagController;
+import com.starsqls.web.controller.FormatController;
+import com.starsqls.web.dto.FormatRequest;
+import com.starsqls.web.dto.FormatResponse;
+import com.starsqls.web.execution.WorkScheduler;
+import com.starsqls.web.metrics.StarSqlsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request path of the web controllers without HTTP: read the JSON body, run the controller (scheduler,
+ * metrics, cancellation token included) and write the JSON response
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ControllerBenchmark {
+
+    private static final TypeReference<Map<String, String>> DAG_REQUEST = new TypeReference<>() {
+    };
+
+    @State(Scope.Benchmark)
+    public static class Controllers {
+        private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        private WorkScheduler scheduler;
+
+        private FormatController formatController;
+
+        private DagController dagController;
+
+        @Setup
+        public void setup() {
+            scheduler = new WorkScheduler(0, 0, 256, 65536, 10000, 104857600, 268435456L, 10000, 0);
+            StarSqlsMetrics metrics = new StarSqlsMetrics(new SimpleMeterRegistry());
+            formatController = new FormatController(scheduler, metrics, objectMapper, 64, 30000);
+            // no layout cache, every invocation analyzes the same SQL and would hit it
+            dagController = new DagController("", scheduler, metrics, 30000, 0);
+        }
+
+        @TearDown
+        public void tearDown() {
+            scheduler.shutdown();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class FormatInput {
+        @Param({"simple", "complex", "large", "script"})
+        public String input;
+
+        private byte[] body;
+
+        @Setup
+        public void setup(Controllers controllers) throws IOException {
+            body = controllers.objectMapper.writeValueAsBytes(Map.of("sql", BenchmarkInputs.sql(input)));
+            checkSuccess(controllers, format(controllers, this));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DagInput {
+        @Param({"simple", "complex", "large", "script"})
+        public String input;
+
+        /**
+         * Response format, the verbose JSON or the compact payload
+         */
+        @Param({"application/json", "application/vnd.starsqls.dag+json"})
+        public String accept;
+
+        private byte[] body;
+
+        @Setup
+        public void setup(Controllers controllers) throws IOException {
+            body = controllers.objectMapper.writeValueAsBytes(Map.of("sql", BenchmarkInputs.sql(input)));
+            checkSuccess(controllers, dag(controllers, this));
+        }
+    }
+
+    private static void checkSuccess(Controllers controllers, byte[] response) throws IOException {
+        if (!controllers.objectMapper.readTree(response).get("success").asBoolean()) {
+            throw new IllegalStateException("Request fails: " + new String(response, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public static byte[] format(Controllers controllers, FormatInput input) throws IOException {
+        FormatRequest request = controllers.objectMapper.readValue(input.body, FormatRequest.class);
+        ResponseEntity<FormatResponse> response = controllers.formatController.formatSQL(request);
+        return controllers.objectMapper.writeValueAsBytes(response.getBody());
+    }
+
+    @Benchmark
+    public static byte[] dag(Controllers controllers, DagInput input) throws IOException {
+        Map<String, String> request = controllers.objectMapper.readValue(input.body, DAG_REQUEST);
+        ResponseEntity<Map<String, Object>> response = controllers.dagController.analyzeSql(request, input.accept);
+        return controllers.objectMapper.writeValueAsBytes(response.getBody());
+    }
+}
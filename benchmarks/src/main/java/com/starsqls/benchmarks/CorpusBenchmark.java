@@ -0,0 +1,104 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse, format and DAG analysis of the bundled TPC-H corpus (core/src/test/resources/case/tpch), one operation
+ * is one pass over all queries. This is the fixed set {@link RegressionGate} compares against its baseline, so
+ * changing the corpus or the options means the baseline has to be recorded again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CorpusBenchmark {
+
+    static final String[] QUERIES = {"q2", "q4", "q7", "q8", "q11", "q12", "q13", "q15", "q18", "q19", "q21", "q22"};
+
+    private String[] corpus;
+
+    private final FormatOptions options = FormatOptions.defaultOptions();
+
+    @Setup
+    public void setup() {
+        corpus = new String[QUERIES.length];
+        for (int i = 0; i < QUERIES.length; i++) {
+            corpus[i] = load("/corpus/tpch/" + QUERIES[i] + ".sql");
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String sql : corpus) {
+            StarRocksParser parser = new StarRocksParser(
+                    new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(sql))));
+            parser.removeErrorListeners();
+            bh.consume(parser.sqlStatements());
+        }
+    }
+
+    @Benchmark
+    public void format(Blackhole bh) {
+        for (String sql : corpus) {
+            bh.consume(new FormatPrinter(options).format(sql));
+        }
+    }
+
+    @Benchmark
+    public void dag(Blackhole bh) {
+        for (String sql : corpus) {
+            DagGraph graph = new SQLDagAnalyzer().analyze(sql);
+            bh.consume(graph);
+        }
+    }
+
+    private static String load(String resource) {
+        try (InputStream in = CorpusBenchmark.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing corpus file: " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
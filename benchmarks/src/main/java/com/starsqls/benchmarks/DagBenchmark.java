@@ -0,0 +1,80 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.cost.CostEstimator;
+import com.starsqls.dag.cost.StatisticsProvider;
+import com.starsqls.dag.layout.DagLayout;
+import com.starsqls.dag.layout.LayeredLayout;
+import com.starsqls.dag.model.DagGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DAG analysis and the steps the web controller runs after it, each on its own
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DagBenchmark {
+
+    @Param({"simple", "complex", "large", "script"})
+    public String input;
+
+    private String sql;
+
+    private DagGraph graph;
+
+    private final CostEstimator costEstimator = new CostEstimator(StatisticsProvider.EMPTY);
+
+    private final LayeredLayout layout = new LayeredLayout();
+
+    @Setup
+    public void setup() {
+        sql = BenchmarkInputs.sql(input);
+        graph = new SQLDagAnalyzer().analyze(sql);
+        costEstimator.estimate(graph);
+    }
+
+    @Benchmark
+    public DagGraph analyze() {
+        return new SQLDagAnalyzer().analyze(sql);
+    }
+
+    @Benchmark
+    public DagGraph estimate() {
+        costEstimator.estimate(graph);
+        return graph;
+    }
+
+    @Benchmark
+    public DagLayout layout() {
+        return layout.layout(graph);
+    }
+}
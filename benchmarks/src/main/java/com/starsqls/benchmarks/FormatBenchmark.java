@@ -0,0 +1,73 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FormatPrinter} per options preset. A printer keeps state of the SQL it formats, so every invocation
+ * gets a new one, like the web controllers and the IDEA plugin do.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+
+    @Param({"simple", "complex", "large", "script"})
+    public String input;
+
+    /**
+     * default: {@link FormatOptions#defaultOptions()}, all: {@link FormatOptions#allFormatOptions()},
+     * minify: a new {@link FormatOptions}
+     */
+    @Param({"default", "all", "minify"})
+    public String preset;
+
+    private String sql;
+
+    private FormatOptions options;
+
+    @Setup
+    public void setup() {
+        sql = BenchmarkInputs.sql(input);
+        options = switch (preset) {
+            case "default" -> FormatOptions.defaultOptions();
+            case "all" -> FormatOptions.allFormatOptions();
+            case "minify" -> new FormatOptions();
+            default -> throw new IllegalArgumentException("Unknown preset: " + preset);
+        };
+    }
+
+    @Benchmark
+    public String format() {
+        return new FormatPrinter(options).format(sql);
+    }
+}
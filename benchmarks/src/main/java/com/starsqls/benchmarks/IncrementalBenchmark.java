@@ -0,0 +1,90 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.benchmarks;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import com.starsqls.format.IncrementalDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One keystroke in the middle of a script followed by formatting the whole script: {@link IncrementalDocument}
+ * against formatting the text from scratch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class IncrementalBenchmark {
+
+    @Param({"100", "1000"})
+    public int statements;
+
+    private final FormatOptions options = FormatOptions.defaultOptions();
+
+    private IncrementalDocument document;
+
+    private int offset;
+
+    private boolean typed;
+
+    @Setup
+    public void setup() {
+        StringJoiner script = new StringJoiner(";\n", "", ";");
+        for (int i = 0; i < statements; i++) {
+            script.add((i % 2 == 0 ? BenchmarkInputs.SIMPLE : BenchmarkInputs.COMPLEX) + " /* " + i + " */");
+        }
+        document = new IncrementalDocument(script.toString());
+        offset = document.getText().indexOf("/* " + statements / 2 + " */") + 3;
+        document.format(options);
+    }
+
+    /**
+     * Type or delete one char
+     */
+    private void keystroke() {
+        if (typed) {
+            document.edit(offset, 1, "");
+        } else {
+            document.edit(offset, 0, "x");
+        }
+        typed = !typed;
+    }
+
+    @Benchmark
+    public String incremental() {
+        keystroke();
+        return document.format(options);
+    }
+
+    @Benchmark
+    public String full() {
+        keystroke();
+        return new FormatPrinter(options).format(document.getText());
+    }
+}
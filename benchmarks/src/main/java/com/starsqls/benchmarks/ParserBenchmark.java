@@ -0,0 +1,68 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexing and parsing alone, without the printers' comment handling and visiting
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"simple", "complex", "large", "script"})
+    public String input;
+
+    private String sql;
+
+    @Setup
+    public void setup() {
+        sql = BenchmarkInputs.sql(input);
+    }
+
+    @Benchmark
+    public CommonTokenStream lex() {
+        CommonTokenStream tokens = new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(sql)));
+        tokens.fill();
+        return tokens;
+    }
+
+    @Benchmark
+    public StarRocksParser.SqlStatementsContext parse() {
+        StarRocksParser parser = new StarRocksParser(lex());
+        parser.removeErrorListeners();
+        return parser.sqlStatements();
+    }
+}
@@ -0,0 +1,296 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Runs {@link CorpusBenchmark} with the GC profiler and compares throughput and allocation per operation with the
+ * baseline stored in benchmarks/baseline.json. Exits with status 1 when a benchmark lost more throughput, or
+ * allocates more per operation, than the thresholds allow, or when a benchmark of the baseline did not run, so it
+ * can fail the build (see the perf-gate profile).
+ * <p>
+ * Allocation per operation barely depends on the machine and is the stable signal. Throughput only compares well
+ * against a baseline recorded on the same kind of machine and JVM, and only when the baseline's error bar is within
+ * the threshold, a noisier baseline can't tell a drop from noise. --update therefore records the throughput of a
+ * benchmark only when its relative error is within the threshold, and benchmarks without one are gated on
+ * allocation alone. Record the baseline again with --update when the machine or JVM changes, or when a change is
+ * an accepted trade-off.
+ */
+public final class RegressionGate {
+
+    static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    /**
+     * Results of one benchmark, throughput in ops/s with its 99.9% confidence error, allocation in bytes/op.
+     * Throughput and error are null in a baseline recorded with too wide an error bar.
+     */
+    record Score(Double throughput, Double error, double allocation) {
+    }
+
+    /**
+     * Contents of the baseline file
+     */
+    static class Baseline {
+        String recorded;
+
+        String jvm;
+
+        int cpus;
+
+        Map<String, Score> benchmarks = new TreeMap<>();
+    }
+
+    enum Status {
+        OK, IMPROVED, REGRESSED, NEW, MISSING
+    }
+
+    /**
+     * @param throughputGated whether the throughput change counts, see {@link #gatesThroughput}
+     */
+    record Diff(String benchmark, Score baseline, Score current, double throughputChange, double allocationChange,
+                boolean throughputGated, Status status) {
+    }
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting()
+            .serializeSpecialFloatingPointValues().create();
+
+    private RegressionGate() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Path baselineFile = Path.of("baseline.json");
+        Path report = null;
+        boolean update = false;
+        double throughputThreshold = 10;
+        double allocationThreshold = 5;
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(CorpusBenchmark.class.getName() + "\\.")
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--baseline" -> baselineFile = Path.of(args[++i]);
+                case "--report" -> report = Path.of(args[++i]);
+                case "--update" -> update = true;
+                case "--throughput" -> throughputThreshold = Double.parseDouble(args[++i]);
+                case "--allocation" -> allocationThreshold = Double.parseDouble(args[++i]);
+                case "--forks" -> options.forks(Integer.parseInt(args[++i]));
+                case "--iterations" -> options.measurementIterations(Integer.parseInt(args[++i]));
+                case "--time" -> options.measurementTime(TimeValue.seconds(Integer.parseInt(args[++i])));
+                default -> {
+                    System.err.println("Usage: RegressionGate [--baseline file] [--report file] [--update] "
+                            + "[--throughput percent] [--allocation percent] [--forks n] [--iterations n] "
+                            + "[--time seconds]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        Map<String, Score> current = scores(new Runner(options.build()).run());
+        if (update) {
+            Baseline baseline = new Baseline();
+            baseline.recorded = LocalDate.now().toString();
+            baseline.jvm = jvm();
+            baseline.cpus = Runtime.getRuntime().availableProcessors();
+            for (Map.Entry<String, Score> entry : current.entrySet()) {
+                Score score = entry.getValue();
+                if (!gatesThroughput(score, throughputThreshold)) {
+                    double error = relativeError(score);
+                    System.out.printf(Locale.ROOT, "%s: throughput error %s is wider than %.0f%%, recording "
+                            + "allocation only, run again with more forks%n", entry.getKey(),
+                            Double.isNaN(error) ? "unknown" : String.format(Locale.ROOT, "%.0f%%", error),
+                            throughputThreshold);
+                    score = new Score(null, null, score.allocation());
+                }
+                baseline.benchmarks.put(entry.getKey(), score);
+            }
+            Files.writeString(baselineFile, GSON.toJson(baseline) + "\n");
+            System.out.println("Baseline written to " + baselineFile);
+            return;
+        }
+
+        if (!Files.exists(baselineFile)) {
+            System.err.println("No baseline at " + baselineFile + ", record one with --update");
+            System.exit(2);
+        }
+        Baseline baseline = GSON.fromJson(Files.readString(baselineFile), Baseline.class);
+        List<Diff> diffs = compare(baseline.benchmarks, current, throughputThreshold, allocationThreshold);
+        String table = report(baseline, diffs, throughputThreshold, allocationThreshold);
+        System.out.println();
+        System.out.print(table);
+        if (report != null) {
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            Files.writeString(report, table);
+        }
+        // a renamed or deleted benchmark drops out of the gate, record the baseline again with --update
+        if (diffs.stream().anyMatch(d -> d.status() == Status.REGRESSED || d.status() == Status.MISSING)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Throughput and allocation per benchmark, keyed by "CorpusBenchmark.format"
+     */
+    static Map<String, Score> scores(Collection<RunResult> results) {
+        Map<String, Score> scores = new TreeMap<>();
+        for (RunResult run : results) {
+            String name = run.getParams().getBenchmark();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            Result<?> primary = run.getPrimaryResult();
+            Result<?> allocation = run.getSecondaryResults().get(ALLOCATION);
+            scores.put(name, new Score(primary.getScore(), primary.getScoreError(),
+                    allocation == null ? Double.NaN : allocation.getScore()));
+        }
+        return scores;
+    }
+
+    static List<Diff> compare(Map<String, Score> baseline, Map<String, Score> current, double throughputThreshold,
+                              double allocationThreshold) {
+        Map<String, Score> names = new TreeMap<>(baseline);
+        names.putAll(current);
+        List<Diff> diffs = new ArrayList<>();
+        for (String name : names.keySet()) {
+            Score before = baseline.get(name);
+            Score after = current.get(name);
+            if (before == null || after == null) {
+                diffs.add(new Diff(name, before, after, Double.NaN, Double.NaN, false,
+                        before == null ? Status.NEW : Status.MISSING));
+                continue;
+            }
+            boolean gated = gatesThroughput(before, throughputThreshold);
+            double throughput = before.throughput() == null ? Double.NaN
+                    : change(before.throughput(), after.throughput());
+            double allocation = change(before.allocation(), after.allocation());
+            Status status;
+            if ((gated && throughput < -throughputThreshold) || allocation > allocationThreshold) {
+                status = Status.REGRESSED;
+            } else if ((gated && throughput > throughputThreshold) || allocation < -allocationThreshold) {
+                status = Status.IMPROVED;
+            } else {
+                status = Status.OK;
+            }
+            diffs.add(new Diff(name, before, after, throughput, allocation, gated, status));
+        }
+        return diffs;
+    }
+
+    /**
+     * Whether the throughput of the baseline can resolve a change of the threshold: it was recorded, and its
+     * relative error is within the threshold
+     */
+    static boolean gatesThroughput(Score baseline, double throughputThreshold) {
+        return relativeError(baseline) <= throughputThreshold;
+    }
+
+    /**
+     * Error of the throughput in percent of the throughput, NaN when the throughput is not recorded
+     */
+    private static double relativeError(Score score) {
+        if (score.throughput() == null || score.error() == null || !(score.throughput() > 0)) {
+            return Double.NaN;
+        }
+        return score.error() / score.throughput() * 100;
+    }
+
+    /**
+     * Change in percent, NaN when either side is unknown, e.g. the GC profiler is not supported by the JVM
+     */
+    private static double change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return Double.NaN;
+        }
+        return (after - before) / before * 100;
+    }
+
+    /**
+     * Markdown table of the diffs, readable on the console and in a CI summary
+     */
+    static String report(Baseline baseline, List<Diff> diffs, double throughputThreshold,
+                         double allocationThreshold) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Baseline recorded %s on %s, %d cpus. Thresholds: throughput -%.0f%%, "
+                + "allocation +%.0f%%%n", baseline.recorded, baseline.jvm, baseline.cpus, throughputThreshold,
+                allocationThreshold));
+        if (!Objects.equals(baseline.jvm, jvm()) || baseline.cpus != Runtime.getRuntime().availableProcessors()) {
+            sb.append(String.format(Locale.ROOT, "Warning: running on %s, %d cpus, throughput is not comparable "
+                    + "to the baseline%n", jvm(), Runtime.getRuntime().availableProcessors()));
+        }
+        for (Diff diff : diffs) {
+            if (diff.baseline() != null && diff.current() != null && !diff.throughputGated()) {
+                sb.append(String.format(Locale.ROOT, "Note: the baseline of %s has no throughput within %.0f%%, "
+                        + "only allocation is gated%n", diff.benchmark(), throughputThreshold));
+            }
+        }
+        sb.append(String.format(Locale.ROOT, "%n| %-24s | %16s | %16s | %8s | %6s | %12s | %12s | %8s | %-9s |%n",
+                "Benchmark", "Baseline ops/s", "Current ops/s", "Change", "Limit", "Baseline B/op", "Current B/op",
+                "Change", "Status"));
+        sb.append("|").append("-".repeat(26)).append("|").append("-".repeat(17)).append(":|")
+                .append("-".repeat(17)).append(":|").append("-".repeat(9)).append(":|")
+                .append("-".repeat(7)).append(":|")
+                .append("-".repeat(13)).append(":|").append("-".repeat(13)).append(":|")
+                .append("-".repeat(9)).append(":|").append("-".repeat(11)).append("|\n");
+        for (Diff diff : diffs) {
+            sb.append(String.format(Locale.ROOT, "| %-24s | %16s | %16s | %8s | %6s | %12s | %12s | %8s | %-9s |%n",
+                    diff.benchmark(), throughput(diff.baseline()), throughput(diff.current()),
+                    percent(diff.throughputChange()), diff.throughputGated() ? limit(throughputThreshold) : "-",
+                    allocation(diff.baseline()), allocation(diff.current()), percent(diff.allocationChange()),
+                    diff.status()));
+        }
+        return sb.toString();
+    }
+
+    private static String throughput(Score score) {
+        return score == null || score.throughput() == null ? "-"
+                : String.format(Locale.ROOT, "%.2f ± %.2f", score.throughput(), score.error());
+    }
+
+    private static String allocation(Score score) {
+        return score == null || Double.isNaN(score.allocation()) ? "-"
+                : String.format(Locale.ROOT, "%.0f", score.allocation());
+    }
+
+    private static String limit(double limit) {
+        return String.format(Locale.ROOT, "-%.0f%%", limit);
+    }
+
+    private static String percent(double change) {
+        return Double.isNaN(change) ? "-" : String.format(Locale.ROOT, "%+.1f%%", change);
+    }
+
+    private static String jvm() {
+        return System.getProperty("java.vm.name") + " " + System.getProperty("java.runtime.version");
+    }
+}
@@ -0,0 +1,90 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.benchmarks;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import com.starsqls.grammar.SqlGenerator;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of parse, format and DAG analysis as one dimension of a generated statement grows, the others stay at
+ * the {@link SqlGenerator.Shape} defaults. Each size is 4 times the previous one, so a linear operation takes about
+ * 4 times longer per step; a larger ratio points to super-linear behavior in that dimension.
+ * <p>
+ * The visitors recurse once per nested subquery, 256 levels need more than the default thread stack.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+
+    /**
+     * One of columns, joins, depth, ctes, inList or comments (percent, so the last sizes are capped at 100)
+     */
+    @Param({"columns", "joins", "depth", "ctes", "inList", "comments"})
+    public String dimension;
+
+    @Param({"1", "4", "16", "64", "256"})
+    public int size;
+
+    @Param("1")
+    public long seed;
+
+    private String sql;
+
+    @Setup
+    public void setup() {
+        sql = new SqlGenerator(seed).generate(new SqlGenerator.Shape().set(dimension, size));
+    }
+
+    @Benchmark
+    public StarRocksParser.SqlStatementsContext parse() {
+        StarRocksParser parser = new StarRocksParser(
+                new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(sql))));
+        parser.removeErrorListeners();
+        return parser.sqlStatements();
+    }
+
+    @Benchmark
+    public String format() {
+        return new FormatPrinter(FormatOptions.allFormatOptions()).format(sql);
+    }
+
+    @Benchmark
+    public DagGraph dag() {
+        return new SQLDagAnalyzer().analyze(sql);
+    }
+}
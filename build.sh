@@ -89,12 +89,14 @@ copy_artifacts() {
     print_status "Project version: $PROJECT_VERSION"
     
     # Copy web JAR to lib directory
+    # The executable Spring Boot jar has the "exec" classifier, lib gets it under the plain name
     WEB_JAR="starsqls-web-$PROJECT_VERSION.jar"
-    if [ -f "$PROJECT_ROOT/web/target/$WEB_JAR" ]; then
-        cp "$PROJECT_ROOT/web/target/$WEB_JAR" "$LIB_DIR/"
-        print_status "Copied $WEB_JAR to $LIB_DIR"
+    WEB_EXEC_JAR="starsqls-web-$PROJECT_VERSION-exec.jar"
+    if [ -f "$PROJECT_ROOT/web/target/$WEB_EXEC_JAR" ]; then
+        cp "$PROJECT_ROOT/web/target/$WEB_EXEC_JAR" "$LIB_DIR/$WEB_JAR"
+        print_status "Copied $WEB_EXEC_JAR to $LIB_DIR/$WEB_JAR"
     else
-        print_warning "$WEB_JAR not found in web/target/"
+        print_warning "$WEB_EXEC_JAR not found in web/target/"
     fi
     
     # Copy core JAR to lib directory
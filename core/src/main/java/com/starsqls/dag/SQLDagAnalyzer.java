@@ -13,14 +13,22 @@
 package com.starsqls.dag;
 
 import com.starsqls.dag.model.*;
+import com.starsqls.format.CancellationToken;
+import com.starsqls.format.CompactTokenStream;
 import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPhase;
+import com.starsqls.format.OperationCancelledException;
+import com.starsqls.format.PhaseListener;
 import com.starsqls.format.FormatPrinter;
 import com.starsqls.format.Printer;
 import com.starsqls.parser.StarRocksBaseVisitor;
 import com.starsqls.parser.StarRocksLexer;
 import com.starsqls.parser.StarRocksParser;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -34,12 +42,33 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
     private final DagGraph graph;
     private final Stack<DagNode> nodeStack;
     private final Map<String, DagNode> cteMap;
+    private final List<Subplan> subplans;
+    private SubtreeHasher hasher;
+    private boolean mergeDuplicates;
+    private CancellationToken cancellation = CancellationToken.NONE;
+    private PhaseListener phaseListener = PhaseListener.NONE;
     private int nodeCounter;
     
+    /**
+     * A subquery or CTE node, the parse tree of its body and the nodes created for the body
+     */
+    private static class Subplan {
+        final DagNode node;
+        final ParseTree body;
+        final List<DagNode> bodyNodes;
+        
+        Subplan(DagNode node, ParseTree body, List<DagNode> bodyNodes) {
+            this.node = node;
+            this.body = body;
+            this.bodyNodes = bodyNodes;
+        }
+    }
+    
     public SQLDagAnalyzer() {
         this.graph = new DagGraph();
         this.nodeStack = new Stack<>();
         this.cteMap = new HashMap<>();
+        this.subplans = new ArrayList<>();
         this.nodeCounter = 0;
         FormatOptions options = FormatOptions.defaultOptions();
         options.keyWordStyle = FormatOptions.KeyWordStyle.UPPER_CASE;
@@ -58,25 +87,157 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
             graph.clear();
             nodeStack.clear();
             cteMap.clear();
+            subplans.clear();
+            hasher = new SubtreeHasher();
             nodeCounter = 0;
             
             // Parse SQL
             StarRocksLexer lexer = new StarRocksLexer(CharStreams.fromString(sql));
-            StarRocksParser parser = new StarRocksParser(new CommonTokenStream(lexer));
+            CompactTokenStream tokenStream = new CompactTokenStream(lexer, cancellation);
+            long start = System.nanoTime();
+            tokenStream.fill();
+            phaseListener.onPhase(FormatPhase.LEX, System.nanoTime() - start);
+            phaseListener.onTokens(tokenStream.size());
+            StarRocksParser parser = new StarRocksParser(tokenStream);
+            if (cancellation != CancellationToken.NONE) {
+                parser.addParseListener(cancellation.parseListener());
+            }
+            start = System.nanoTime();
             StarRocksParser.SqlStatementsContext tree = parser.sqlStatements();
+            phaseListener.onPhase(FormatPhase.PARSE, System.nanoTime() - start);
+            if (parser.getNumberOfSyntaxErrors() > 0) {
+                phaseListener.onParseFailure();
+            }
             
             // Visit parse tree
+            start = System.nanoTime();
             visit(tree);
             
+            // Mark (or merge) subqueries and CTEs which repeat an earlier one
+            processDuplicates();
+            
             // Add RESULT node at the end
             addResultNode();
+            phaseListener.onPhase(FormatPhase.VISIT, System.nanoTime() - start);
             
             return graph;
+        } catch (OperationCancelledException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to analyze SQL DAG: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * Merge identical subqueries and CTE bodies instead of only linking them with DUPLICATE_OF edges.
+     * A merged duplicate is removed with all nodes of its body, its consumers read from the first occurrence.
+     */
+    public void setMergeDuplicates(boolean mergeDuplicates) {
+        this.mergeDuplicates = mergeDuplicates;
+    }
+    
+    /**
+     * Stop the analysis with {@link OperationCancelledException} once the token is cancelled or expired
+     */
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation == null ? CancellationToken.NONE : cancellation;
+        printer.setCancellationToken(this.cancellation);
+    }
+    
+    /**
+     * Report phase timings of the following analyses to the listener, VISIT covers building the whole graph
+     */
+    public void setPhaseListener(PhaseListener listener) {
+        this.phaseListener = listener == null ? PhaseListener.NONE : listener;
+    }
+    
+    @Override
+    public DagNode visit(ParseTree tree) {
+        cancellation.tick();
+        return tree.accept(this);
+    }
+    
+    @Override
+    public DagNode visitChildren(RuleNode node) {
+        cancellation.tick();
+        return super.visitChildren(node);
+    }
+    
+    /**
+     * Analyze the body of a subquery or CTE, its result flows into the given node
+     */
+    private void visitSubplan(DagNode node, ParserRuleContext body) {
+        int from = graph.getNodes().size();
+        nodeStack.push(node);
+        visit(body);
+        nodeStack.pop();
+        subplans.add(new Subplan(node, body, new ArrayList<>(graph.getNodes().subList(from, graph.getNodes().size()))));
+    }
+    
+    /**
+     * Find subqueries and CTEs whose body is structurally identical to an earlier one. Every subplan node gets
+     * its "subtreeHash", a duplicate gets "duplicateOf" and a DUPLICATE_OF edge to the first occurrence, which
+     * counts its "duplicates". With {@link #setMergeDuplicates} the duplicates are removed from the graph.
+     */
+    private void processDuplicates() {
+        // outer subplans are registered after their inner ones, process them in the order of creation
+        List<Subplan> ordered = new ArrayList<>(subplans);
+        List<DagNode> nodes = graph.getNodes();
+        Map<DagNode, Integer> position = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            position.put(nodes.get(i), i);
+        }
+        ordered.sort(Comparator.comparingInt(sp -> position.get(sp.node)));
+        
+        Map<Long, List<Subplan>> byHash = new HashMap<>();
+        Set<String> removed = new HashSet<>();
+        for (Subplan subplan : ordered) {
+            long hash = hasher.hash(subplan.body);
+            subplan.node.addData("subtreeHash", hasher.hashString(subplan.body));
+            List<Subplan> candidates = byHash.computeIfAbsent(hash, k -> new ArrayList<>());
+            Subplan first = candidates.stream()
+                .filter(c -> hasher.equivalent(c.body, subplan.body))
+                .findFirst()
+                .orElse(null);
+            if (first == null) {
+                candidates.add(subplan);
+                continue;
+            }
+            if (removed.contains(subplan.node.getId()) || removed.contains(first.node.getId())) {
+                // part of a duplicate which is merged already
+                continue;
+            }
+            int count = (Integer) first.node.getData().getOrDefault("duplicates", 0);
+            first.node.addData("duplicates", count + 1);
+            if (mergeDuplicates) {
+                mergeSubplan(subplan, first, removed);
+            } else {
+                subplan.node.addData("duplicateOf", first.node.getId());
+                graph.addEdge(new DagEdge(subplan.node.getId(), first.node.getId(), EdgeType.DUPLICATE_OF)
+                    .setLabel("duplicate")
+                    .setStyle("dashed"));
+            }
+        }
+        if (!removed.isEmpty()) {
+            graph.getNodes().removeIf(n -> removed.contains(n.getId()));
+        }
+    }
+    
+    private void mergeSubplan(Subplan duplicate, Subplan first, Set<String> removed) {
+        String duplicateId = duplicate.node.getId();
+        removed.add(duplicateId);
+        duplicate.bodyNodes.forEach(n -> removed.add(n.getId()));
+        Iterator<DagEdge> edges = graph.getEdges().iterator();
+        while (edges.hasNext()) {
+            DagEdge edge = edges.next();
+            if (edge.getSource().equals(duplicateId) && !removed.contains(edge.getTarget())) {
+                edge.setSource(first.node.getId());
+            } else if (removed.contains(edge.getSource()) || removed.contains(edge.getTarget())) {
+                edges.remove();
+            }
+        }
+    }
+    
     /**
      * Generate next unique node ID
      */
@@ -132,7 +293,9 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                 .setType(NodeType.FILTER)
                 .setLabel("FILTER (WHERE)")
                 .addDetail(shortCondition)
-                .setSqlFragment("WHERE " + condition);
+                .setSqlFragment("WHERE " + condition)
+                .addData("condition", condition)
+                .addData("predicates", extractPredicates(ctx.where));
             
             graph.addNode(filterNode);
             if (currentNode != null) {
@@ -159,7 +322,8 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                 .setLabel("AGGREGATE")
                 .addDetail(truncate(groupByStr, 50))
                 .setSqlFragment("GROUP BY " + String.join(", ", groupByColumns) + 
-                               (aggFunctions.isEmpty() ? "" : "\nFunctions: " + String.join(", ", aggFunctions)));
+                               (aggFunctions.isEmpty() ? "" : "\nFunctions: " + String.join(", ", aggFunctions)))
+                .addData("groupBy", groupByColumns);
             
             if (!aggStr.isEmpty()) {
                 aggNode.addDetail(truncate(aggStr, 50));
@@ -193,7 +357,9 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                 .setType(NodeType.FILTER)
                 .setLabel("FILTER (HAVING)")
                 .addDetail(shortCondition)
-                .setSqlFragment("HAVING " + condition);
+                .setSqlFragment("HAVING " + condition)
+                .addData("condition", condition)
+                .addData("predicates", extractPredicates(ctx.having));
             
             graph.addNode(havingNode);
             if (currentNode != null) {
@@ -287,7 +453,8 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                     .setType(NodeType.TOP_N)
                     .setLabel("TOP_N")
                     .addDetail(sortStr)
-                    .setSqlFragment("ORDER BY " + sortStr + "\n" + limit);
+                    .setSqlFragment("ORDER BY " + sortStr + "\n" + limit)
+                    .addData("limit", extractLimit(ctx.limitElement()));
 
             graph.addNode(sortNode);
             if (currentNode != null) {
@@ -329,7 +496,8 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                 .setType(NodeType.LIMIT)
                 .setLabel("LIMIT")
                 .addDetail(limit)
-                .setSqlFragment(limit);
+                .setSqlFragment(limit)
+                .addData("limit", extractLimit(ctx.limitElement()));
             
             graph.addNode(limitNode);
             if (currentNode != null) {
@@ -359,7 +527,8 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                         .setId(nextNodeId())
                         .setType(NodeType.JOIN)
                         .setLabel("JOIN (CROSS)")
-                        .setSqlFragment("CROSS JOIN");
+                        .setSqlFragment("CROSS JOIN")
+                        .addData("joinType", "CROSS");
 
                     graph.addNode(joinNode);
                     graph.addEdge(currentNode, joinNode, EdgeType.DATAFLOW);
@@ -390,9 +559,7 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
             cteMap.put(cteName, cteNode);
             
             // Recursively analyze CTE body
-            nodeStack.push(cteNode);
-            visit(cte.queryRelation());
-            nodeStack.pop();
+            visitSubplan(cteNode, cte.queryRelation());
         }
         return null;
     }
@@ -413,9 +580,7 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
         graph.addNode(subqueryNode);
         
         // Recursively analyze subquery
-        nodeStack.push(subqueryNode);
-        visit(ctx.subquery().queryRelation());
-        nodeStack.pop();
+        visitSubplan(subqueryNode, ctx.subquery().queryRelation());
         
         return subqueryNode;
     }
@@ -424,7 +589,22 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
     
     @Override
     public DagNode visitSetOperation(StarRocksParser.SetOperationContext ctx) {
-        DagNode leftNode = visit(ctx.left);
+        // q1 UNION ALL q2 UNION ALL q3 ... is a left-deep tree, walk its left spine in a loop
+        List<StarRocksParser.SetOperationContext> chain = new ArrayList<>();
+        StarRocksParser.QueryPrimaryContext current = ctx;
+        while (current instanceof StarRocksParser.SetOperationContext operation) {
+            chain.add(operation);
+            current = operation.left;
+        }
+        
+        DagNode leftNode = visit(current);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            leftNode = visitSetOperationStep(chain.get(i), leftNode);
+        }
+        return leftNode;
+    }
+    
+    private DagNode visitSetOperationStep(StarRocksParser.SetOperationContext ctx, DagNode leftNode) {
         DagNode rightNode = visit(ctx.right);
         
         String unionType = ctx.operator.getText().toUpperCase();
@@ -437,7 +617,8 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
             .setType(NodeType.UNION)
             .setLabel("UNION")
             .addDetail(unionType)
-            .setSqlFragment(unionType);
+            .setSqlFragment(unionType)
+            .addData("setType", unionType);
         
         graph.addNode(unionNode);
         
@@ -474,7 +655,10 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                     .setType(NodeType.JOIN)
                     .setLabel("" + joinType + " JOIN")
                     .addDetail(shortCondition)
-                    .setSqlFragment("JOIN CONDITION: " + condition);
+                    .setSqlFragment("JOIN CONDITION: " + condition)
+                    .addData("joinType", joinType)
+                    .addData("condition", condition)
+                    .addData("equiKeys", extractEquiKeys(joinCtx));
                 
                 graph.addNode(joinNode);
                 
@@ -513,7 +697,10 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                 .setType(NodeType.SCAN)
                 .setLabel("SCAN")
                 .addDetail(tableName + " (" + alias + ")")
-                .setSqlFragment("FROM " + tableName + " AS " + alias);
+                .setSqlFragment("FROM " + tableName + " AS " + alias)
+                .addData("table", tableName)
+                .addData("alias", alias)
+                .addData("cte", true);
             
             graph.addNode(scanNode);
             
@@ -532,7 +719,9 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
             .setType(NodeType.SCAN)
             .setLabel("SCAN")
             .addDetail(tableName + (alias.equals(tableName) ? "" : " (" + alias + ")"))
-            .setSqlFragment("FROM " + tableName + (alias.equals(tableName) ? "" : " AS " + alias));
+            .setSqlFragment("FROM " + tableName + (alias.equals(tableName) ? "" : " AS " + alias))
+            .addData("table", tableName)
+            .addData("alias", alias);
         
         graph.addNode(scanNode);
         return scanNode;
@@ -557,7 +746,7 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
                 }
                 
                 // Check if expression text contains functions, operators, etc.
-                String exprText = single.expression().getText();
+                String exprText = text(single.expression());
                 // Simple heuristics: contains parentheses (functions) or operators
                 if (exprText.contains("(") || exprText.contains("+") || 
                     exprText.contains("-") || exprText.contains("*") || 
@@ -659,6 +848,135 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
         return "";
     }
     
+    /**
+     * Extract the equi-join keys of an ON condition as [left, right] column pairs, used by the cost estimator
+     */
+    private List<List<String>> extractEquiKeys(StarRocksParser.JoinRelationContext ctx) {
+        List<List<String>> keys = new ArrayList<>();
+        if (ctx.joinCriteria() == null) {
+            return keys;
+        }
+        if (ctx.joinCriteria().USING() != null) {
+            for (StarRocksParser.IdentifierContext id : ctx.joinCriteria().identifier()) {
+                keys.add(List.of(columnName(id), columnName(id)));
+            }
+            return keys;
+        }
+        for (StarRocksParser.ExpressionContext conjunct : splitConjuncts(ctx.joinCriteria().expression())) {
+            StarRocksParser.BooleanExpressionContext bool = booleanOf(conjunct);
+            if (bool instanceof StarRocksParser.ComparisonContext cmp && cmp.comparisonOperator().EQ() != null) {
+                String left = columnOf(cmp.left);
+                String right = columnOf(cmp.right);
+                if (left != null && right != null) {
+                    keys.add(List.of(left, right));
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Describe the top level AND conjuncts of a condition as {column, op} pairs, used by the cost estimator.
+     * Conjuncts which are not a simple predicate on a single column get the op "OTHER" and no column.
+     */
+    private List<Map<String, Object>> extractPredicates(StarRocksParser.ExpressionContext ctx) {
+        List<Map<String, Object>> predicates = new ArrayList<>();
+        for (StarRocksParser.ExpressionContext conjunct : splitConjuncts(ctx)) {
+            Map<String, Object> predicate = new LinkedHashMap<>();
+            StarRocksParser.BooleanExpressionContext bool = booleanOf(conjunct);
+            String column = null;
+            String op = "OTHER";
+            if (bool instanceof StarRocksParser.ComparisonContext cmp) {
+                column = columnOf(cmp.left);
+                if (column != null && columnOf(cmp.right) == null) {
+                    op = cmp.comparisonOperator().getText();
+                } else {
+                    column = null;
+                }
+            } else if (bool instanceof StarRocksParser.IsNullContext isNull) {
+                column = columnOf(isNull.booleanExpression());
+                op = isNull.NOT() != null ? "IS NOT NULL" : "IS NULL";
+            } else if (bool instanceof StarRocksParser.BooleanExpressionDefaultContext def
+                    && def.predicate().predicateOperations() != null) {
+                column = columnOf(def.predicate().valueExpression());
+                StarRocksParser.PredicateOperationsContext ops = def.predicate().predicateOperations();
+                if (ops instanceof StarRocksParser.InListContext in) {
+                    op = in.NOT() != null ? "NOT IN" : "IN";
+                    predicate.put("values", in.expressionList().expression().size());
+                } else if (ops instanceof StarRocksParser.BetweenContext between) {
+                    op = between.NOT() != null ? "NOT BETWEEN" : "BETWEEN";
+                } else if (ops instanceof StarRocksParser.LikeContext like) {
+                    op = like.NOT() != null ? "NOT LIKE" : "LIKE";
+                } else {
+                    column = null;
+                }
+            }
+            if (column == null) {
+                op = "OTHER";
+            } else {
+                predicate.put("column", column);
+            }
+            predicate.put("op", op);
+            predicates.add(predicate);
+        }
+        return predicates;
+    }
+
+    private List<StarRocksParser.ExpressionContext> splitConjuncts(StarRocksParser.ExpressionContext ctx) {
+        List<StarRocksParser.ExpressionContext> conjuncts = new ArrayList<>();
+        Deque<StarRocksParser.ExpressionContext> stack = new ArrayDeque<>();
+        stack.push(ctx);
+        while (!stack.isEmpty()) {
+            StarRocksParser.ExpressionContext expr = stack.pop();
+            if (expr instanceof StarRocksParser.LogicalBinaryContext binary
+                    && (binary.AND() != null || binary.LOGICAL_AND() != null)) {
+                stack.push(binary.right);
+                stack.push(binary.left);
+            } else {
+                conjuncts.add(expr);
+            }
+        }
+        return conjuncts;
+    }
+
+    private StarRocksParser.BooleanExpressionContext booleanOf(StarRocksParser.ExpressionContext ctx) {
+        return ctx instanceof StarRocksParser.ExpressionDefaultContext def ? def.booleanExpression() : null;
+    }
+
+    /**
+     * The column name if the tree is just a (possibly qualified) column reference, otherwise null
+     */
+    private String columnOf(ParseTree tree) {
+        ParseTree node = tree;
+        while (node != null) {
+            if (node instanceof StarRocksParser.ColumnRefContext
+                    || node instanceof StarRocksParser.DereferenceContext) {
+                return columnName(node);
+            }
+            node = node.getChildCount() == 1 ? node.getChild(0) : null;
+        }
+        return null;
+    }
+
+    private String columnName(ParseTree tree) {
+        return text(tree).replace("`", "").toLowerCase();
+    }
+
+    /**
+     * The LIMIT count, null if it is not a constant or does not fit a long
+     */
+    private Long extractLimit(StarRocksParser.LimitElementContext ctx) {
+        if (ctx.limit != null && ctx.limit.INTEGER_VALUE() != null) {
+            try {
+                return Long.parseLong(ctx.limit.INTEGER_VALUE().getText());
+            } catch (NumberFormatException e) {
+                // an unknown limit, only the estimate is lost
+                return null;
+            }
+        }
+        return null;
+    }
+
     /**
      * Extract GROUP BY columns
      */
@@ -690,7 +1008,7 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
         for (StarRocksParser.SelectItemContext item : items) {
             if (item instanceof StarRocksParser.SelectSingleContext) {
                 StarRocksParser.SelectSingleContext single = (StarRocksParser.SelectSingleContext) item;
-                String expr = single.expression().getText();
+                String expr = text(single.expression());
                 
                 // Simple detection of aggregate functions
                 if (expr.matches(".*(?i)(COUNT|SUM|AVG|MIN|MAX|ARRAY_AGG|GROUP_CONCAT)\\s*\\(.*")) {
@@ -713,7 +1031,7 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
             return columns;
         }
         for (StarRocksParser.SortItemContext item : items) {
-            String column = item.expression().getText();
+            String column = text(item.expression());
             if (item.ordering != null) {
                 column += " " + item.ordering.getText().toUpperCase();
             }
@@ -734,7 +1052,7 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
         for (StarRocksParser.SelectItemContext item : items) {
             if (item instanceof StarRocksParser.SelectSingleContext) {
                 StarRocksParser.SelectSingleContext single = (StarRocksParser.SelectSingleContext) item;
-                String expr = single.expression().getText();
+                String expr = text(single.expression());
                 
                 // Check for OVER clause
                 if (expr.matches(".*(?i)OVER\\s*\\(.*")) {
@@ -748,7 +1066,8 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
     
     /**
      * Process subqueries within an expression (e.g., in WHERE clause)
-     * This visitor traverses the expression tree and creates DAG nodes for any subqueries found
+     * This walks the expression tree and creates DAG nodes for any subqueries found.
+     * The walk uses an explicit stack, generated conditions with thousands of AND/OR would overflow a visitor.
      * 
      * @param ctx Expression context to search for subqueries
      * @param parentNode The node that uses this expression (e.g., FILTER node for WHERE clause)
@@ -758,122 +1077,72 @@ public class SQLDagAnalyzer extends StarRocksBaseVisitor<DagNode> {
             return;
         }
         
-        final SQLDagAnalyzer analyzer = this;
-        
-        // Use a custom visitor to find all subqueries in the expression tree
-        ctx.accept(new StarRocksBaseVisitor<Void>() {
-            @Override
-            public Void visitSubqueryExpression(StarRocksParser.SubqueryExpressionContext ctx) {
-                // Create a SUBQUERY node for this subquery
-                DagNode subqueryNode = new DagNode()
-                    .setId(nextNodeId())
-                    .setType(NodeType.SUBQUERY)
-                    .setLabel("SUBQUERY")
-                    .setSqlFragment(printer.format(ctx));
-                
-                graph.addNode(subqueryNode);
-                
-                // Connect subquery to parent node (the filter that uses it)
-                if (parentNode != null) {
-                    graph.addEdge(subqueryNode, parentNode, EdgeType.DATAFLOW);
-                }
-                
-                // Recursively analyze the subquery content
-                // Push the SUBQUERY node to stack to capture the subquery's result
-                // The visitQuerySpecification will automatically connect the result to this subqueryNode
-                nodeStack.push(subqueryNode);
-                analyzer.visit(ctx.subquery().queryRelation());
-                nodeStack.pop();
-                
-                // Don't call super.visit to avoid duplicate processing
-                return null;
-            }
-            
-            @Override
-            public Void visitScalarSubquery(StarRocksParser.ScalarSubqueryContext ctx) {
-                // Handle scalar subquery (e.g., col = (SELECT ...))
-                DagNode subqueryNode = new DagNode()
-                    .setId(nextNodeId())
-                    .setType(NodeType.SUBQUERY)
-                    .setLabel("SUBQUERY (SCALAR)")
-                    .setSqlFragment(printer.format(ctx.queryRelation()));
-                
-                graph.addNode(subqueryNode);
-                
-                // Connect subquery to parent node (the filter that uses it)
-                if (parentNode != null) {
-                    graph.addEdge(subqueryNode, parentNode, EdgeType.DATAFLOW);
-                }
-                
-                // Recursively analyze the subquery content
-                // Push the SUBQUERY node to stack to capture the subquery's result
-                // The visitQuerySpecification will automatically connect the result to this subqueryNode
-                nodeStack.push(subqueryNode);
-                analyzer.visit(ctx.queryRelation());
-                nodeStack.pop();
-                
-                // Don't call super.visit to avoid duplicate processing
-                return null;
-            }
-            
-            @Override
-            public Void visitInSubquery(StarRocksParser.InSubqueryContext ctx) {
-                // Handle IN subquery (e.g., col IN (SELECT ...))
-                DagNode subqueryNode = new DagNode()
-                    .setId(nextNodeId())
-                    .setType(NodeType.SUBQUERY)
-                    .setLabel("SUBQUERY (IN)")
-                    .setSqlFragment(printer.format(ctx.queryRelation()));
-                
-                graph.addNode(subqueryNode);
-                
-                // Connect subquery to parent node (the filter that uses it)
-                if (parentNode != null) {
-                    graph.addEdge(subqueryNode, parentNode, EdgeType.DATAFLOW);
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(ctx);
+        while (!stack.isEmpty()) {
+            ParseTree node = stack.pop();
+            if (node instanceof StarRocksParser.SubqueryExpressionContext subquery) {
+                addExpressionSubquery("SUBQUERY", printer.format(subquery), subquery.subquery().queryRelation(),
+                    parentNode);
+            } else if (node instanceof StarRocksParser.ScalarSubqueryContext scalar) {
+                // e.g. col = (SELECT ...)
+                addExpressionSubquery("SUBQUERY (SCALAR)", printer.format(scalar.queryRelation()),
+                    scalar.queryRelation(), parentNode);
+            } else if (node instanceof StarRocksParser.InSubqueryContext in) {
+                // e.g. col IN (SELECT ...)
+                addExpressionSubquery("SUBQUERY (IN)", printer.format(in.queryRelation()), in.queryRelation(),
+                    parentNode);
+            } else if (node instanceof StarRocksParser.ExistsContext exists) {
+                addExpressionSubquery("SUBQUERY (EXISTS)", printer.format(exists.queryRelation()),
+                    exists.queryRelation(), parentNode);
+            } else {
+                // Subqueries are not descended into, their content is analyzed by visitSubplan
+                for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                    if (!(node.getChild(i) instanceof TerminalNode)) {
+                        stack.push(node.getChild(i));
+                    }
                 }
-                
-                // Recursively analyze the subquery content
-                // Push the SUBQUERY node to stack to capture the subquery's result
-                // The visitQuerySpecification will automatically connect the result to this subqueryNode
-                nodeStack.push(subqueryNode);
-                analyzer.visit(ctx.queryRelation());
-                nodeStack.pop();
-                
-                // Don't call super.visit to avoid duplicate processing
-                return null;
             }
-            
-            @Override
-            public Void visitExists(StarRocksParser.ExistsContext ctx) {
-                // Handle EXISTS subquery
-                DagNode subqueryNode = new DagNode()
-                    .setId(nextNodeId())
-                    .setType(NodeType.SUBQUERY)
-                    .setLabel("SUBQUERY (EXISTS)")
-                    .setSqlFragment(printer.format(ctx.queryRelation()));
-                
-                graph.addNode(subqueryNode);
-                
-                // Connect subquery to parent node (the filter that uses it)
-                if (parentNode != null) {
-                    graph.addEdge(subqueryNode, parentNode, EdgeType.DATAFLOW);
-                }
-                
-                // Recursively analyze the subquery content
-                // Push the SUBQUERY node to stack to capture the subquery's result
-                // The visitQuerySpecification will automatically connect the result to this subqueryNode
-                nodeStack.push(subqueryNode);
-                analyzer.visit(ctx.queryRelation());
-                nodeStack.pop();
-                
-                // Don't call super.visit to avoid duplicate processing
-                return null;
+        }
+    }
+    
+    private void addExpressionSubquery(String label, String sqlFragment, StarRocksParser.QueryRelationContext body,
+                                       DagNode parentNode) {
+        DagNode subqueryNode = new DagNode()
+            .setId(nextNodeId())
+            .setType(NodeType.SUBQUERY)
+            .setLabel(label)
+            .setSqlFragment(sqlFragment);
+        
+        graph.addNode(subqueryNode);
+        
+        // Connect subquery to parent node (the filter that uses it)
+        if (parentNode != null) {
+            graph.addEdge(subqueryNode, parentNode, EdgeType.DATAFLOW);
+        }
+        
+        // Push the SUBQUERY node to stack to capture the subquery's result
+        // The visitQuerySpecification will automatically connect the result to this subqueryNode
+        visitSubplan(subqueryNode, body);
+    }
+    
+    /**
+     * Same as {@link ParseTree#getText()}, without recursion
+     */
+    private static String text(ParseTree tree) {
+        StringBuilder sb = new StringBuilder();
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(tree);
+        while (!stack.isEmpty()) {
+            ParseTree node = stack.pop();
+            if (node instanceof TerminalNode) {
+                sb.append(node.getText());
+                continue;
             }
-            
-            @Override
-            protected Void aggregateResult(Void aggregate, Void nextResult) {
-                return null;
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                stack.push(node.getChild(i));
             }
-        });
+        }
+        return sb.toString();
     }
 }
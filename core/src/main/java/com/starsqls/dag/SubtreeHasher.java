@@ -0,0 +1,149 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.dag;
+
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Structural hashing of parse subtrees, for finding repeated subqueries and CTE bodies.
+ * <p>
+ * Two subtrees get the same hash when they have the same rule alternatives and the same tokens, ignoring
+ * whitespace, comments, back quotes and the case of keywords and identifiers; string literals stay case
+ * sensitive. Hashes of all visited subtrees are memoized, so hashing every subquery of a statement is linear
+ * in the size of the statement. A hash match should be confirmed with {@link #equivalent} before two subtrees
+ * are treated as the same.
+ */
+public class SubtreeHasher {
+    private static final long IDENTIFIER_SEED = 0x2545F4914F6CDD1DL;
+
+    private final Map<ParseTree, Long> hashes = new IdentityHashMap<>();
+
+    public long hash(ParseTree root) {
+        Long cached = hashes.get(root);
+        if (cached != null) {
+            return cached;
+        }
+        // iterative post-order, deep expressions don't grow the call stack
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            ParseTree node = stack.peek();
+            if (hashes.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            if (node instanceof StarRocksParser.IdentifierContext) {
+                // `a`, A and a are the same identifier, whatever alternative of the rule matched them
+                stack.pop();
+                hashes.put(node, mix(IDENTIFIER_SEED + normalize(node.getText()).hashCode()));
+                continue;
+            }
+            boolean ready = true;
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                ParseTree child = node.getChild(i);
+                if (!hashes.containsKey(child)) {
+                    stack.push(child);
+                    ready = false;
+                }
+            }
+            if (!ready) {
+                continue;
+            }
+            stack.pop();
+            long h;
+            if (node instanceof TerminalNode terminal) {
+                h = mix(terminal.getSymbol().getType() * 0x9E3779B97F4A7C15L + normalize(terminal.getText()).hashCode());
+            } else {
+                h = node.getClass().getName().hashCode();
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    h = mix(h * 31 + hashes.get(node.getChild(i)));
+                }
+            }
+            hashes.put(node, h);
+        }
+        return hashes.get(root);
+    }
+
+    /**
+     * Hex form of {@link #hash}, for the node data of the DAG
+     */
+    public String hashString(ParseTree root) {
+        return String.format("%016x", hash(root));
+    }
+
+    /**
+     * Exact structural comparison with the same normalization as the hash
+     */
+    public boolean equivalent(ParseTree a, ParseTree b) {
+        Deque<ParseTree> left = new ArrayDeque<>();
+        Deque<ParseTree> right = new ArrayDeque<>();
+        left.push(a);
+        right.push(b);
+        while (!left.isEmpty()) {
+            ParseTree x = left.pop();
+            ParseTree y = right.pop();
+            if (x instanceof StarRocksParser.IdentifierContext && y instanceof StarRocksParser.IdentifierContext) {
+                if (!normalize(x.getText()).equals(normalize(y.getText()))) {
+                    return false;
+                }
+                continue;
+            }
+            if (x.getClass() != y.getClass() || x.getChildCount() != y.getChildCount()) {
+                return false;
+            }
+            if (x instanceof TerminalNode tx) {
+                TerminalNode ty = (TerminalNode) y;
+                if (tx.getSymbol().getType() != ty.getSymbol().getType()
+                        || !normalize(tx.getText()).equals(normalize(ty.getText()))) {
+                    return false;
+                }
+                continue;
+            }
+            for (int i = x.getChildCount() - 1; i >= 0; i--) {
+                left.push(x.getChild(i));
+                right.push(y.getChild(i));
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String text) {
+        if (text.startsWith("'") || text.startsWith("\"")) {
+            return text;
+        }
+        if (text.length() >= 2 && text.startsWith("`") && text.endsWith("`")) {
+            text = text.substring(1, text.length() - 1);
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads the bits of the running hash
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
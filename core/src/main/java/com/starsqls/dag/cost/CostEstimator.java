@@ -0,0 +1,443 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.dag.cost;
+
+import com.starsqls.dag.model.DagEdge;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.DagNode;
+import com.starsqls.dag.model.EdgeType;
+import com.starsqls.dag.model.NodeType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heuristic cardinality and cost estimation over a {@link DagGraph} produced by
+ * {@link com.starsqls.dag.SQLDagAnalyzer}.
+ * <p>
+ * Nodes are visited in topological order, row counts start from the table statistics at the SCAN nodes and are
+ * propagated along the DATAFLOW and CTE_REFERENCE edges with the usual textbook selectivities. The results are
+ * written to {@link DagNode#getData()}:
+ * <ul>
+ *     <li>{@code estimatedRows} / {@code estimatedBytes}: output of the node</li>
+ *     <li>{@code cost}: work done by the node itself, in rows processed</li>
+ *     <li>{@code cumulativeCost}: cost of the node and everything below it</li>
+ *     <li>{@code relativeCost}: share of the node in the total cost of the query, between 0 and 1</li>
+ *     <li>{@code statsMissing}: set on SCAN nodes whose table has no statistics</li>
+ * </ul>
+ * and every edge gets the {@code estimatedRows} / {@code estimatedBytes} of its source node.
+ * <p>
+ * The numbers are only meant to rank the subtrees of one query against each other, not to predict runtime.
+ * A CTE referenced twice is counted twice in the cumulative cost of the nodes above it.
+ */
+public class CostEstimator {
+    public static final String ESTIMATED_ROWS = "estimatedRows";
+    public static final String ESTIMATED_BYTES = "estimatedBytes";
+    public static final String COST = "cost";
+    public static final String CUMULATIVE_COST = "cumulativeCost";
+    public static final String RELATIVE_COST = "relativeCost";
+    public static final String STATS_MISSING = "statsMissing";
+
+    /**
+     * Used for tables without statistics
+     */
+    static final long DEFAULT_ROW_COUNT = 10_000;
+
+    static final double DEFAULT_ROW_BYTES = 100;
+
+    // default selectivities, used when the NDV of the column is unknown
+    static final double EQ_SELECTIVITY = 0.15;
+    static final double RANGE_SELECTIVITY = 1.0 / 3;
+    static final double BETWEEN_SELECTIVITY = 0.25;
+    static final double LIKE_SELECTIVITY = 0.25;
+    static final double IS_NULL_SELECTIVITY = 0.1;
+    static final double OTHER_SELECTIVITY = 0.25;
+
+    /**
+     * Output/input ratio of GROUP BY keys and DISTINCT without NDV
+     */
+    static final double GROUP_RATIO = 0.1;
+
+    private final StatisticsProvider statistics;
+
+    public CostEstimator(StatisticsProvider statistics) {
+        this.statistics = statistics == null ? StatisticsProvider.EMPTY : statistics;
+    }
+
+    /**
+     * Output of a node: row count, row width and the tables (by alias) the rows come from
+     */
+    private static class Estimate {
+        final double rows;
+        final double rowBytes;
+        final Map<String, TableStats> tables;
+
+        Estimate(double rows, double rowBytes, Map<String, TableStats> tables) {
+            this.rows = Math.max(rows, 0);
+            this.rowBytes = rowBytes;
+            this.tables = tables;
+        }
+    }
+
+    /**
+     * Annotate all nodes and edges of the graph
+     */
+    public void estimate(DagGraph graph) {
+        Map<String, DagNode> nodes = new LinkedHashMap<>();
+        Map<String, List<DagEdge>> incoming = new HashMap<>();
+        Map<String, Integer> pending = new HashMap<>();
+        Map<String, List<DagEdge>> outgoing = new HashMap<>();
+        for (DagNode node : graph.getNodes()) {
+            nodes.put(node.getId(), node);
+            pending.put(node.getId(), 0);
+        }
+        for (DagEdge edge : graph.getEdges()) {
+            // a duplicate is linked to its first occurrence, no rows flow along that edge
+            if (edge.getType() == EdgeType.DUPLICATE_OF
+                    || !nodes.containsKey(edge.getSource()) || !nodes.containsKey(edge.getTarget())) {
+                continue;
+            }
+            incoming.computeIfAbsent(edge.getTarget(), k -> new ArrayList<>()).add(edge);
+            outgoing.computeIfAbsent(edge.getSource(), k -> new ArrayList<>()).add(edge);
+            pending.merge(edge.getTarget(), 1, Integer::sum);
+        }
+
+        Map<String, Estimate> estimates = new HashMap<>();
+        Map<String, Double> cumulative = new HashMap<>();
+        Map<String, Double> costs = new LinkedHashMap<>();
+        Deque<DagNode> ready = new ArrayDeque<>();
+        for (DagNode node : nodes.values()) {
+            if (pending.get(node.getId()) == 0) {
+                ready.add(node);
+            }
+        }
+        while (!ready.isEmpty()) {
+            DagNode node = ready.poll();
+            List<DagEdge> in = incoming.getOrDefault(node.getId(), List.of());
+            List<Estimate> inputs = new ArrayList<>();
+            for (DagEdge edge : primaryInputs(node, in)) {
+                inputs.add(estimates.get(edge.getSource()));
+            }
+
+            Estimate estimate = estimateNode(node, inputs);
+            double cost = localCost(node, inputs, estimate);
+            double total = cost;
+            for (DagEdge edge : in) {
+                total += cumulative.getOrDefault(edge.getSource(), 0.0);
+            }
+            estimates.put(node.getId(), estimate);
+            costs.put(node.getId(), cost);
+            cumulative.put(node.getId(), total);
+
+            for (DagEdge edge : outgoing.getOrDefault(node.getId(), List.of())) {
+                if (pending.merge(edge.getTarget(), -1, Integer::sum) == 0) {
+                    ready.add(nodes.get(edge.getTarget()));
+                }
+            }
+        }
+
+        double totalCost = costs.values().stream().mapToDouble(Double::doubleValue).sum();
+        for (Map.Entry<String, Double> entry : costs.entrySet()) {
+            DagNode node = nodes.get(entry.getKey());
+            Estimate estimate = estimates.get(entry.getKey());
+            node.addData(ESTIMATED_ROWS, Math.round(estimate.rows))
+                .addData(ESTIMATED_BYTES, Math.round(estimate.rows * estimate.rowBytes))
+                .addData(COST, round(entry.getValue()))
+                .addData(CUMULATIVE_COST, round(cumulative.get(entry.getKey())))
+                .addData(RELATIVE_COST, totalCost > 0 ? round(entry.getValue() / totalCost) : 0.0);
+        }
+        for (DagEdge edge : graph.getEdges()) {
+            Estimate estimate = estimates.get(edge.getSource());
+            if (estimate != null && edge.getType() != EdgeType.DUPLICATE_OF) {
+                edge.getData().put(ESTIMATED_ROWS, Math.round(estimate.rows));
+                edge.getData().put(ESTIMATED_BYTES, Math.round(estimate.rows * estimate.rowBytes));
+            }
+        }
+    }
+
+    /**
+     * The edges whose rows flow into the node. Other incoming edges come from subqueries in expressions,
+     * they add to the cost but not to the row count.
+     */
+    private List<DagEdge> primaryInputs(DagNode node, List<DagEdge> in) {
+        List<DagEdge> dataflow = new ArrayList<>();
+        for (DagEdge edge : in) {
+            if (node.getType() == NodeType.SCAN ? edge.getType() == EdgeType.CTE_REFERENCE
+                    : edge.getType() == EdgeType.DATAFLOW) {
+                dataflow.add(edge);
+            }
+        }
+        return switch (node.getType()) {
+            case UNION, RESULT -> dataflow;
+            case JOIN -> dataflow.subList(0, Math.min(2, dataflow.size()));
+            default -> dataflow.subList(0, Math.min(1, dataflow.size()));
+        };
+    }
+
+    private Estimate estimateNode(DagNode node, List<Estimate> inputs) {
+        Estimate input = inputs.isEmpty() ? new Estimate(1, DEFAULT_ROW_BYTES, Map.of()) : inputs.get(0);
+        Map<String, Object> data = node.getData();
+        switch (node.getType()) {
+            case SCAN:
+                return estimateScan(node, inputs);
+            case FILTER:
+                return new Estimate(input.rows * filterSelectivity(data.get("predicates"), input),
+                        input.rowBytes, input.tables);
+            case JOIN:
+                return estimateJoin(data, input, inputs.size() > 1 ? inputs.get(1) : input);
+            case AGGREGATE:
+                return new Estimate(groupRows(data.get("groupBy"), input), input.rowBytes, input.tables);
+            case DISTINCT:
+                return new Estimate(Math.max(1, input.rows * GROUP_RATIO), input.rowBytes, input.tables);
+            case LIMIT:
+            case TOP_N:
+                Object limit = data.get("limit");
+                double rows = limit instanceof Number n ? Math.min(input.rows, n.doubleValue()) : input.rows;
+                return new Estimate(rows, input.rowBytes, input.tables);
+            case UNION:
+            case RESULT:
+                return estimateUnion(String.valueOf(data.getOrDefault("setType", "UNION")), inputs);
+            default:
+                return input;
+        }
+    }
+
+    private Estimate estimateScan(DagNode node, List<Estimate> inputs) {
+        String table = String.valueOf(node.getData().getOrDefault("table", ""));
+        String alias = String.valueOf(node.getData().getOrDefault("alias", table)).toLowerCase();
+        if (!inputs.isEmpty()) {
+            // CTE reference, the rows are the output of the CTE
+            return inputs.get(0);
+        }
+        TableStats stats = statistics.getTableStats(table);
+        if (stats == null) {
+            node.addData(STATS_MISSING, true);
+            return new Estimate(DEFAULT_ROW_COUNT, DEFAULT_ROW_BYTES, Map.of());
+        }
+        Map<String, TableStats> tables = new HashMap<>();
+        tables.put(alias, stats);
+        tables.put(shortName(table.toLowerCase()), stats);
+        double rowBytes = stats.getAvgRowBytes() > 0 ? stats.getAvgRowBytes() : DEFAULT_ROW_BYTES;
+        return new Estimate(stats.getRowCount(), rowBytes, tables);
+    }
+
+    private double filterSelectivity(Object predicates, Estimate input) {
+        if (!(predicates instanceof List<?> list)) {
+            return OTHER_SELECTIVITY;
+        }
+        double selectivity = 1;
+        for (Object item : list) {
+            if (item instanceof Map<?, ?> predicate) {
+                Object column = predicate.get("column");
+                long ndv = column == null ? -1 : ndv(String.valueOf(column), input);
+                selectivity *= predicateSelectivity(String.valueOf(predicate.get("op")), ndv, predicate.get("values"));
+            }
+        }
+        return selectivity;
+    }
+
+    private double predicateSelectivity(String op, long ndv, Object values) {
+        double eq = ndv > 0 ? 1.0 / ndv : EQ_SELECTIVITY;
+        switch (op) {
+            case "=":
+            case "<=>":
+                return eq;
+            case "!=":
+            case "<>":
+                return 1 - eq;
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return RANGE_SELECTIVITY;
+            case "BETWEEN":
+                return BETWEEN_SELECTIVITY;
+            case "NOT BETWEEN":
+                return 1 - BETWEEN_SELECTIVITY;
+            case "IN":
+                return Math.min(1, eq * (values instanceof Number n ? n.doubleValue() : 1));
+            case "NOT IN":
+                return 1 - Math.min(1, eq * (values instanceof Number n ? n.doubleValue() : 1));
+            case "LIKE":
+                return LIKE_SELECTIVITY;
+            case "NOT LIKE":
+                return 1 - LIKE_SELECTIVITY;
+            case "IS NULL":
+                return IS_NULL_SELECTIVITY;
+            case "IS NOT NULL":
+                return 1 - IS_NULL_SELECTIVITY;
+            default:
+                return OTHER_SELECTIVITY;
+        }
+    }
+
+    private Estimate estimateJoin(Map<String, Object> data, Estimate left, Estimate right) {
+        String joinType = String.valueOf(data.getOrDefault("joinType", "INNER")).toUpperCase();
+        Map<String, TableStats> tables = new HashMap<>(right.tables);
+        tables.putAll(left.tables);
+        double cross = left.rows * right.rows;
+        if (joinType.contains("CROSS")) {
+            return new Estimate(cross, left.rowBytes + right.rowBytes, tables);
+        }
+
+        double inner;
+        Object keys = data.get("equiKeys");
+        if (keys instanceof List<?> list && !list.isEmpty()) {
+            inner = cross;
+            boolean first = true;
+            for (Object key : list) {
+                if (!(key instanceof List<?> pair) || pair.size() != 2) {
+                    continue;
+                }
+                long ndv = Math.max(ndv(String.valueOf(pair.get(0)), left, right),
+                        ndv(String.valueOf(pair.get(1)), left, right));
+                if (ndv > 0) {
+                    inner /= ndv;
+                } else if (first) {
+                    // no NDV, assume a foreign key join: the bigger side survives
+                    inner /= Math.max(1, Math.min(left.rows, right.rows));
+                }
+                first = false;
+            }
+        } else {
+            inner = cross * OTHER_SELECTIVITY;
+        }
+
+        if (joinType.contains("SEMI") || joinType.contains("ANTI")) {
+            boolean rightSide = joinType.startsWith("RIGHT");
+            Estimate kept = rightSide ? right : left;
+            double semi = Math.min(kept.rows, inner);
+            double rows = joinType.contains("SEMI") ? semi : Math.max(1, kept.rows - semi);
+            return new Estimate(rows, kept.rowBytes, kept.tables);
+        }
+        double rows = inner;
+        if (joinType.startsWith("LEFT")) {
+            rows = Math.max(inner, left.rows);
+        } else if (joinType.startsWith("RIGHT")) {
+            rows = Math.max(inner, right.rows);
+        } else if (joinType.startsWith("FULL")) {
+            rows = Math.max(inner, Math.max(left.rows, right.rows));
+        }
+        return new Estimate(rows, left.rowBytes + right.rowBytes, tables);
+    }
+
+    private double groupRows(Object groupBy, Estimate input) {
+        if (!(groupBy instanceof List<?> keys) || keys.isEmpty()) {
+            return Math.max(1, input.rows * GROUP_RATIO);
+        }
+        double groups = 1;
+        for (Object key : keys) {
+            long ndv = ndv(String.valueOf(key), input);
+            groups *= ndv > 0 ? ndv : Math.max(1, input.rows * GROUP_RATIO);
+            if (groups >= input.rows) {
+                break;
+            }
+        }
+        return Math.max(1, Math.min(groups, input.rows));
+    }
+
+    private Estimate estimateUnion(String setType, List<Estimate> inputs) {
+        if (inputs.isEmpty()) {
+            return new Estimate(0, DEFAULT_ROW_BYTES, Map.of());
+        }
+        double rows = 0;
+        double rowBytes = 0;
+        String type = setType.toUpperCase();
+        for (int i = 0; i < inputs.size(); i++) {
+            Estimate input = inputs.get(i);
+            if (type.startsWith("INTERSECT")) {
+                rows = i == 0 ? input.rows : Math.min(rows, input.rows);
+            } else if (type.startsWith("EXCEPT") || type.startsWith("MINUS")) {
+                rows = i == 0 ? input.rows : rows;
+            } else {
+                rows += input.rows;
+            }
+            rowBytes = Math.max(rowBytes, input.rowBytes);
+        }
+        return new Estimate(rows, rowBytes, Map.of());
+    }
+
+    private double localCost(DagNode node, List<Estimate> inputs, Estimate output) {
+        double in = inputs.stream().mapToDouble(e -> e.rows).sum();
+        switch (node.getType()) {
+            case SCAN:
+                // full table read, weighted by row width; a CTE reference only reads the materialized rows
+                return inputs.isEmpty() ? output.rows * Math.max(1, output.rowBytes / DEFAULT_ROW_BYTES) : output.rows;
+            case JOIN:
+                if (String.valueOf(node.getData().get("joinType")).contains("CROSS")) {
+                    return output.rows;
+                }
+                // hash join: build the right side, probe with the left side, emit the output
+                return in + output.rows;
+            case AGGREGATE:
+                return in + output.rows;
+            case SORT:
+            case WINDOW:
+                return in * log2(in);
+            case TOP_N:
+                return in * log2(output.rows);
+            case RESULT:
+                return 0;
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * NDV of a possibly qualified column, looked up in the tables feeding the node; -1 if unknown
+     */
+    private long ndv(String column, Estimate... inputs) {
+        String name = column.toLowerCase();
+        String qualifier = null;
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            qualifier = shortName(name.substring(0, dot));
+            name = name.substring(dot + 1);
+        }
+        for (Estimate input : inputs) {
+            if (qualifier != null) {
+                TableStats stats = input.tables.get(qualifier);
+                long ndv = stats == null ? -1 : stats.getNdv(name);
+                if (ndv > 0) {
+                    return (long) Math.min(ndv, Math.max(1, input.rows));
+                }
+                continue;
+            }
+            for (TableStats stats : input.tables.values()) {
+                long ndv = stats.getNdv(name);
+                if (ndv > 0) {
+                    return (long) Math.min(ndv, Math.max(1, input.rows));
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String shortName(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(dot + 1);
+    }
+
+    private static double log2(double n) {
+        return n <= 2 ? 1 : Math.log(n) / Math.log(2);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10000) / 10000.0;
+    }
+}
@@ -0,0 +1,138 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.dag.cost;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics loaded from a local file, either JSON or CSV.
+ * <p>
+ * JSON is an object keyed by table name:
+ * <pre>
+ * { "db.orders": { "rowCount": 1000000, "avgRowBytes": 120, "ndv": { "user_id": 50000 },
+ *                 "columnCount": 80, "partitionColumns": ["dt"] } }
+ * </pre>
+ * CSV has the header {@code table,column,row_count,avg_row_bytes,ndv[,partition]}, a row with an empty column
+ * holds the table level numbers and every other row the NDV of one column, {@code partition} is "true" for
+ * partition columns. The column count of a CSV table is the number of its column rows.
+ * <p>
+ * Table names are matched case-insensitively, a qualified name falls back to the bare table name.
+ */
+public class FileStatisticsProvider implements StatisticsProvider {
+    private static final Gson GSON = new Gson();
+
+    private final Map<String, TableStats> tables = new HashMap<>();
+
+    public FileStatisticsProvider(Map<String, TableStats> tables) {
+        tables.forEach(this::put);
+    }
+
+    public static FileStatisticsProvider load(Path file) throws IOException {
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+            return fromCsv(new StringReader(content));
+        }
+        return fromJson(content);
+    }
+
+    public static FileStatisticsProvider fromJson(String json) {
+        try {
+            Map<String, TableStats> tables = GSON.fromJson(json, new TypeToken<Map<String, TableStats>>() {}.getType());
+            return new FileStatisticsProvider(tables == null ? Map.of() : tables);
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("Invalid statistics JSON: " + e.getMessage(), e);
+        }
+    }
+
+    public static FileStatisticsProvider fromCsv(Reader reader) throws IOException {
+        Map<String, TableStats> tables = new HashMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line = lines.readLine();
+        int lineNo = 1;
+        if (line == null || !line.trim().toLowerCase().startsWith("table,")) {
+            throw new IllegalArgumentException("Statistics CSV must start with the header "
+                    + "table,column,row_count,avg_row_bytes,ndv");
+        }
+        while ((line = lines.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length < 5) {
+                throw new IllegalArgumentException("Line " + lineNo + ": expected 5 fields, got " + fields.length);
+            }
+            try {
+                TableStats stats = tables.computeIfAbsent(fields[0].trim(), k -> new TableStats());
+                String column = fields[1].trim();
+                if (column.isEmpty()) {
+                    stats.setRowCount(parseLong(fields[2]));
+                    stats.setAvgRowBytes(fields[3].isBlank() ? 0 : Double.parseDouble(fields[3].trim()));
+                } else {
+                    if (!fields[4].isBlank()) {
+                        stats.addNdv(column, parseLong(fields[4]));
+                    }
+                    stats.setColumnCount(stats.getColumnCount() + 1);
+                    if (fields.length > 5 && Boolean.parseBoolean(fields[5].trim())) {
+                        stats.getPartitionColumns().add(column.toLowerCase());
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + lineNo + ": " + e.getMessage(), e);
+            }
+        }
+        return new FileStatisticsProvider(tables);
+    }
+
+    private static long parseLong(String field) {
+        return field.isBlank() ? 0 : Long.parseLong(field.trim());
+    }
+
+    private void put(String table, TableStats stats) {
+        Map<String, Long> ndv = new HashMap<>();
+        if (stats.getNdv() != null) {
+            stats.getNdv().forEach((column, value) -> ndv.put(column.toLowerCase(), value));
+        }
+        if (stats.getPartitionColumns() == null) {
+            stats.setPartitionColumns(new ArrayList<>());
+        }
+        tables.put(normalize(table), stats.setNdv(ndv));
+    }
+
+    @Override
+    public TableStats getTableStats(String table) {
+        String name = normalize(table);
+        TableStats stats = tables.get(name);
+        if (stats == null && name.indexOf('.') >= 0) {
+            stats = tables.get(name.substring(name.lastIndexOf('.') + 1));
+        }
+        return stats;
+    }
+
+    private static String normalize(String table) {
+        return table.replace("`", "").trim().toLowerCase();
+    }
+}
@@ -0,0 +1,32 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.dag.cost;
+
+/**
+ * Source of table statistics for {@link CostEstimator}.
+ */
+public interface StatisticsProvider {
+
+    /**
+     * A provider which knows nothing, every table falls back to the estimator defaults
+     */
+    StatisticsProvider EMPTY = table -> null;
+
+    /**
+     * Statistics of the table
+     *
+     * @param table table name as written in the SQL, possibly qualified with the database
+     * @return statistics, or null if the table is unknown
+     */
+    TableStats getTableStats(String table);
+}
@@ -0,0 +1,133 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.dag.cost;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of a single table, as far as they are known.
+ * Column names are lower case, without the table qualifier.
+ */
+public class TableStats {
+    /**
+     * Number of rows in the table
+     */
+    private long rowCount;
+
+    /**
+     * Average row size in bytes, 0 if unknown
+     */
+    private double avgRowBytes;
+
+    /**
+     * Number of distinct values per column
+     */
+    private Map<String, Long> ndv;
+
+    /**
+     * Number of columns in the table, 0 if unknown
+     */
+    private int columnCount;
+
+    /**
+     * Partition columns of the table
+     */
+    private List<String> partitionColumns;
+
+    public TableStats() {
+        this.ndv = new HashMap<>();
+        this.partitionColumns = new ArrayList<>();
+    }
+
+    public TableStats(long rowCount, double avgRowBytes) {
+        this();
+        this.rowCount = rowCount;
+        this.avgRowBytes = avgRowBytes;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public TableStats setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+        return this;
+    }
+
+    public double getAvgRowBytes() {
+        return avgRowBytes;
+    }
+
+    public TableStats setAvgRowBytes(double avgRowBytes) {
+        this.avgRowBytes = avgRowBytes;
+        return this;
+    }
+
+    public Map<String, Long> getNdv() {
+        return ndv;
+    }
+
+    public TableStats setNdv(Map<String, Long> ndv) {
+        this.ndv = ndv;
+        return this;
+    }
+
+    public TableStats addNdv(String column, long value) {
+        this.ndv.put(column.toLowerCase(), value);
+        return this;
+    }
+
+    /**
+     * NDV of the column, or -1 if unknown
+     */
+    public long getNdv(String column) {
+        Long value = ndv == null ? null : ndv.get(column.toLowerCase());
+        return value == null ? -1 : value;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public TableStats setColumnCount(int columnCount) {
+        this.columnCount = columnCount;
+        return this;
+    }
+
+    public List<String> getPartitionColumns() {
+        return partitionColumns;
+    }
+
+    public TableStats setPartitionColumns(List<String> partitionColumns) {
+        this.partitionColumns = partitionColumns;
+        return this;
+    }
+
+    public boolean isPartitionColumn(String column) {
+        return partitionColumns != null && partitionColumns.stream().anyMatch(c -> c.equalsIgnoreCase(column));
+    }
+
+    @Override
+    public String toString() {
+        return "TableStats{" +
+                "rowCount=" + rowCount +
+                ", avgRowBytes=" + avgRowBytes +
+                ", ndv=" + ndv +
+                ", columnCount=" + columnCount +
+                ", partitionColumns=" + partitionColumns +
+                '}';
+    }
+}
@@ -0,0 +1,86 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.dag.layout;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Node coordinates computed by {@link LayeredLayout}. The origin is the top left corner of the drawing,
+ * y grows downwards.
+ */
+public class DagLayout {
+    /**
+     * Positions by node id, in the order of the graph nodes
+     */
+    private final Map<String, NodePosition> positions;
+
+    private final double width;
+
+    private final double height;
+
+    /**
+     * Number of ranks (layers)
+     */
+    private final int ranks;
+
+    /**
+     * Edge crossings left after the crossing reduction
+     */
+    private final int crossings;
+
+    public DagLayout(Map<String, NodePosition> positions, double width, double height, int ranks, int crossings) {
+        this.positions = Collections.unmodifiableMap(new LinkedHashMap<>(positions));
+        this.width = width;
+        this.height = height;
+        this.ranks = ranks;
+        this.crossings = crossings;
+    }
+
+    public Map<String, NodePosition> getPositions() {
+        return positions;
+    }
+
+    public NodePosition getPosition(String nodeId) {
+        return positions.get(nodeId);
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public int getRanks() {
+        return ranks;
+    }
+
+    public int getCrossings() {
+        return crossings;
+    }
+
+    @Override
+    public String toString() {
+        return "DagLayout{" +
+                "nodes=" + positions.size() +
+                ", width=" + width +
+                ", height=" + height +
+                ", ranks=" + ranks +
+                ", crossings=" + crossings +
+                '}';
+    }
+}
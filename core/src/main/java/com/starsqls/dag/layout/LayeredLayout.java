@@ -0,0 +1,567 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.dag.layout;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.starsqls.dag.model.DagEdge;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.DagNode;
+import com.starsqls.dag.model.EdgeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layered (Sugiyama style) layout of a {@link DagGraph}, drawn bottom to top like the web visualizer: scans at
+ * the bottom, the result on top.
+ * <ol>
+ *   <li>Cycle removal: edges closing a cycle are reversed. DUPLICATE_OF edges are ignored, they carry no data
+ *       and would pull a duplicate next to its first occurrence</li>
+ *   <li>Ranking: longest path from the sources, then every source moves up right below its lowest consumer</li>
+ *   <li>Edges spanning several ranks are split by a dummy node per rank</li>
+ *   <li>Crossing reduction: alternating upward and downward barycenter sweeps, the order with the fewest
+ *       crossings is kept</li>
+ *   <li>Coordinate assignment: nodes are pulled towards the mean x of their neighbors, keeping their order and
+ *       the minimum separation</li>
+ * </ol>
+ * Node sizes are estimated from the label and detail lines with the font metrics of the visualizer. The layout
+ * keeps no state between graphs, a configured instance can be shared by threads.
+ */
+public class LayeredLayout {
+    private double nodeSep = 50;
+
+    private double rankSep = 60;
+
+    /**
+     * Width of a character and height of a line of the node label (17px monospace)
+     */
+    private double charWidth = 10.2;
+
+    private double lineHeight = 20.4;
+
+    private double padding = 15;
+
+    /**
+     * Longer lines are wrapped
+     */
+    private double maxTextWidth = 200;
+
+    private int sweeps = 12;
+
+    private int placementRounds = 4;
+
+    public LayeredLayout setNodeSep(double nodeSep) {
+        this.nodeSep = nodeSep;
+        return this;
+    }
+
+    public LayeredLayout setRankSep(double rankSep) {
+        this.rankSep = rankSep;
+        return this;
+    }
+
+    public LayeredLayout setCharWidth(double charWidth) {
+        this.charWidth = charWidth;
+        return this;
+    }
+
+    public LayeredLayout setLineHeight(double lineHeight) {
+        this.lineHeight = lineHeight;
+        return this;
+    }
+
+    public LayeredLayout setPadding(double padding) {
+        this.padding = padding;
+        return this;
+    }
+
+    public LayeredLayout setMaxTextWidth(double maxTextWidth) {
+        this.maxTextWidth = maxTextWidth;
+        return this;
+    }
+
+    public LayeredLayout setSweeps(int sweeps) {
+        this.sweeps = sweeps;
+        return this;
+    }
+
+    public LayeredLayout setPlacementRounds(int placementRounds) {
+        this.placementRounds = placementRounds;
+        return this;
+    }
+
+    /**
+     * Identifies the input of the layout: node ids and texts, edges. Graphs with the same fingerprint get the same
+     * layout from the same configuration, so it can be used as a cache key.
+     */
+    public static String fingerprint(DagGraph graph) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(graph.getNodes().size());
+        for (DagNode node : graph.getNodes()) {
+            putString(hasher, node.getId());
+            putString(hasher, node.getLabel());
+            List<String> details = node.getDetails() == null ? List.of() : node.getDetails();
+            hasher.putInt(details.size());
+            details.forEach(detail -> putString(hasher, detail));
+        }
+        hasher.putInt(graph.getEdges().size());
+        for (DagEdge edge : graph.getEdges()) {
+            putString(hasher, edge.getSource());
+            putString(hasher, edge.getTarget());
+            putString(hasher, edge.getType() == null ? null : edge.getType().name());
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    public DagLayout layout(DagGraph graph) {
+        List<DagNode> nodes = graph.getNodes();
+        int n = nodes.size();
+        if (n == 0) {
+            return new DagLayout(Map.of(), 0, 0, 0, 0);
+        }
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            index.put(nodes.get(i).getId(), i);
+        }
+
+        List<int[]> edges = new ArrayList<>();
+        for (DagEdge edge : graph.getEdges()) {
+            Integer source = index.get(edge.getSource());
+            Integer target = index.get(edge.getTarget());
+            if (edge.getType() != EdgeType.DUPLICATE_OF && source != null && target != null
+                    && !source.equals(target)) {
+                edges.add(new int[] {source, target});
+            }
+        }
+        removeCycles(n, edges);
+        int[] nodeRanks = rank(n, edges);
+
+        Layers layers = new Layers(n, nodeRanks);
+        for (int[] edge : edges) {
+            layers.connect(edge[0], edge[1]);
+        }
+        int crossings = reduceCrossings(layers);
+
+        double[] width = new double[layers.size()];
+        double[] height = new double[layers.size()];
+        for (int i = 0; i < n; i++) {
+            estimateSize(nodes.get(i), width, height, i);
+        }
+        double[] x = assignX(layers, width);
+        double[] y = new double[layers.size()];
+        double totalHeight = assignY(layers, height, y);
+
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        for (int v = 0; v < layers.size(); v++) {
+            minX = Math.min(minX, x[v] - width[v] / 2);
+            maxX = Math.max(maxX, x[v] + width[v] / 2);
+        }
+        Map<String, NodePosition> positions = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            positions.put(nodes.get(i).getId(), new NodePosition(x[i] - minX, y[i], width[i], height[i]));
+        }
+        return new DagLayout(positions, maxX - minX, totalHeight, layers.ranks.size(), crossings);
+    }
+
+    private void estimateSize(DagNode node, double[] width, double[] height, int v) {
+        List<String> lines = new ArrayList<>();
+        lines.add(node.getLabel() == null ? "" : node.getLabel());
+        if (node.getDetails() != null) {
+            lines.addAll(node.getDetails());
+        }
+        double textWidth = 0;
+        int lineCount = 0;
+        for (String line : lines) {
+            double lineWidth = line.length() * charWidth;
+            lineCount += Math.max(1, (int) Math.ceil(lineWidth / maxTextWidth));
+            textWidth = Math.max(textWidth, Math.min(lineWidth, maxTextWidth));
+        }
+        width[v] = textWidth + 2 * padding;
+        height[v] = lineCount * lineHeight + 2 * padding;
+    }
+
+    /**
+     * Reverse the edges closing a cycle, found by an iterative depth first search
+     */
+    private static void removeCycles(int n, List<int[]> edges) {
+        List<List<int[]>> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(new ArrayList<>());
+        }
+        for (int[] edge : edges) {
+            out.get(edge[0]).add(edge);
+        }
+        // 0: not visited, 1: on the stack, 2: done
+        int[] state = new int[n];
+        int[] next = new int[n];
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int root = 0; root < n; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+            state[root] = 1;
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                int u = stack.peek();
+                if (next[u] == out.get(u).size()) {
+                    state[u] = 2;
+                    stack.pop();
+                    continue;
+                }
+                int[] edge = out.get(u).get(next[u]++);
+                int v = edge[1];
+                if (state[v] == 1) {
+                    edge[0] = v;
+                    edge[1] = u;
+                } else if (state[v] == 0) {
+                    state[v] = 1;
+                    stack.push(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Longest path ranking of an acyclic graph, sources then moved up below their lowest consumer
+     */
+    private static int[] rank(int n, List<int[]> edges) {
+        List<List<Integer>> successors = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            successors.add(new ArrayList<>());
+        }
+        int[] inDegree = new int[n];
+        for (int[] edge : edges) {
+            successors.get(edge[0]).add(edge[1]);
+            inDegree[edge[1]]++;
+        }
+        int[] remaining = inDegree.clone();
+        int[] order = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] == 0) {
+                order[tail++] = i;
+            }
+        }
+        int[] rank = new int[n];
+        while (head < tail) {
+            int u = order[head++];
+            for (int v : successors.get(u)) {
+                rank[v] = Math.max(rank[v], rank[u] + 1);
+                if (--remaining[v] == 0) {
+                    order[tail++] = v;
+                }
+            }
+        }
+
+        for (int i = n - 1; i >= 0; i--) {
+            int v = order[i];
+            if (inDegree[v] == 0 && !successors.get(v).isEmpty()) {
+                int lowest = Integer.MAX_VALUE;
+                for (int s : successors.get(v)) {
+                    lowest = Math.min(lowest, rank[s]);
+                }
+                rank[v] = lowest - 1;
+            }
+        }
+        int min = Arrays.stream(rank).min().orElse(0);
+        for (int i = 0; i < n; i++) {
+            rank[i] -= min;
+        }
+        return rank;
+    }
+
+    /**
+     * Order the nodes of every rank by the barycenter of their neighbors, alternating the direction
+     */
+    private int reduceCrossings(Layers layers) {
+        int best = layers.crossings();
+        List<List<Integer>> bestOrder = layers.snapshot();
+        int top = layers.ranks.size() - 1;
+        for (int sweep = 0; sweep < sweeps && best > 0; sweep++) {
+            if (sweep % 2 == 0) {
+                for (int r = 1; r <= top; r++) {
+                    layers.reorder(r, layers.down);
+                }
+            } else {
+                for (int r = top - 1; r >= 0; r--) {
+                    layers.reorder(r, layers.up);
+                }
+            }
+            int crossings = layers.crossings();
+            if (crossings < best) {
+                best = crossings;
+                bestOrder = layers.snapshot();
+            }
+        }
+        layers.restore(bestOrder);
+        return best;
+    }
+
+    private double separation(Layers layers, double[] width, int a, int b) {
+        double gap = layers.isDummy(a) || layers.isDummy(b) ? nodeSep / 2 : nodeSep;
+        return (width[a] + width[b]) / 2 + gap;
+    }
+
+    private double[] assignX(Layers layers, double[] width) {
+        double[] x = new double[layers.size()];
+        for (List<Integer> rank : layers.ranks) {
+            double current = 0;
+            for (int i = 0; i < rank.size(); i++) {
+                if (i > 0) {
+                    current += separation(layers, width, rank.get(i - 1), rank.get(i));
+                }
+                x[rank.get(i)] = current;
+            }
+        }
+        int top = layers.ranks.size() - 1;
+        for (int round = 0; round < placementRounds; round++) {
+            for (int r = 1; r <= top; r++) {
+                place(layers, layers.ranks.get(r), layers.down, width, x);
+            }
+            for (int r = top - 1; r >= 0; r--) {
+                place(layers, layers.ranks.get(r), layers.up, width, x);
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Move the nodes of a rank to the mean x of their neighbors. The placement is the average of a left and a
+     * right biased one, both keep the order and the separation, so their average does too.
+     */
+    private void place(Layers layers, List<Integer> rank, List<List<Integer>> neighbors, double[] width,
+                       double[] x) {
+        int k = rank.size();
+        double[] desired = new double[k];
+        for (int i = 0; i < k; i++) {
+            int v = rank.get(i);
+            List<Integer> adjacent = neighbors.get(v);
+            if (adjacent.isEmpty()) {
+                desired[i] = x[v];
+            } else {
+                double sum = 0;
+                for (int u : adjacent) {
+                    sum += x[u];
+                }
+                desired[i] = sum / adjacent.size();
+            }
+        }
+        double[] left = new double[k];
+        double[] right = new double[k];
+        for (int i = 0; i < k; i++) {
+            left[i] = i == 0 ? desired[i]
+                    : Math.max(desired[i], left[i - 1] + separation(layers, width, rank.get(i - 1), rank.get(i)));
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            right[i] = i == k - 1 ? desired[i]
+                    : Math.min(desired[i], right[i + 1] - separation(layers, width, rank.get(i), rank.get(i + 1)));
+        }
+        for (int i = 0; i < k; i++) {
+            x[rank.get(i)] = (left[i] + right[i]) / 2;
+        }
+    }
+
+    /**
+     * Stack the ranks from the top (highest rank) down, returns the total height
+     */
+    private double assignY(Layers layers, double[] height, double[] y) {
+        double top = 0;
+        for (int r = layers.ranks.size() - 1; r >= 0; r--) {
+            double rankHeight = 0;
+            for (int v : layers.ranks.get(r)) {
+                rankHeight = Math.max(rankHeight, height[v]);
+            }
+            for (int v : layers.ranks.get(r)) {
+                y[v] = top + rankHeight / 2;
+            }
+            top += rankHeight + rankSep;
+        }
+        return top - rankSep;
+    }
+
+    /**
+     * Nodes by rank, with dummy nodes (ids from the node count up) on the ranks crossed by long edges.
+     * Every edge joins two adjacent ranks.
+     */
+    private static class Layers {
+        private final int realNodes;
+
+        private final List<List<Integer>> ranks = new ArrayList<>();
+
+        /**
+         * Neighbors on the rank above and below, by node
+         */
+        private final List<List<Integer>> up = new ArrayList<>();
+
+        private final List<List<Integer>> down = new ArrayList<>();
+
+        private final List<Integer> rankOf = new ArrayList<>();
+
+        /**
+         * Index of every node in its rank
+         */
+        private int[] position;
+
+        /**
+         * Sort keys of {@link #reorder}, by node, allocated once for all sweeps
+         */
+        private double[] key;
+
+        Layers(int n, int[] nodeRanks) {
+            this.realNodes = n;
+            for (int i = 0; i < n; i++) {
+                add(nodeRanks[i]);
+            }
+        }
+
+        private int add(int rank) {
+            while (ranks.size() <= rank) {
+                ranks.add(new ArrayList<>());
+            }
+            int v = rankOf.size();
+            ranks.get(rank).add(v);
+            rankOf.add(rank);
+            up.add(new ArrayList<>());
+            down.add(new ArrayList<>());
+            return v;
+        }
+
+        void connect(int source, int target) {
+            int previous = source;
+            for (int r = rankOf.get(source) + 1; r < rankOf.get(target); r++) {
+                int dummy = add(r);
+                link(previous, dummy);
+                previous = dummy;
+            }
+            link(previous, target);
+        }
+
+        private void link(int lower, int upper) {
+            up.get(lower).add(upper);
+            down.get(upper).add(lower);
+        }
+
+        int size() {
+            return rankOf.size();
+        }
+
+        boolean isDummy(int v) {
+            return v >= realNodes;
+        }
+
+        private void updatePositions() {
+            if (position == null) {
+                position = new int[size()];
+            }
+            for (List<Integer> rank : ranks) {
+                for (int i = 0; i < rank.size(); i++) {
+                    position[rank.get(i)] = i;
+                }
+            }
+        }
+
+        /**
+         * Stable sort of a rank by the mean position of the neighbors, nodes without neighbors keep their place
+         */
+        void reorder(int r, List<List<Integer>> neighbors) {
+            if (position == null) {
+                updatePositions();
+            }
+            if (key == null) {
+                key = new double[size()];
+            }
+            List<Integer> rank = ranks.get(r);
+            for (int v : rank) {
+                List<Integer> adjacent = neighbors.get(v);
+                if (adjacent.isEmpty()) {
+                    key[v] = position[v];
+                } else {
+                    double sum = 0;
+                    for (int u : adjacent) {
+                        sum += position[u];
+                    }
+                    key[v] = sum / adjacent.size();
+                }
+            }
+            rank.sort(Comparator.comparingDouble(v -> key[v]));
+            for (int i = 0; i < rank.size(); i++) {
+                position[rank.get(i)] = i;
+            }
+        }
+
+        /**
+         * Edge crossings between all adjacent ranks, counted as inversions with a Fenwick tree
+         */
+        int crossings() {
+            updatePositions();
+            int total = 0;
+            for (int r = 0; r + 1 < ranks.size(); r++) {
+                List<int[]> pairs = new ArrayList<>();
+                for (int v : ranks.get(r)) {
+                    for (int u : up.get(v)) {
+                        pairs.add(new int[] {position[v], position[u]});
+                    }
+                }
+                pairs.sort(Comparator.<int[]>comparingInt(p -> p[0]).thenComparingInt(p -> p[1]));
+                int[] tree = new int[ranks.get(r + 1).size() + 1];
+                for (int j = 0; j < pairs.size(); j++) {
+                    int upper = pairs.get(j)[1] + 1;
+                    int notGreater = 0;
+                    for (int i = upper; i > 0; i -= i & -i) {
+                        notGreater += tree[i];
+                    }
+                    total += j - notGreater;
+                    for (int i = upper; i < tree.length; i += i & -i) {
+                        tree[i]++;
+                    }
+                }
+            }
+            return total;
+        }
+
+        List<List<Integer>> snapshot() {
+            List<List<Integer>> copy = new ArrayList<>(ranks.size());
+            for (List<Integer> rank : ranks) {
+                copy.add(new ArrayList<>(rank));
+            }
+            return copy;
+        }
+
+        void restore(List<List<Integer>> order) {
+            for (int r = 0; r < ranks.size(); r++) {
+                ranks.set(r, new ArrayList<>(order.get(r)));
+            }
+            updatePositions();
+        }
+    }
+}
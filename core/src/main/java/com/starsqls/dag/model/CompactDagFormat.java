@@ -0,0 +1,255 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.dag.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, column oriented encoding of a {@link DagGraph} for the wire.
+ * <p>
+ * Every string (node ids, types, labels, details, SQL fragments, data keys) is stored once in a {@code strings}
+ * table and referenced by its index, -1 stands for null. Nodes and edges are parallel arrays, an edge refers to
+ * its source and target by node position instead of by id:
+ * <pre>
+ * { "version": 1,
+ *   "strings": ["0", "SCAN", "orders", ...],
+ *   "nodes": { "id": [0, ...], "type": [1, ...], "label": [2, ...], "details": [[3, 4], ...],
+ *              "sql": [5, ...], "data": [[6, 100, 7, "o"], ...] },
+ *   "edges": { "source": [0, ...], "target": [1, ...], "type": [8, ...], "label": [-1, ...],
+ *              "style": [9, ...], "rows": [null, ...], "data": [null, ...] } }
+ * </pre>
+ * Data maps are flattened to {@code [keyIndex, value, keyIndex, value, ...]} with the values as-is, null when
+ * empty. Edge ids are not sent, {@link #decode} numbers the edges {@code edge_0}, {@code edge_1}, ...
+ * <p>
+ * Only the keys of the data maps are interned, their values are passed through unchanged, including nested maps
+ * such as the cost estimates and the predicates. The encoded map holds plain numbers, strings, booleans, lists,
+ * arrays and those maps, so it serializes with any JSON or CBOR mapper.
+ */
+public final class CompactDagFormat {
+    public static final int VERSION = 1;
+
+    private CompactDagFormat() {
+    }
+
+    public static Map<String, Object> encode(DagGraph graph) {
+        Strings strings = new Strings();
+        List<DagNode> nodes = graph.getNodes();
+        Map<String, Integer> positions = new HashMap<>(nodes.size() * 2);
+
+        int[] nodeIds = new int[nodes.size()];
+        int[] nodeTypes = new int[nodes.size()];
+        int[] nodeLabels = new int[nodes.size()];
+        int[][] nodeDetails = new int[nodes.size()][];
+        int[] nodeSql = new int[nodes.size()];
+        Object[] nodeData = new Object[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            DagNode node = nodes.get(i);
+            positions.put(node.getId(), i);
+            nodeIds[i] = strings.index(node.getId());
+            nodeTypes[i] = strings.index(node.getType() == null ? null : node.getType().name());
+            nodeLabels[i] = strings.index(node.getLabel());
+            List<String> details = node.getDetails() == null ? List.of() : node.getDetails();
+            nodeDetails[i] = new int[details.size()];
+            for (int d = 0; d < details.size(); d++) {
+                nodeDetails[i][d] = strings.index(details.get(d));
+            }
+            nodeSql[i] = strings.index(node.getSqlFragment());
+            nodeData[i] = encodeData(node.getData(), strings);
+        }
+
+        List<DagEdge> edges = graph.getEdges();
+        int[] sources = new int[edges.size()];
+        int[] targets = new int[edges.size()];
+        int[] edgeTypes = new int[edges.size()];
+        int[] edgeLabels = new int[edges.size()];
+        int[] edgeStyles = new int[edges.size()];
+        Integer[] edgeRows = new Integer[edges.size()];
+        Object[] edgeData = new Object[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            DagEdge edge = edges.get(i);
+            sources[i] = position(positions, edge.getSource());
+            targets[i] = position(positions, edge.getTarget());
+            edgeTypes[i] = strings.index(edge.getType() == null ? null : edge.getType().name());
+            edgeLabels[i] = strings.index(edge.getLabel());
+            edgeStyles[i] = strings.index(edge.getStyle());
+            edgeRows[i] = edge.getRows();
+            edgeData[i] = encodeData(edge.getData(), strings);
+        }
+
+        Map<String, Object> nodeColumns = new LinkedHashMap<>();
+        nodeColumns.put("id", nodeIds);
+        nodeColumns.put("type", nodeTypes);
+        nodeColumns.put("label", nodeLabels);
+        nodeColumns.put("details", nodeDetails);
+        nodeColumns.put("sql", nodeSql);
+        nodeColumns.put("data", nodeData);
+
+        Map<String, Object> edgeColumns = new LinkedHashMap<>();
+        edgeColumns.put("source", sources);
+        edgeColumns.put("target", targets);
+        edgeColumns.put("type", edgeTypes);
+        edgeColumns.put("label", edgeLabels);
+        edgeColumns.put("style", edgeStyles);
+        edgeColumns.put("rows", edgeRows);
+        edgeColumns.put("data", edgeData);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", VERSION);
+        result.put("strings", strings.values);
+        result.put("nodes", nodeColumns);
+        result.put("edges", edgeColumns);
+        return result;
+    }
+
+    /**
+     * Rebuild the graph from an encoded map, either the result of {@link #encode} or the same structure read back
+     * by a JSON parser (lists instead of arrays, any number type)
+     */
+    public static DagGraph decode(Map<String, ?> encoded) {
+        Object version = encoded.get("version");
+        if (!(version instanceof Number number) || number.intValue() != VERSION) {
+            throw new IllegalArgumentException("Unsupported compact DAG version: " + version);
+        }
+        List<String> strings = new ArrayList<>();
+        for (Object value : list(encoded.get("strings"))) {
+            strings.add((String) value);
+        }
+        Map<?, ?> nodeColumns = (Map<?, ?>) encoded.get("nodes");
+        Map<?, ?> edgeColumns = (Map<?, ?>) encoded.get("edges");
+
+        DagGraph graph = new DagGraph();
+        List<Object> ids = list(nodeColumns.get("id"));
+        List<Object> types = list(nodeColumns.get("type"));
+        List<Object> labels = list(nodeColumns.get("label"));
+        List<Object> details = list(nodeColumns.get("details"));
+        List<Object> sql = list(nodeColumns.get("sql"));
+        List<Object> data = list(nodeColumns.get("data"));
+        List<String> nodeIds = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            DagNode node = new DagNode(string(strings, ids.get(i)), nodeType(string(strings, types.get(i))),
+                    string(strings, labels.get(i)));
+            for (Object detail : list(details.get(i))) {
+                node.addDetail(string(strings, detail));
+            }
+            node.setSqlFragment(string(strings, sql.get(i)));
+            decodeData(data.get(i), strings, node.getData());
+            nodeIds.add(node.getId());
+            graph.getNodes().add(node);
+        }
+
+        List<Object> sources = list(edgeColumns.get("source"));
+        List<Object> targets = list(edgeColumns.get("target"));
+        List<Object> edgeTypes = list(edgeColumns.get("type"));
+        List<Object> edgeLabels = list(edgeColumns.get("label"));
+        List<Object> styles = list(edgeColumns.get("style"));
+        List<Object> rows = list(edgeColumns.get("rows"));
+        List<Object> edgeData = list(edgeColumns.get("data"));
+        for (int i = 0; i < sources.size(); i++) {
+            String type = string(strings, edgeTypes.get(i));
+            DagEdge edge = new DagEdge(nodeIds.get(index(sources.get(i))), nodeIds.get(index(targets.get(i))),
+                    type == null ? null : EdgeType.valueOf(type));
+            edge.setLabel(string(strings, edgeLabels.get(i)))
+                    .setStyle(string(strings, styles.get(i)))
+                    .setRows(rows.get(i) == null ? null : ((Number) rows.get(i)).intValue());
+            decodeData(edgeData.get(i), strings, edge.getData());
+            graph.addEdge(edge);
+        }
+        return graph;
+    }
+
+    private static int position(Map<String, Integer> positions, String nodeId) {
+        Integer position = positions.get(nodeId);
+        if (position == null) {
+            throw new IllegalArgumentException("Edge refers to unknown node: " + nodeId);
+        }
+        return position;
+    }
+
+    private static Object[] encodeData(Map<String, Object> data, Strings strings) {
+        if (data == null || data.isEmpty()) {
+            return null;
+        }
+        Object[] flat = new Object[data.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            flat[i++] = strings.index(entry.getKey());
+            flat[i++] = entry.getValue();
+        }
+        return flat;
+    }
+
+    private static void decodeData(Object flat, List<String> strings, Map<String, Object> data) {
+        if (flat == null) {
+            return;
+        }
+        List<Object> values = list(flat);
+        for (int i = 0; i + 1 < values.size(); i += 2) {
+            data.put(string(strings, values.get(i)), values.get(i + 1));
+        }
+    }
+
+    private static NodeType nodeType(String type) {
+        return type == null ? null : NodeType.valueOf(type);
+    }
+
+    private static String string(List<String> strings, Object index) {
+        int i = index(index);
+        return i < 0 ? null : strings.get(i);
+    }
+
+    private static int index(Object value) {
+        return ((Number) value).intValue();
+    }
+
+    private static List<Object> list(Object value) {
+        if (value == null) {
+            return List.of();
+        } else if (value instanceof List<?> list) {
+            return Collections.unmodifiableList(list);
+        } else if (value instanceof int[] ints) {
+            List<Object> result = new ArrayList<>(ints.length);
+            for (int i : ints) {
+                result.add(i);
+            }
+            return result;
+        } else if (value instanceof Object[] objects) {
+            return Arrays.asList(objects);
+        }
+        throw new IllegalArgumentException("Not an array: " + value);
+    }
+
+    /**
+     * Interned strings table, in order of first use
+     */
+    private static class Strings {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        int index(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return indexes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+    }
+}
@@ -12,8 +12,14 @@
 
 package com.starsqls.dag.model;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -203,52 +209,76 @@ public class DagGraph {
         StringBuilder sb = new StringBuilder();
         sb.append("=== DAG Tree Structure (Bottom-Up) ===\n");
         
-        List<DagNode> leaves = getLeafNodes();
+        // Index the edges once, the lookups below would be O(edges) each
+        Map<String, DagNode> nodeIndex = new HashMap<>();
+        Map<String, List<DagEdge>> incomingIndex = new HashMap<>();
+        Set<String> sources = new HashSet<>();
+        for (DagNode node : nodes) {
+            nodeIndex.putIfAbsent(node.getId(), node);
+        }
+        for (DagEdge edge : edges) {
+            incomingIndex.computeIfAbsent(edge.getTarget(), k -> new ArrayList<>()).add(edge);
+            sources.add(edge.getSource());
+        }
+        List<DagNode> leaves = nodes.stream()
+                .filter(node -> !sources.contains(node.getId()))
+                .collect(Collectors.toList());
         
         if (leaves.isEmpty()) {
             sb.append("No leaf nodes found (possible cycle or empty graph)\n");
             return sb.toString();
         }
         
-        leaves.forEach(leaf -> buildNodeTreeBottomUp(leaf, "", true, new java.util.HashSet<>(), sb));
+        leaves.forEach(leaf -> buildNodeTreeBottomUp(leaf, nodeIndex, incomingIndex, new HashSet<>(), sb));
         sb.append("\n");
         
         return sb.toString();
     }
     
     /**
-     * Recursively build node tree structure string from bottom to top (leaf to root)
+     * Build node tree structure string from bottom to top (leaf to root).
+     * Uses an explicit stack, a long chain of nodes (e.g. thousands of UNION ALL) would overflow a recursion.
      */
-    private void buildNodeTreeBottomUp(DagNode node, String prefix, boolean isLast, 
-                                       java.util.Set<String> visited, StringBuilder sb) {
-        if (visited.contains(node.getId())) {
-            sb.append(prefix).append(isLast ? "└── " : "├── ")
-              .append(node.getLabel()).append(" (").append(node.getId()).append(")")
-              .append(" (already visited)\n");
-            return;
-        }
-        
-        visited.add(node.getId());
-        
-        // Append current node with format: label (id)
-        sb.append(prefix).append(isLast ? "└── " : "├── ")
-          .append(node.getLabel()).append(" (").append(node.getId()).append(")\n");
-        
-        // Get parents (nodes connected by incoming edges)
-        List<DagEdge> incomingEdges = getIncomingEdges(node.getId());
-        
-        for (int i = 0; i < incomingEdges.size(); i++) {
-            DagEdge edge = incomingEdges.get(i);
-            DagNode parentNode = findNode(edge.getSource());
+    private void buildNodeTreeBottomUp(DagNode leaf, Map<String, DagNode> nodeIndex,
+                                       Map<String, List<DagEdge>> incomingIndex, Set<String> visited,
+                                       StringBuilder sb) {
+        Deque<TreeFrame> stack = new ArrayDeque<>();
+        stack.push(new TreeFrame(leaf, "", true));
+        while (!stack.isEmpty()) {
+            TreeFrame frame = stack.pop();
+            DagNode node = frame.node;
+            sb.append(frame.prefix).append(frame.isLast ? "└── " : "├── ")
+              .append(node.getLabel()).append(" (").append(node.getId()).append(")");
+            if (!visited.add(node.getId())) {
+                sb.append(" (already visited)\n");
+                continue;
+            }
+            sb.append("\n");
             
-            if (parentNode != null) {
-                boolean isLastParent = (i == incomingEdges.size() - 1);
-                String parentPrefix = prefix + (isLast ? "    " : "│   ");
-                buildNodeTreeBottomUp(parentNode, parentPrefix, isLastParent, visited, sb);
+            // Get parents (nodes connected by incoming edges), pushed in reverse to be printed in order
+            List<DagEdge> incomingEdges = incomingIndex.getOrDefault(node.getId(), List.of());
+            String parentPrefix = frame.prefix + (frame.isLast ? "    " : "│   ");
+            for (int i = incomingEdges.size() - 1; i >= 0; i--) {
+                DagNode parentNode = nodeIndex.get(incomingEdges.get(i).getSource());
+                if (parentNode != null) {
+                    stack.push(new TreeFrame(parentNode, parentPrefix, i == incomingEdges.size() - 1));
+                }
             }
         }
     }
     
+    private static class TreeFrame {
+        final DagNode node;
+        final String prefix;
+        final boolean isLast;
+        
+        TreeFrame(DagNode node, String prefix, boolean isLast) {
+            this.node = node;
+            this.prefix = prefix;
+            this.isLast = isLast;
+        }
+    }
+    
     @Override
     public String toString() {
         return getStats();
@@ -34,5 +34,10 @@ public enum EdgeType {
     /**
      * Dependency edge (generic)
      */
-    DEPENDENCY
+    DEPENDENCY,
+    
+    /**
+     * From a subquery or CTE to an earlier identical one (dashed line)
+     */
+    DUPLICATE_OF
 }
@@ -0,0 +1,123 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.time.Duration;
+
+/**
+ * Deadline and cancellation flag of a parse/format/analyze job.
+ * <p>
+ * The lexer, the parser and the visitors call {@link #tick()} for every token, rule or node, the flag and the
+ * deadline are only checked every {@link #CHECK_INTERVAL} ticks. A cancelled job stops with
+ * {@link OperationCancelledException} at the next check. The tick counter is not synchronized, a token shared by
+ * several threads is still checked, only the interval is less exact.
+ */
+public class CancellationToken {
+    /**
+     * Never cancelled, the default of the printers and the analyzer
+     */
+    public static final CancellationToken NONE = new CancellationToken(0, false);
+
+    public static final int CHECK_INTERVAL = 1024;
+
+    private final long deadlineNanos;
+
+    private final boolean hasDeadline;
+
+    private volatile boolean cancelled;
+
+    private int ticks;
+
+    private CancellationToken(long deadlineNanos, boolean hasDeadline) {
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+    }
+
+    /**
+     * A token which is only cancelled by {@link #cancel()}
+     */
+    public static CancellationToken create() {
+        return new CancellationToken(0, false);
+    }
+
+    /**
+     * A token which expires after the timeout, or earlier by {@link #cancel()}
+     */
+    public static CancellationToken withTimeout(Duration timeout) {
+        return new CancellationToken(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled || isExpired();
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * @throws OperationCancelledException if the token is cancelled or its deadline has passed
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new OperationCancelledException("Operation cancelled", false);
+        }
+        if (isExpired()) {
+            throw new OperationCancelledException("Operation timed out", true);
+        }
+    }
+
+    /**
+     * Count one unit of work, check the token every {@link #CHECK_INTERVAL} units
+     */
+    public void tick() {
+        if (this != NONE && ++ticks % CHECK_INTERVAL == 0) {
+            throwIfCancelled();
+        }
+    }
+
+    /**
+     * Parse listener ticking for every rule the parser enters
+     */
+    public ParseTreeListener parseListener() {
+        return new ParseTreeListener() {
+            @Override
+            public void enterEveryRule(ParserRuleContext ctx) {
+                tick();
+            }
+
+            @Override
+            public void visitTerminal(TerminalNode node) {
+            }
+
+            @Override
+            public void visitErrorNode(ErrorNode node) {
+            }
+
+            @Override
+            public void exitEveryRule(ParserRuleContext ctx) {
+            }
+        };
+    }
+}
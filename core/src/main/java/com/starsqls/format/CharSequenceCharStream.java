@@ -0,0 +1,150 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Char stream over a region of a {@link CharSequence}, without copying it into a code point buffer like
+ * {@link org.antlr.v4.runtime.CharStreams#fromString(String)} does.
+ * <p>
+ * {@link #LA(int)} returns code points, but indexes are char offsets relative to the region start: a supplementary
+ * character takes two indexes, so token start/stop indexes are offsets in the sequence (minus the region start)
+ * and need no mapping. The lexer only looks one code point ahead and seeks to indexes it got from {@link #index()},
+ * which are always on a code point boundary.
+ */
+public class CharSequenceCharStream implements CharStream {
+    private final CharSequence text;
+
+    private final int offset;
+
+    private final int size;
+
+    private final String sourceName;
+
+    private int index;
+
+    private int lookahead = -1;
+
+    public CharSequenceCharStream(CharSequence text, int offset, String sourceName) {
+        this.text = text;
+        this.offset = offset;
+        this.size = text.length() - offset;
+        this.sourceName = sourceName;
+    }
+
+    public CharSequenceCharStream(CharSequence text) {
+        this(text, 0, IntStream.UNKNOWN_SOURCE_NAME);
+    }
+
+    @Override
+    public void consume() {
+        if (index >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        index += Character.isHighSurrogate(text.charAt(offset + index)) && index + 1 < size
+                && Character.isLowSurrogate(text.charAt(offset + index + 1)) ? 2 : 1;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0;
+        }
+        int p = index;
+        if (i > 0) {
+            for (int k = 1; k < i && p < size; k++) {
+                p += Character.charCount(codePointAt(p));
+            }
+            lookahead = Math.max(lookahead, p);
+            return p < size ? codePointAt(p) : IntStream.EOF;
+        }
+        for (int k = 0; k > i; k--) {
+            if (p <= 0) {
+                return IntStream.EOF;
+            }
+            p--;
+            if (p > 0 && Character.isLowSurrogate(text.charAt(offset + p))
+                    && Character.isHighSurrogate(text.charAt(offset + p - 1))) {
+                p--;
+            }
+        }
+        return codePointAt(p);
+    }
+
+    private int codePointAt(int p) {
+        char c = text.charAt(offset + p);
+        if (Character.isHighSurrogate(c) && p + 1 < size) {
+            char low = text.charAt(offset + p + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(c, low);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Highest index {@link #LA(int)} looked at so far, {@link #size()} if it looked at EOF. A token ends before
+     * it, but where it ends can depend on all chars up to it, e.g. an unterminated comment start is only lexed as
+     * '/' after looking for its end up to EOF.
+     */
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        this.index = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.min(interval.a, size);
+        int stop = Math.min(interval.b, size - 1);
+        if (stop < start) {
+            return "";
+        }
+        return text.subSequence(offset + start, offset + stop + 1).toString();
+    }
+
+    @Override
+    public String toString() {
+        return text.subSequence(offset, offset + size).toString();
+    }
+}
@@ -0,0 +1,220 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.BitSet;
+
+/**
+ * Layout of the statements other than queries, as a table by grammar rule instead of a visitor method per rule.
+ * <p>
+ * {@link FormatPrinter} prints these statements token by token in one generic walk, which looks up the layout of
+ * each rule it enters: the clauses starting on a new line, and whether the elements of the rule's own parenthesized
+ * lists go one per line. Queries and expressions nested in a statement, like the {@code AS SELECT} of a CTAS or the
+ * WHERE of a DELETE, are left to their visitors. Adding a statement family is adding a row to the table.
+ */
+public class ClauseLayout {
+    static final int LEFT_PAREN = literalType("'('");
+
+    static final int RIGHT_PAREN = literalType("')'");
+
+    static final int LEFT_BRACKET = literalType("'['");
+
+    static final int RIGHT_BRACKET = literalType("']'");
+
+    static final int COMMA = literalType("','");
+
+    static final int DOT = literalType("'.'");
+
+    /**
+     * Layout of the rules without a row, no breaks
+     */
+    public static final ClauseLayout NONE = new ClauseLayout();
+
+    private static final ClauseLayout[] LAYOUTS = new ClauseLayout[StarRocksParser.ruleNames.length];
+
+    /**
+     * Rules printed by the query and expression visitors
+     */
+    private static final BitSet NESTED = bits(StarRocksParser.RULE_queryStatement,
+            StarRocksParser.RULE_queryRelation, StarRocksParser.RULE_withClause, StarRocksParser.RULE_fromClause,
+            StarRocksParser.RULE_relations, StarRocksParser.RULE_expression, StarRocksParser.RULE_booleanExpression,
+            StarRocksParser.RULE_predicate, StarRocksParser.RULE_valueExpression,
+            StarRocksParser.RULE_primaryExpression);
+
+    /**
+     * Tokens followed by a parenthesis without a space, {@code KEY(id)}, {@code HASH(id)}
+     */
+    private static final BitSet ATTACHED_PAREN = bits(StarRocksLexer.KEY, StarRocksLexer.HASH, StarRocksLexer.RANGE,
+            StarRocksLexer.LIST, StarRocksLexer.CURRENT_TIMESTAMP);
+
+    private static final BitSet KEYWORDS = new BitSet();
+
+    static {
+        for (int type = 1; type <= StarRocksLexer.VOCABULARY.getMaxTokenType(); type++) {
+            String literal = StarRocksLexer.VOCABULARY.getLiteralName(type);
+            if (literal != null && literal.matches("'[A-Z][A-Z0-9_]*'")) {
+                KEYWORDS.set(type);
+            }
+        }
+
+        // table
+        define(StarRocksParser.RULE_createTableStatement).breakLists()
+                .breakBefore(StarRocksParser.RULE_engineDesc, StarRocksParser.RULE_charsetDesc,
+                        StarRocksParser.RULE_keyDesc, StarRocksParser.RULE_comment, StarRocksParser.RULE_partitionDesc,
+                        StarRocksParser.RULE_distributionDesc, StarRocksParser.RULE_orderByDesc,
+                        StarRocksParser.RULE_rollupDesc, StarRocksParser.RULE_properties,
+                        StarRocksParser.RULE_extProperties);
+        define(StarRocksParser.RULE_createTableAsSelectStatement).breakLists()
+                .breakBefore(StarRocksParser.RULE_keyDesc, StarRocksParser.RULE_comment,
+                        StarRocksParser.RULE_partitionDesc, StarRocksParser.RULE_distributionDesc,
+                        StarRocksParser.RULE_orderByDesc, StarRocksParser.RULE_properties)
+                .breakBeforeTokens(StarRocksLexer.AS);
+        define(StarRocksParser.RULE_createTableLikeStatement)
+                .breakBefore(StarRocksParser.RULE_partitionDesc, StarRocksParser.RULE_distributionDesc,
+                        StarRocksParser.RULE_properties);
+        define(StarRocksParser.RULE_alterTableStatement)
+                .breakBefore(StarRocksParser.RULE_alterClause, StarRocksParser.RULE_rollupItem);
+        define(StarRocksParser.RULE_partitionDesc).breakLists();
+        define(StarRocksParser.RULE_rollupDesc).breakLists();
+        define(StarRocksParser.RULE_properties).breakLists();
+        define(StarRocksParser.RULE_propertyList).breakLists();
+
+        // view and materialized view
+        define(StarRocksParser.RULE_createViewStatement).breakLists()
+                .breakBefore(StarRocksParser.RULE_comment)
+                .breakBeforeTokens(StarRocksLexer.SECURITY, StarRocksLexer.AS);
+        define(StarRocksParser.RULE_alterViewStatement).breakLists()
+                .breakBeforeTokens(StarRocksLexer.AS);
+        define(StarRocksParser.RULE_createMaterializedViewStatement).breakLists()
+                .breakBefore(StarRocksParser.RULE_comment, StarRocksParser.RULE_materializedViewDesc)
+                .breakBeforeTokens(StarRocksLexer.AS);
+
+        // DML
+        define(StarRocksParser.RULE_insertStatement)
+                .breakBefore(StarRocksParser.RULE_queryStatement);
+        define(StarRocksParser.RULE_updateStatement)
+                .breakBefore(StarRocksParser.RULE_fromClause)
+                .breakBeforeTokens(StarRocksLexer.SET, StarRocksLexer.WHERE);
+        define(StarRocksParser.RULE_deleteStatement)
+                .breakBeforeTokens(StarRocksLexer.USING, StarRocksLexer.WHERE);
+
+        // load
+        define(StarRocksParser.RULE_createRoutineLoadStatement)
+                .breakBefore(StarRocksParser.RULE_loadProperties, StarRocksParser.RULE_jobProperties)
+                .breakBeforeTokens(StarRocksLexer.FROM);
+        define(StarRocksParser.RULE_alterRoutineLoadStatement)
+                .breakBefore(StarRocksParser.RULE_loadProperties, StarRocksParser.RULE_jobProperties,
+                        StarRocksParser.RULE_dataSource);
+        define(StarRocksParser.RULE_loadStatement)
+                .breakBefore(StarRocksParser.RULE_dataDescList, StarRocksParser.RULE_brokerDesc,
+                        StarRocksParser.RULE_resourceDesc)
+                .breakBeforeTokens(StarRocksLexer.BY, StarRocksLexer.PROPERTIES);
+        define(StarRocksParser.RULE_dataDescList).breakLists();
+        define(StarRocksParser.RULE_dataDesc)
+                .breakBefore(StarRocksParser.RULE_partitionNames, StarRocksParser.RULE_fileFormat,
+                        StarRocksParser.RULE_columnAliases)
+                .breakBeforeTokens(StarRocksLexer.INTO, StarRocksLexer.COLUMNS, StarRocksLexer.ROWS,
+                        StarRocksLexer.SET, StarRocksLexer.WHERE);
+    }
+
+    private final BitSet breakRules = new BitSet();
+
+    private final BitSet breakTokens = new BitSet();
+
+    private boolean breakLists;
+
+    private ClauseLayout() {
+    }
+
+    static int literalType(String literal) {
+        for (int type = 1; type <= StarRocksLexer.VOCABULARY.getMaxTokenType(); type++) {
+            if (literal.equals(StarRocksLexer.VOCABULARY.getLiteralName(type))) {
+                return type;
+            }
+        }
+        throw new IllegalStateException("No token for " + literal);
+    }
+
+    private static BitSet bits(int... values) {
+        BitSet bits = new BitSet();
+        for (int value : values) {
+            bits.set(value);
+        }
+        return bits;
+    }
+
+    private static ClauseLayout define(int rule) {
+        ClauseLayout layout = new ClauseLayout();
+        LAYOUTS[rule] = layout;
+        return layout;
+    }
+
+    private ClauseLayout breakBefore(int... rules) {
+        breakRules.or(bits(rules));
+        return this;
+    }
+
+    private ClauseLayout breakBeforeTokens(int... types) {
+        breakTokens.or(bits(types));
+        return this;
+    }
+
+    private ClauseLayout breakLists() {
+        breakLists = true;
+        return this;
+    }
+
+    public static ClauseLayout of(ParserRuleContext ctx) {
+        ClauseLayout layout = LAYOUTS[ctx.getRuleIndex()];
+        return layout == null ? NONE : layout;
+    }
+
+    /**
+     * Whether the child starts a clause on a new line, empty rules don't
+     */
+    public boolean breaksBefore(ParseTree child) {
+        if (child instanceof TerminalNode terminal) {
+            return breakTokens.get(terminal.getSymbol().getType());
+        }
+        return child instanceof ParserRuleContext rule && rule.getChildCount() > 0
+                && breakRules.get(rule.getRuleIndex());
+    }
+
+    /**
+     * Whether the elements of the parenthesized lists directly in the rule go one per line
+     */
+    public boolean breaksLists() {
+        return breakLists;
+    }
+
+    /**
+     * Whether the child is a query or an expression, printed by its visitor instead of the layout
+     */
+    public static boolean isNested(ParseTree child) {
+        return child instanceof ParserRuleContext rule && NESTED.get(rule.getRuleIndex());
+    }
+
+    public static boolean isKeyword(int type) {
+        return KEYWORDS.get(type);
+    }
+
+    public static boolean attachesParen(int type) {
+        return ATTACHED_PAREN.get(type);
+    }
+}
@@ -0,0 +1,489 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token stream storing its tokens as parallel int arrays instead of a {@link CommonToken} per token, reading the
+ * default channel like {@code CommonTokenStream} and checking the {@link CancellationToken} while it lexes.
+ * <p>
+ * A token takes 24 bytes in the arrays instead of a 48 bytes object plus the list slot, and the lexer reuses one
+ * token object while filling, so lexing a large script doesn't leave millions of objects for the GC to trace.
+ * {@link #get(int)} and {@link #LT(int)} return flyweight {@link Token} views over the arrays; the text of a token is
+ * read from the char stream when asked for. Only the tokens the parser keeps in the tree stay alive as views,
+ * whitespace and comments never become objects.
+ */
+public class CompactTokenStream implements TokenStream {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TokenSource tokenSource;
+
+    private final CancellationToken cancellation;
+
+    private final RecyclingTokenFactory factory = new RecyclingTokenFactory();
+
+    private int[] types = new int[INITIAL_CAPACITY];
+
+    private int[] starts = new int[INITIAL_CAPACITY];
+
+    private int[] stops = new int[INITIAL_CAPACITY];
+
+    private int[] lines = new int[INITIAL_CAPACITY];
+
+    private int[] columns = new int[INITIAL_CAPACITY];
+
+    private int[] channels = new int[INITIAL_CAPACITY];
+
+    /**
+     * Text of the tokens whose text was set by a lexer action, usually none
+     */
+    private final Map<Integer, String> texts = new HashMap<>();
+
+    private int size;
+
+    private boolean fetchedEOF;
+
+    /**
+     * Index of the current token, -1 until the first access
+     */
+    private int p = -1;
+
+    /**
+     * Last view handed out, the parser asks for the same token a few times before consuming it
+     */
+    private TokenView last;
+
+    public CompactTokenStream(TokenSource tokenSource) {
+        this(tokenSource, CancellationToken.NONE);
+    }
+
+    public CompactTokenStream(TokenSource tokenSource, CancellationToken cancellation) {
+        this.tokenSource = tokenSource;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Fetch all tokens up to EOF
+     */
+    public void fill() {
+        lazyInit();
+        while (fetch(INITIAL_CAPACITY) == INITIAL_CAPACITY) {
+            // keep fetching
+        }
+    }
+
+    /**
+     * All tokens of the stream fetched so far, hidden ones included, as views
+     */
+    public List<Token> getTokens() {
+        return new AbstractList<>() {
+            @Override
+            public Token get(int index) {
+                return CompactTokenStream.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public int getType(int index) {
+        return types[index];
+    }
+
+    public int getChannel(int index) {
+        return channels[index];
+    }
+
+    /**
+     * Move a token to another channel, e.g. to hide it from the parser; only before parsing starts
+     */
+    public void setChannel(int index, int channel) {
+        channels[index] = channel;
+    }
+
+    /**
+     * Text of a token without creating a view
+     */
+    public String getText(int index) {
+        return text(index);
+    }
+
+    private boolean sync(int i) {
+        int n = i - size + 1;
+        if (n > 0) {
+            return fetch(n) >= n;
+        }
+        return true;
+    }
+
+    private int fetch(int n) {
+        if (fetchedEOF) {
+            return 0;
+        }
+        TokenFactory<?> previous = tokenSource.getTokenFactory();
+        tokenSource.setTokenFactory(factory);
+        try {
+            for (int i = 0; i < n; i++) {
+                cancellation.tick();
+                Token t = tokenSource.nextToken();
+                add(t);
+                if (t.getType() == Token.EOF) {
+                    fetchedEOF = true;
+                    return i + 1;
+                }
+            }
+        } finally {
+            // the parser creates its missing-token placeholders with the source's factory
+            tokenSource.setTokenFactory(previous);
+        }
+        return n;
+    }
+
+    private void add(Token t) {
+        if (size == types.length) {
+            int capacity = size + (size >> 1);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            stops = Arrays.copyOf(stops, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            channels = Arrays.copyOf(channels, capacity);
+        }
+        types[size] = t.getType();
+        starts[size] = t.getStartIndex();
+        stops[size] = t.getStopIndex();
+        lines[size] = t.getLine();
+        columns[size] = t.getCharPositionInLine();
+        channels[size] = t.getChannel();
+        if (factory.text != null) {
+            texts.put(size, factory.text);
+        }
+        size++;
+    }
+
+    private void lazyInit() {
+        if (p == -1) {
+            sync(0);
+            p = nextTokenOnChannel(0);
+        }
+    }
+
+    private int nextTokenOnChannel(int i) {
+        sync(i);
+        if (i >= size) {
+            return size - 1;
+        }
+        while (channels[i] != Token.DEFAULT_CHANNEL) {
+            if (types[i] == Token.EOF) {
+                return i;
+            }
+            i++;
+            sync(i);
+        }
+        return i;
+    }
+
+    private int previousTokenOnChannel(int i) {
+        sync(i);
+        if (i >= size) {
+            return size - 1;
+        }
+        while (i >= 0) {
+            if (types[i] == Token.EOF || channels[i] == Token.DEFAULT_CHANNEL) {
+                return i;
+            }
+            i--;
+        }
+        return i;
+    }
+
+    private Token view(int i) {
+        TokenView view = last;
+        if (view == null || view.index != i) {
+            view = new TokenView(i);
+            last = view;
+        }
+        return view;
+    }
+
+    private String text(int i) {
+        String text = texts.get(i);
+        if (text != null) {
+            return text;
+        }
+        CharStream input = tokenSource.getInputStream();
+        if (input == null) {
+            return null;
+        }
+        int n = input.size();
+        if (starts[i] < n && stops[i] < n) {
+            return input.getText(Interval.of(starts[i], stops[i]));
+        }
+        return "<EOF>";
+    }
+
+    @Override
+    public Token LT(int k) {
+        lazyInit();
+        if (k == 0) {
+            return null;
+        }
+        int i = k > 0 ? indexAhead(k) : indexBehind(-k);
+        return i < 0 ? null : view(i);
+    }
+
+    @Override
+    public int LA(int k) {
+        lazyInit();
+        if (k == 0) {
+            return 0;
+        }
+        int i = k > 0 ? indexAhead(k) : indexBehind(-k);
+        return i < 0 ? Token.INVALID_TYPE : types[i];
+    }
+
+    private int indexAhead(int k) {
+        int i = p;
+        for (int n = 1; n < k; n++) {
+            if (sync(i + 1)) {
+                i = nextTokenOnChannel(i + 1);
+            }
+        }
+        return i;
+    }
+
+    private int indexBehind(int k) {
+        if (p - k < 0) {
+            return -1;
+        }
+        int i = p;
+        for (int n = 1; n <= k && i > 0; n++) {
+            i = previousTokenOnChannel(i - 1);
+        }
+        return i;
+    }
+
+    @Override
+    public Token get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("token index " + index + " out of range 0.." + (size - 1));
+        }
+        return view(index);
+    }
+
+    @Override
+    public void consume() {
+        lazyInit();
+        boolean skipEofCheck = fetchedEOF ? p < size - 1 : p < size;
+        if (!skipEofCheck && LA(1) == Token.EOF) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        if (sync(p + 1)) {
+            p = nextTokenOnChannel(p + 1);
+        }
+    }
+
+    @Override
+    public int mark() {
+        return 0;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        lazyInit();
+        p = nextTokenOnChannel(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return tokenSource.getSourceName();
+    }
+
+    @Override
+    public TokenSource getTokenSource() {
+        return tokenSource;
+    }
+
+    @Override
+    public String getText() {
+        fill();
+        return getText(Interval.of(0, size - 1));
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = interval.b;
+        if (start < 0 || stop < 0) {
+            return "";
+        }
+        lazyInit();
+        sync(stop);
+        stop = Math.min(stop, size - 1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = start; i <= stop && types[i] != Token.EOF; i++) {
+            sb.append(text(i));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String getText(RuleContext ctx) {
+        return getText(ctx.getSourceInterval());
+    }
+
+    @Override
+    public String getText(Token start, Token stop) {
+        if (start == null || stop == null) {
+            return "";
+        }
+        return getText(Interval.of(start.getTokenIndex(), stop.getTokenIndex()));
+    }
+
+    /**
+     * Token of the stream, reading its fields from the arrays
+     */
+    private class TokenView implements Token {
+        private final int index;
+
+        private TokenView(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getText() {
+            return text(index);
+        }
+
+        @Override
+        public int getType() {
+            return types[index];
+        }
+
+        @Override
+        public int getLine() {
+            return lines[index];
+        }
+
+        @Override
+        public int getCharPositionInLine() {
+            return columns[index];
+        }
+
+        @Override
+        public int getChannel() {
+            return channels[index];
+        }
+
+        @Override
+        public int getTokenIndex() {
+            return index;
+        }
+
+        @Override
+        public int getStartIndex() {
+            return starts[index];
+        }
+
+        @Override
+        public int getStopIndex() {
+            return stops[index];
+        }
+
+        @Override
+        public TokenSource getTokenSource() {
+            return tokenSource;
+        }
+
+        @Override
+        public CharStream getInputStream() {
+            return tokenSource.getInputStream();
+        }
+
+        @Override
+        public String toString() {
+            String text = getText();
+            if (text == null) {
+                text = "<no text>";
+            } else {
+                text = text.replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+            }
+            String channel = getChannel() > 0 ? ",channel=" + getChannel() : "";
+            return "[@" + index + "," + getStartIndex() + ":" + getStopIndex() + "='" + text + "',<" + getType() + ">"
+                    + channel + "," + getLine() + ":" + getCharPositionInLine() + "]";
+        }
+    }
+
+    /**
+     * Hands the lexer the same token for every match, its fields are copied into the arrays right away
+     */
+    private static class RecyclingTokenFactory implements TokenFactory<CommonToken> {
+        private CommonToken token;
+
+        private String text;
+
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                                  int start, int stop, int line, int charPositionInLine) {
+            if (token == null) {
+                token = new CommonToken(source, type, channel, start, stop);
+            } else {
+                token.setType(type);
+                token.setChannel(channel);
+                token.setStartIndex(start);
+                token.setStopIndex(stop);
+            }
+            token.setLine(line);
+            token.setCharPositionInLine(charPositionInLine);
+            this.text = text;
+            return token;
+        }
+
+        @Override
+        public CommonToken create(int type, String text) {
+            return new CommonToken(type, text);
+        }
+    }
+}
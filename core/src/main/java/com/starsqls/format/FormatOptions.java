@@ -81,6 +81,10 @@ public class FormatOptions {
 
     public boolean formatSubquery = false;
 
+    public boolean breakInsertValues = false;
+
+    public boolean breakStatementClauses = false;
+
     public boolean ignoreComment = false;
 
     public static FormatOptions allFormatOptions() {
@@ -107,6 +111,8 @@ public class FormatOptions {
         options.breakGroupByItems = true;
         options.breakOrderBy = true;
         options.formatSubquery = true;
+        options.breakInsertValues = true;
+        options.breakStatementClauses = true;
 
         return options;
     }
@@ -138,6 +144,8 @@ public class FormatOptions {
         options.breakGroupByItems = false;
         options.breakOrderBy = false;
         options.formatSubquery = true;
+        options.breakInsertValues = false;
+        options.breakStatementClauses = true;
         options.ignoreComment = true;
 
         return options;
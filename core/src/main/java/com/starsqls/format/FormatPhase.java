@@ -0,0 +1,35 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+/**
+ * Phases of formatting and DAG analysis, reported to a {@link PhaseListener}
+ */
+public enum FormatPhase {
+    /**
+     * Tokenize the input
+     */
+    LEX,
+    /**
+     * Build the parse tree
+     */
+    PARSE,
+    /**
+     * Walk the parse tree, printing SQL or building the DAG
+     */
+    VISIT,
+    /**
+     * Put the comments back into the formatted SQL
+     */
+    COMMENTS
+}
@@ -16,12 +16,19 @@ import com.google.common.base.Preconditions;
 import com.starsqls.parser.StarRocksParser;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 public class FormatPrinter extends FormatPrinterBase {
+    /**
+     * Whether the statement being printed is laid out by the clause layout walk
+     */
+    private boolean inClauseLayout = false;
 
     public FormatPrinter(FormatOptions options) {
         this.options = options;
@@ -49,6 +56,23 @@ public class FormatPrinter extends FormatPrinterBase {
         }
     }
 
+    /**
+     * The chain of left-recursive nodes of the same alternative, from ctx down to the deepest one.
+     * Machine generated SQL easily has thousands of AND/OR, UNION ALL or + in a row, which the parser turns into
+     * a left-deep tree; walking its left spine in a loop keeps the visitor's stack depth independent of the length.
+     */
+    protected static <T extends ParserRuleContext> List<T> leftSpine(T ctx, Class<T> type,
+                                                                    Function<T, ? extends ParseTree> left) {
+        List<T> chain = new ArrayList<>();
+        T current = ctx;
+        while (current != null) {
+            chain.add(current);
+            ParseTree next = left.apply(current);
+            current = type.isInstance(next) ? type.cast(next) : null;
+        }
+        return chain;
+    }
+
     @Override
     public Void visit(ParseTree tree) {
         if (tree != null) {
@@ -59,7 +83,7 @@ public class FormatPrinter extends FormatPrinterBase {
 
     @Override
     public Void visitSingleStatement(StarRocksParser.SingleStatementContext ctx) {
-        sql = new SQLBuilder(options);
+        sql = newBuilder();
         visit(ctx.statement());
         if (ctx.SEMICOLON() != null) {
             sql.append(ctx.SEMICOLON().getText());
@@ -75,6 +99,145 @@ public class FormatPrinter extends FormatPrinterBase {
         return null;
     }
 
+    /**
+     * Statements other than queries are printed by the generic walk below, laid out by {@link ClauseLayout}
+     */
+    @Override
+    public Void visitStatement(StarRocksParser.StatementContext ctx) {
+        if (ctx.queryStatement() != null) {
+            return visit(ctx.queryStatement());
+        }
+        inClauseLayout = true;
+        try {
+            return visitChildren(ctx);
+        } finally {
+            inClauseLayout = false;
+        }
+    }
+
+    @Override
+    public Void visitChildren(RuleNode node) {
+        if (!inClauseLayout) {
+            return super.visitChildren(node);
+        }
+        cancellation.tick();
+        ParserRuleContext ctx = (ParserRuleContext) node;
+        ClauseLayout layout = options.breakStatementClauses ? ClauseLayout.of(ctx) : ClauseLayout.NONE;
+        visitClauses(ctx, layout);
+        return null;
+    }
+
+    @Override
+    public Void visitTerminal(TerminalNode node) {
+        if (!inClauseLayout) {
+            return super.visitTerminal(node);
+        }
+        appendToken(node.getSymbol().getType(), node.getText(), false);
+        return null;
+    }
+
+    private void visitClauses(ParserRuleContext ctx, ClauseLayout layout) {
+        for (int i = 0; i < ctx.getChildCount(); i++) {
+            ParseTree child = ctx.getChild(i);
+            if (i > 0 && layout.breaksBefore(child)) {
+                newClause();
+            }
+            boolean attached = i > 0 && ctx.getChild(i - 1) instanceof TerminalNode previous
+                    && ClauseLayout.attachesParen(previous.getSymbol().getType());
+            if (child instanceof TerminalNode terminal) {
+                int type = terminal.getSymbol().getType();
+                if (type == ClauseLayout.LEFT_PAREN && layout.breaksLists()) {
+                    i = visitBrokenList(ctx, i, attached);
+                } else if (type == ClauseLayout.COMMA && i + 1 < ctx.getChildCount()
+                        && layout.breaksBefore(ctx.getChild(i + 1))) {
+                    sql.append(comma().stripTrailing());
+                } else {
+                    appendToken(type, terminal.getText(), attached);
+                }
+            } else if (ClauseLayout.isNested(child)) {
+                sql.space();
+                inClauseLayout = false;
+                try {
+                    visit(child);
+                } finally {
+                    inClauseLayout = true;
+                }
+            } else {
+                if (!attached) {
+                    sql.space();
+                }
+                visit(child);
+            }
+        }
+    }
+
+    /**
+     * One element per line of the list opened by the '(' at index open, returns the index of its ')'
+     */
+    private int visitBrokenList(ParserRuleContext ctx, int open, boolean attached) {
+        int close = open + 1;
+        while (close < ctx.getChildCount() && !(ctx.getChild(close) instanceof TerminalNode t
+                && t.getSymbol().getType() == ClauseLayout.RIGHT_PAREN)) {
+            close++;
+        }
+        if (close == ctx.getChildCount() || close == open + 1) {
+            // unbalanced by error recovery, or empty
+            appendToken(ClauseLayout.LEFT_PAREN, "(", attached);
+            return open;
+        }
+        final int end = close;
+        appendToken(ClauseLayout.LEFT_PAREN, "(", attached);
+        sql.intoLevel(() -> {
+            newClause();
+            for (int i = open + 1; i < end; i++) {
+                ParseTree child = ctx.getChild(i);
+                if (child instanceof TerminalNode terminal && terminal.getSymbol().getType() == ClauseLayout.COMMA) {
+                    sql.append(comma().stripTrailing());
+                    newClause();
+                } else if (child instanceof TerminalNode terminal) {
+                    appendToken(terminal.getSymbol().getType(), terminal.getText(), false);
+                } else {
+                    sql.space();
+                    visit(child);
+                }
+            }
+        });
+        newClause();
+        sql.append(")");
+        return end;
+    }
+
+    private void newClause() {
+        if (!sql.isLineStart()) {
+            sql.appendNewLine();
+        }
+    }
+
+    /**
+     * Print a token of a statement, spaced between words and tight around punctuation
+     */
+    private void appendToken(int type, String text, boolean attached) {
+        if (type == StarRocksParser.EOF) {
+            return;
+        }
+        if (type == ClauseLayout.COMMA) {
+            sql.append(comma());
+        } else if (type == ClauseLayout.LEFT_PAREN || type == ClauseLayout.LEFT_BRACKET) {
+            if (!attached) {
+                sql.space();
+            }
+            sql.append(text);
+        } else if (type == ClauseLayout.RIGHT_PAREN || type == ClauseLayout.RIGHT_BRACKET
+                || type == ClauseLayout.DOT || type == StarRocksParser.DOT_IDENTIFIER) {
+            sql.append(text);
+        } else if (ClauseLayout.isKeyword(type)) {
+            sql.space().appendKey(text, false, false);
+        } else {
+            // identifiers, strings, numbers and operators as they are
+            sql.space().append(text);
+        }
+    }
+
     @Override
     public Void visitSubfieldName(StarRocksParser.SubfieldNameContext ctx) {
         sql.append(ctx.getText());
@@ -150,12 +313,17 @@ public class FormatPrinter extends FormatPrinterBase {
 
     @Override
     public Void visitSetOperation(StarRocksParser.SetOperationContext ctx) {
-        visit(ctx.left);
-        sql.appendNewLine();
-        sql.appendKey(ctx.operator.getText());
-        visit(ctx.setQuantifier());
-        sql.appendNewLine();
-        visit(ctx.right);
+        List<StarRocksParser.SetOperationContext> chain = leftSpine(ctx, StarRocksParser.SetOperationContext.class,
+                c -> c.left);
+        visit(chain.get(chain.size() - 1).left);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            StarRocksParser.SetOperationContext operation = chain.get(i);
+            sql.appendNewLine();
+            sql.appendKey(operation.operator.getText());
+            visit(operation.setQuantifier());
+            sql.appendNewLine();
+            visit(operation.right);
+        }
         return null;
     }
 
@@ -370,6 +538,32 @@ public class FormatPrinter extends FormatPrinterBase {
         return null;
     }
 
+    @Override
+    public Void visitInsertStatement(StarRocksParser.InsertStatementContext ctx) {
+        if (ctx.VALUES() == null) {
+            return visitChildren(ctx);
+        }
+        for (ParseTree child : ctx.children) {
+            if (child == ctx.VALUES()) {
+                break;
+            }
+            sql.space();
+            visit(child);
+        }
+        sql.appendKey(ctx.VALUES());
+        sql.intoLevel(() -> {
+            sql.appendBreak(options.breakInsertValues);
+            visitList(ctx.expressionsWithDefault(), commaBreak(options.breakInsertValues));
+            // rows of plain literals the parser didn't see, see InsertValuesScanner
+            if (insertValues != null) {
+                List<StarRocksParser.ExpressionsWithDefaultContext> rows = ctx.expressionsWithDefault();
+                int rowEnd = rows.get(rows.size() - 1).getStop().getTokenIndex();
+                insertValues.write(sql, rowEnd, commaBreak(options.breakInsertValues), comma());
+            }
+        });
+        return null;
+    }
+
     @Override
     public Void visitSubqueryWithAlias(StarRocksParser.SubqueryWithAliasContext ctx) {
         if (ctx.ASSERT_ROWS() != null) {
@@ -611,12 +805,17 @@ public class FormatPrinter extends FormatPrinterBase {
 
     @Override
     public Void visitLogicalBinary(StarRocksParser.LogicalBinaryContext ctx) {
-        visit(ctx.left);
-        sql.intoAutoBreak(() -> {
-            sql.appendBreak(options.breakAndOr);
-            sql.appendKey(ctx.operator.getText());
-            visit(ctx.right);
-        });
+        List<StarRocksParser.LogicalBinaryContext> chain = leftSpine(ctx, StarRocksParser.LogicalBinaryContext.class,
+                c -> c.left);
+        visit(chain.get(chain.size() - 1).left);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            StarRocksParser.LogicalBinaryContext binary = chain.get(i);
+            sql.intoAutoBreak(() -> {
+                sql.appendBreak(options.breakAndOr);
+                sql.appendKey(binary.operator.getText());
+                visit(binary.right);
+            });
+        }
         return null;
     }
 
@@ -724,13 +923,19 @@ public class FormatPrinter extends FormatPrinterBase {
 
     @Override
     public Void visitArithmeticBinary(StarRocksParser.ArithmeticBinaryContext ctx) {
-        visit(ctx.left);
-        if (options.mode == FormatOptions.Mode.MINIFY) {
-            sql.append(ctx.operator.getText());
-        } else {
-            sql.appendKey(ctx.operator.getText());
+        List<StarRocksParser.ArithmeticBinaryContext> chain = leftSpine(ctx,
+                StarRocksParser.ArithmeticBinaryContext.class, c -> c.left);
+        visit(chain.get(chain.size() - 1).left);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            StarRocksParser.ArithmeticBinaryContext binary = chain.get(i);
+            if (options.mode == FormatOptions.Mode.MINIFY) {
+                sql.append(binary.operator.getText());
+            } else {
+                sql.appendKey(binary.operator.getText());
+            }
+            visit(binary.right);
         }
-        return visit(ctx.right);
+        return null;
     }
 
     @Override
@@ -810,9 +1015,12 @@ public class FormatPrinter extends FormatPrinterBase {
 
     @Override
     public Void visitConcat(StarRocksParser.ConcatContext ctx) {
-        visit(ctx.left);
-        sql.append("||");
-        visit(ctx.right);
+        List<StarRocksParser.ConcatContext> chain = leftSpine(ctx, StarRocksParser.ConcatContext.class, c -> c.left);
+        visit(chain.get(chain.size() - 1).left);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            sql.append("||");
+            visit(chain.get(i).right);
+        }
         return null;
     }
 
@@ -1379,7 +1587,7 @@ public class FormatPrinter extends FormatPrinterBase {
 
     @Override
     public Void visitIdentifierList(StarRocksParser.IdentifierListContext ctx) {
-        visitList(ctx.identifier(), comma());
+        sql.intoParentheses(() -> visitList(ctx.identifier(), comma()));
         return null;
     }
 
@@ -1418,10 +1626,10 @@ public class FormatPrinter extends FormatPrinterBase {
         visit(ctx.getChild(0));
         for (int i = 1; i < ctx.getChildCount(); i++) {
             if (ctx.getChild(i) instanceof StarRocksParser.IdentifierContext) {
-                sql.append(".");
                 visit(ctx.getChild(i));
             } else {
-                visit(ctx.getChild(i));
+                // '.' or DOT_IDENTIFIER
+                sql.append(ctx.getChild(i).getText());
             }
         }
         return null;
@@ -18,17 +18,28 @@ import com.google.common.collect.Maps;
 import com.starsqls.parser.StarRocksBaseVisitor;
 import com.starsqls.parser.StarRocksLexer;
 import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 public class FormatPrinterBase extends StarRocksBaseVisitor<Void> implements Printer {
+    /**
+     * Channel of the WS tokens, whitespace only
+     */
+    private static final int WHITESPACE_CHANNEL = 2;
+
     protected FormatOptions options;
 
     protected SQLBuilder sql;
@@ -37,6 +48,63 @@ public class FormatPrinterBase extends StarRocksBaseVisitor<Void> implements Pri
 
     private final Map<Long, String> comments = Maps.newLinkedHashMap();
 
+    protected CancellationToken cancellation = CancellationToken.NONE;
+
+    /**
+     * Rows of bulk inserts hidden from the parser, null unless the script was lexed by this printer
+     */
+    protected InsertValuesScanner insertValues;
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellation) {
+        this.cancellation = cancellation == null ? CancellationToken.NONE : cancellation;
+    }
+
+    protected PhaseListener phaseListener = PhaseListener.NONE;
+
+    /**
+     * Set during {@link #profile(String)} only
+     */
+    private FormatProfile profile;
+
+    @Override
+    public void setPhaseListener(PhaseListener listener) {
+        this.phaseListener = listener == null ? PhaseListener.NONE : listener;
+    }
+
+    @Override
+    public Void visit(ParseTree tree) {
+        cancellation.tick();
+        return tree.accept(this);
+    }
+
+    @Override
+    public Void visitChildren(RuleNode node) {
+        cancellation.tick();
+        return super.visitChildren(node);
+    }
+
+    /**
+     * Builder for the formatted SQL of a statement
+     */
+    protected SQLBuilder newBuilder() {
+        SQLBuilder builder = new SQLBuilder(options);
+        builder.setProfile(profile);
+        return builder;
+    }
+
+    private void beginProfile() {
+        if (profile != null) {
+            profile.begin();
+        }
+    }
+
+    private void endProfile(FormatProfile.Phase phase) {
+        if (profile != null) {
+            profile.end(phase);
+        }
+    }
+
     protected String comma() {return sql.comma();}
 
     protected String commaBreak(boolean isBreak) {
@@ -68,18 +136,47 @@ public class FormatPrinterBase extends StarRocksBaseVisitor<Void> implements Pri
     }
 
     private StarRocksParser.SqlStatementsContext parse(String sql) {
-        StarRocksLexer lexer = new StarRocksLexer(CharStreams.fromString(sql));
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        initComments(tokenStream);
+        return parse(CharStreams.fromString(sql));
+    }
+
+    private StarRocksParser.SqlStatementsContext parse(CharStream input) {
+        StarRocksLexer lexer = new StarRocksLexer(input);
+        CompactTokenStream tokenStream = new CompactTokenStream(lexer, cancellation);
+        long start = System.nanoTime();
+        beginProfile();
+        tokenStream.fill();
+        endProfile(FormatProfile.Phase.LEX);
+        beginProfile();
+        initComments(tokenStream.getTokens());
+        endProfile(FormatProfile.Phase.INIT_COMMENTS);
+        insertValues = new InsertValuesScanner(tokenStream);
+        insertValues.scan();
+        phaseListener.onPhase(FormatPhase.LEX, System.nanoTime() - start);
+        phaseListener.onTokens(tokenStream.size());
         StarRocksParser parser = new StarRocksParser(tokenStream);
+        if (profile != null) {
+            profile.setTokens(tokenStream.size());
+            parser.setProfile(true);
+        }
+        if (cancellation != CancellationToken.NONE) {
+            parser.addParseListener(cancellation.parseListener());
+        }
 
         SQLSyntaxErrorListener errorListener = new SQLSyntaxErrorListener();
         parser.removeErrorListeners();
         parser.addErrorListener(errorListener);
 
+        start = System.nanoTime();
+        beginProfile();
         StarRocksParser.SqlStatementsContext context = parser.sqlStatements();
+        endProfile(FormatProfile.Phase.PARSE);
+        phaseListener.onPhase(FormatPhase.PARSE, System.nanoTime() - start);
+        if (profile != null) {
+            profile.collectDecisions(parser);
+        }
 
         if (errorListener.hasErrors()) {
+            phaseListener.onParseFailure();
             String errorMsg = String.join("\n", errorListener.getErrors());
             throw new IllegalArgumentException(errorMsg);
         }
@@ -87,11 +184,17 @@ public class FormatPrinterBase extends StarRocksBaseVisitor<Void> implements Pri
         return context;
     }
 
-    private void initComments(CommonTokenStream tokenStream) {
-        tokenStream.fill();
+    private void initComments(List<? extends Token> tokens) {
+        if (options.ignoreComment && tokens.stream().noneMatch(FormatPrinterBase::isHint)) {
+            // nothing to insert, skip counting the text of every token
+            return;
+        }
         long index = 0;
-        List<Token> tokens = tokenStream.getTokens();
         for (Token t : tokens) {
+            if (t.getChannel() == WHITESPACE_CHANNEL) {
+                // no text to count, skip materializing it
+                continue;
+            }
             String tokenText = t.getText();
             if (t.getChannel() != Token.HIDDEN_CHANNEL) {
                 // Optimize: count non-whitespace chars more efficiently
@@ -115,44 +218,168 @@ public class FormatPrinterBase extends StarRocksBaseVisitor<Void> implements Pri
         }
     }
 
+    private static boolean isHint(Token t) {
+        return t.getChannel() == Token.HIDDEN_CHANNEL && t.getText().startsWith("/*+");
+    }
+
     private String insertComments(String sql) {
         if (comments.isEmpty()) {
             return sql;
         }
         StringBuilder sb = new StringBuilder(sql.length() + comments.size() * 20); // Pre-allocate
-        int count = 0;
-        int start = 0;
-        for (var entry : comments.entrySet()) {
-            int index = entry.getKey().intValue();
-            String comment = entry.getValue();
-            // find index - optimize to avoid repeated charAt calls
-            int find = start;
-            while (find < sql.length() && count < index) {
-                if (!Character.isWhitespace(sql.charAt(find))) {
+        CommentInserter inserter = new CommentInserter();
+        try {
+            inserter.append(sql, sb);
+            inserter.finish(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Inserts the saved comments into formatted SQL written in chunks. A comment saved at index n is written after
+     * the n-th non-whitespace char of the whole output, so the position is counted across the chunks.
+     */
+    private class CommentInserter {
+        private final Iterator<Map.Entry<Long, String>> pending = comments.entrySet().iterator();
+
+        private Map.Entry<Long, String> next = pending.hasNext() ? pending.next() : null;
+
+        private long count = 0;
+
+        void append(CharSequence chunk, Appendable out) throws IOException {
+            int start = 0;
+            int find = 0;
+            while (next != null) {
+                // find index - optimize to avoid repeated charAt calls
+                while (find < chunk.length() && count < next.getKey()) {
+                    if (!Character.isWhitespace(chunk.charAt(find))) {
+                        count++;
+                    }
+                    find++;
+                }
+                if (count < next.getKey()) {
+                    // the comment belongs to a later chunk
+                    break;
+                }
+                out.append(chunk, start, find);
+                out.append(next.getValue());
+                start = find;
+                next = pending.hasNext() ? pending.next() : null;
+            }
+            for (; find < chunk.length(); find++) {
+                if (!Character.isWhitespace(chunk.charAt(find))) {
                     count++;
                 }
-                find++;
             }
-            sb.append(sql, start, find);
-            sb.append(comment);
-            start = find;
+            out.append(chunk, start, chunk.length());
+        }
+
+        /**
+         * Comments after the last char, e.g. a trailing line comment
+         */
+        void finish(Appendable out) throws IOException {
+            while (next != null) {
+                out.append(next.getValue());
+                next = pending.hasNext() ? pending.next() : null;
+            }
         }
-        sb.append(sql, start, sql.length());
-        return sb.toString();
     }
 
     @Override
     public String format(String sql) {
-        StarRocksParser.SqlStatementsContext context = parse(sql);
+        return formatParsed(parse(sql));
+    }
+
+    /**
+     * Format a script which is already lexed and parsed, e.g. a statement of an {@link IncrementalDocument}.
+     * The tokens are all tokens the tree was parsed from, hidden comments included.
+     */
+    public String format(List<? extends Token> tokens, StarRocksParser.SqlStatementsContext context) {
+        initComments(tokens);
+        return formatParsed(context);
+    }
+
+    private String formatParsed(StarRocksParser.SqlStatementsContext context) {
+        long start = System.nanoTime();
+        beginProfile();
         context.accept(this);
         String formatSQL = formatSQLs.stream()
                 .map(SQLBuilder::toString)
                 .collect(Collectors.joining("\n"));
-        return insertComments(formatSQL);
+        endProfile(FormatProfile.Phase.VISIT);
+        phaseListener.onPhase(FormatPhase.VISIT, System.nanoTime() - start);
+        start = System.nanoTime();
+        beginProfile();
+        String result = insertComments(formatSQL);
+        endProfile(FormatProfile.Phase.INSERT_COMMENTS);
+        phaseListener.onPhase(FormatPhase.COMMENTS, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Format the script and profile it: time and allocation of each phase, and the parser decision statistics
+     * per grammar rule. Slower than {@link #format(String)}, see {@link FormatProfile}.
+     */
+    public FormatProfile profile(String sql) {
+        profile = new FormatProfile();
+        try {
+            profile.setResult(format(sql));
+            return profile;
+        } finally {
+            profile = null;
+        }
+    }
+
+    /**
+     * Format the script and write it statement by statement, only the parse tree and the current statement are
+     * kept in memory instead of the whole formatted script
+     */
+    @Override
+    public void format(String sql, Writer out) throws IOException {
+        write(parse(sql), out);
+    }
+
+    /**
+     * Format a UTF-8 file into the writer. The file is memory-mapped and decoded while lexing, so it is never held
+     * in memory as a String, only its tokens are.
+     */
+    @Override
+    public void format(Path file, Writer out) throws IOException {
+        write(parse(MappedFileCharStream.open(file)), out);
+    }
+
+    private void write(StarRocksParser.SqlStatementsContext context, Writer out) throws IOException {
+        CommentInserter inserter = new CommentInserter();
+        boolean first = true;
+        long visitNanos = 0;
+        // comments are inserted while writing, so this includes the writes
+        long writeNanos = 0;
+        for (StarRocksParser.SingleStatementContext statement : context.singleStatement()) {
+            long start = System.nanoTime();
+            statement.accept(this);
+            long visited = System.nanoTime();
+            visitNanos += visited - start;
+            for (SQLBuilder builder : formatSQLs) {
+                if (!first) {
+                    inserter.append("\n", out);
+                }
+                inserter.append(builder.toString(), out);
+                first = false;
+            }
+            formatSQLs.clear();
+            writeNanos += System.nanoTime() - visited;
+        }
+        long start = System.nanoTime();
+        inserter.finish(out);
+        out.flush();
+        phaseListener.onPhase(FormatPhase.VISIT, visitNanos);
+        phaseListener.onPhase(FormatPhase.COMMENTS, writeNanos + System.nanoTime() - start);
     }
 
     public String format(ParseTree tree) {
-        this.sql = new SQLBuilder(options);
+        this.sql = newBuilder();
         tree.accept(this);
         String formatSQL = sql.toString();
         return insertComments(formatSQL);
@@ -0,0 +1,274 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.ParseInfo;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timings and allocations of one {@link FormatPrinterBase#profile(String)} run, with the ANTLR prediction
+ * statistics of the grammar rules.
+ * <p>
+ * Allocation counts come from the HotSpot ThreadMXBean, they are -1 if the JVM doesn't support it. Profiling is
+ * opt-in because it is not free: the parser runs with {@link Parser#setProfile(boolean)}, which makes PARSE slower
+ * than a plain format, and every line break check reads the clock.
+ */
+public class FormatProfile {
+
+    public enum Phase {
+        /**
+         * Lexing, i.e. tokenStream.fill()
+         */
+        LEX,
+        /**
+         * Collecting comments and hints from the hidden tokens
+         */
+        INIT_COMMENTS,
+        PARSE,
+        /**
+         * Printing the parse tree, including LINE_BREAK
+         */
+        VISIT,
+        /**
+         * Breaking lines longer than maxLineLength, part of VISIT
+         */
+        LINE_BREAK,
+        INSERT_COMMENTS
+    }
+
+    /**
+     * Time and allocation of one phase
+     */
+    public static class PhaseStats {
+        private long nanos;
+        private long allocatedBytes;
+        private long count;
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Times the phase ran, LINE_BREAK runs once per append while a break point is open
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Prediction statistics of the decisions in one grammar rule
+     */
+    public static class RuleStats {
+        private final String rule;
+        private int decisions;
+        private long invocations;
+        private long timeInPrediction;
+        private long sllLookahead;
+        private long llLookahead;
+        private long llFallback;
+        private long maxLookahead;
+        private long ambiguities;
+
+        RuleStats(String rule) {
+            this.rule = rule;
+        }
+
+        public String getRule() {
+            return rule;
+        }
+
+        public int getDecisions() {
+            return decisions;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * Nanoseconds spent in adaptivePredict for the decisions of the rule
+         */
+        public long getTimeInPrediction() {
+            return timeInPrediction;
+        }
+
+        public long getSllLookahead() {
+            return sllLookahead;
+        }
+
+        public long getLlLookahead() {
+            return llLookahead;
+        }
+
+        /**
+         * Predictions which SLL could not decide and which fell back to full LL
+         */
+        public long getLlFallback() {
+            return llFallback;
+        }
+
+        public long getMaxLookahead() {
+            return maxLookahead;
+        }
+
+        public long getAmbiguities() {
+            return ambiguities;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+
+    private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+
+    private final List<RuleStats> rules = new ArrayList<>();
+
+    private int tokens;
+
+    private String result;
+
+    private long beginNanos;
+
+    private long beginBytes;
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        }
+        return null;
+    }
+
+    static long allocatedBytes() {
+        return THREAD_MX_BEAN == null ? -1 : THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    void begin() {
+        beginBytes = allocatedBytes();
+        beginNanos = System.nanoTime();
+    }
+
+    void end(Phase phase) {
+        long nanos = System.nanoTime() - beginNanos;
+        add(phase, nanos, beginBytes < 0 ? -1 : allocatedBytes() - beginBytes);
+    }
+
+    void add(Phase phase, long nanos, long bytes) {
+        PhaseStats stats = phases.computeIfAbsent(phase, p -> new PhaseStats());
+        stats.nanos += nanos;
+        stats.allocatedBytes = bytes < 0 ? -1 : stats.allocatedBytes + bytes;
+        stats.count++;
+    }
+
+    void setTokens(int tokens) {
+        this.tokens = tokens;
+    }
+
+    void setResult(String result) {
+        this.result = result;
+    }
+
+    /**
+     * Aggregate the decision statistics of a parser run with profiling by the rule of each decision
+     */
+    void collectDecisions(Parser parser) {
+        ParseInfo parseInfo = parser.getParseInfo();
+        if (parseInfo == null) {
+            return;
+        }
+        Map<Integer, RuleStats> byRule = new LinkedHashMap<>();
+        for (DecisionInfo decision : parseInfo.getDecisionInfo()) {
+            if (decision.invocations == 0) {
+                continue;
+            }
+            int ruleIndex = parser.getATN().getDecisionState(decision.decision).ruleIndex;
+            RuleStats stats = byRule.computeIfAbsent(ruleIndex, i -> new RuleStats(parser.getRuleNames()[i]));
+            stats.decisions++;
+            stats.invocations += decision.invocations;
+            stats.timeInPrediction += decision.timeInPrediction;
+            stats.sllLookahead += decision.SLL_TotalLook;
+            stats.llLookahead += decision.LL_TotalLook;
+            stats.llFallback += decision.LL_Fallback;
+            stats.maxLookahead = Math.max(stats.maxLookahead, Math.max(decision.SLL_MaxLook, decision.LL_MaxLook));
+            stats.ambiguities += decision.ambiguities.size();
+        }
+        rules.addAll(byRule.values());
+        rules.sort(Comparator.comparingLong(RuleStats::getTimeInPrediction).reversed());
+    }
+
+    public Map<Phase, PhaseStats> getPhases() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    /**
+     * Rules with at least one prediction, the most expensive first
+     */
+    public List<RuleStats> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Token count of the input, including hidden tokens
+     */
+    public int getTokens() {
+        return tokens;
+    }
+
+    /**
+     * The formatted SQL
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Readable report with the phases and the top rules
+     */
+    public String toReport(int topRules) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-16s %12s %14s %8s%n", "phase", "micros", "alloc bytes", "count"));
+        phases.forEach((phase, stats) -> sb.append(String.format("%-16s %12d %14d %8d%n", phase,
+                stats.nanos / 1000, stats.allocatedBytes, stats.count)));
+        sb.append(String.format("tokens: %d%n", tokens));
+        if (!rules.isEmpty()) {
+            sb.append(String.format("%n%-32s %12s %10s %10s %10s %10s %8s%n", "rule", "predict us", "calls",
+                    "SLL look", "LL look", "LL fallbk", "max look"));
+            rules.stream().limit(topRules).forEach(r -> sb.append(String.format("%-32s %12d %10d %10d %10d %10d %8d%n",
+                    r.rule, r.timeInPrediction / 1000, r.invocations, r.sllLookahead, r.llLookahead, r.llFallback,
+                    r.maxLookahead)));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toReport(10);
+    }
+}
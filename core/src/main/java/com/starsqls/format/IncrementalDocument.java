@@ -0,0 +1,319 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import com.google.common.base.Preconditions;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * A SQL document which keeps its tokens and one parse tree per statement across edits, for editors that format or
+ * check the document while it is typed.
+ * <p>
+ * An edit re-lexes from the end of the last statement whose tokens were decided without looking at the edited
+ * text. The lexer has no modes, so the position after a semicolon is a safe restart point, as long as no earlier
+ * token looked past it: an unterminated comment start scans to EOF before it is lexed as '/', and an edit closing
+ * the comment changes it. Lexing stops at the first semicolon after the edit where a statement ended before the
+ * edit too: from there the text and the lexer state are the same as before, the remaining statements are kept
+ * with their trees and formatted text and only move by the length change. So the lexing and parsing of an edit
+ * cost the statements it touches, not the document, only the bookkeeping is a pass over the statement list.
+ * <p>
+ * Not thread safe.
+ */
+public class IncrementalDocument {
+    private static final CommonTokenFactory COPY_TEXT = new CommonTokenFactory(true);
+
+    private String text;
+
+    private final List<Statement> statements = new ArrayList<>();
+
+    /**
+     * Options the formatted text of the statements was cached for
+     */
+    private String formattedWith;
+
+    private static final class Statement {
+        /**
+         * Char offsets in the document, start inclusive, end exclusive
+         */
+        private int start;
+
+        private int end;
+
+        /**
+         * Highest offset the lexer looked at to lex the tokens up to the end of this statement
+         */
+        private int lookahead;
+
+        /**
+         * Tokens of the statement, leading comments included, indexes and lines relative to the statement
+         */
+        private final List<Token> tokens;
+
+        private final StarRocksParser.SqlStatementsContext tree;
+
+        /**
+         * Syntax errors, {line, column} relative to the statement start, and message
+         */
+        private final List<int[]> errorPositions = new ArrayList<>();
+
+        private final List<String> errorMessages = new ArrayList<>();
+
+        private String formatted;
+
+        private Statement(int start, int end, List<Token> tokens) {
+            this.start = start;
+            this.end = end;
+            this.tokens = tokens;
+            StarRocksParser parser = new StarRocksParser(new CommonTokenStream(new ListTokenSource(tokens)));
+            parser.removeErrorListeners();
+            parser.addErrorListener(new BaseErrorListener() {
+                @Override
+                public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                        int charPositionInLine, String msg, RecognitionException e) {
+                    errorPositions.add(new int[] {line, charPositionInLine});
+                    errorMessages.add(msg);
+                }
+            });
+            this.tree = parser.sqlStatements();
+        }
+    }
+
+    public IncrementalDocument(String text) {
+        this.text = text;
+        List<Statement> all = new ArrayList<>();
+        lex(0, 0, 0, 0, all);
+        statements.addAll(all);
+    }
+
+    /**
+     * Replace {@code length} chars at {@code offset} with the replacement, and re-lex and re-parse the statements
+     * the edit touches
+     *
+     * @return number of statements parsed again
+     */
+    public int edit(int offset, int length, String replacement) {
+        Preconditions.checkPositionIndexes(offset, offset + length, text.length());
+        text = text.substring(0, offset) + replacement + text.substring(offset + length);
+        int delta = replacement.length() - length;
+
+        // first statement whose tokens depend on the edited text
+        int first = 0;
+        while (first < statements.size() && statements.get(first).lookahead < offset) {
+            first++;
+        }
+        int restart = first == 0 ? 0 : statements.get(first - 1).end;
+        List<Statement> relexed = new ArrayList<>();
+        int resume = lex(restart, offset + replacement.length(), delta, first, relexed);
+        for (int i = resume; i < statements.size(); i++) {
+            statements.get(i).start += delta;
+            statements.get(i).end += delta;
+            statements.get(i).lookahead += delta;
+        }
+        statements.subList(first, resume).clear();
+        statements.addAll(first, relexed);
+        return relexed.size();
+    }
+
+    /**
+     * Lex from {@code restart} and collect the statements into {@code out}. Once a statement ends at or after
+     * {@code editEnd} where an old statement ended before the edit, stop.
+     *
+     * @param from index of the first old statement which may be replaced
+     * @return index of the first old statement kept after the new ones
+     */
+    private int lex(int restart, int editEnd, int delta, int from, List<Statement> out) {
+        CharSequenceCharStream input = new CharSequenceCharStream(text, restart, "IncrementalDocument");
+        StarRocksLexer lexer = new StarRocksLexer(input);
+        lexer.setTokenFactory(COPY_TEXT);
+        lexer.removeErrorListeners();
+
+        List<Token> pending = new ArrayList<>();
+        int stop = -1;
+        boolean hasTokens = false;
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            if (pending.isEmpty() && token.getType() == StarRocksLexer.WS) {
+                continue;
+            }
+            pending.add(token);
+            if (token.getType() != StarRocksLexer.WS) {
+                stop = token.getStopIndex();
+            }
+            if (token.getType() == StarRocksLexer.SEMICOLON) {
+                int end = restart + stop + 1;
+                if (hasTokens) {
+                    out.add(statement(restart, pending, stop, restart + input.getLookahead()));
+                }
+                pending = new ArrayList<>();
+                hasTokens = false;
+                if (end - 1 >= editEnd) {
+                    int old = indexOfEnd(end - delta, from);
+                    if (old >= 0) {
+                        return old + 1;
+                    }
+                }
+            } else if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+                hasTokens = true;
+            }
+        }
+        if (hasTokens) {
+            out.add(statement(restart, pending, stop, restart + input.getLookahead()));
+        }
+        return statements.size();
+    }
+
+    /**
+     * Make a statement of the tokens lexed from {@code restart}, up to the token ending at {@code stop}
+     */
+    private static Statement statement(int restart, List<Token> tokens, int stop, int lookahead) {
+        // trailing whitespace of a statement without semicolon
+        while (tokens.get(tokens.size() - 1).getType() == StarRocksLexer.WS) {
+            tokens.remove(tokens.size() - 1);
+        }
+        Token first = tokens.get(0);
+        int base = first.getStartIndex();
+        int line = first.getLine();
+        int column = first.getCharPositionInLine();
+        for (Token token : tokens) {
+            CommonToken t = (CommonToken) token;
+            t.setStartIndex(t.getStartIndex() - base);
+            t.setStopIndex(t.getStopIndex() - base);
+            // columns on the first line count from the statement start, which moves when the line is edited
+            if (t.getLine() == line) {
+                t.setCharPositionInLine(t.getCharPositionInLine() - column);
+            }
+            t.setLine(t.getLine() - line + 1);
+        }
+        Statement statement = new Statement(restart + base, restart + stop + 1, tokens);
+        statement.lookahead = lookahead;
+        return statement;
+    }
+
+    private int firstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = statements.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (statements.get(mid).end < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int indexOfEnd(int end, int from) {
+        int i = firstEndingAtOrAfter(end);
+        return i >= from && i < statements.size() && statements.get(i).end == end ? i : -1;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    /**
+     * Ranges of the statements like {@link StatementSplitter#split} gives them, from the first token after the
+     * leading comments, which are kept with the statement for formatting only
+     */
+    public List<StatementRange> getStatements() {
+        List<StatementRange> ranges = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            int first = 0;
+            while (statement.tokens.get(first).getChannel() != Token.DEFAULT_CHANNEL) {
+                first++;
+            }
+            ranges.add(new StatementRange(statement.start + statement.tokens.get(first).getStartIndex(),
+                    statement.end));
+        }
+        return ranges;
+    }
+
+    /**
+     * Parse tree of the i-th statement, the same instance until an edit touches the statement
+     */
+    public StarRocksParser.SqlStatementsContext getTree(int i) {
+        return statements.get(i).tree;
+    }
+
+    /**
+     * Syntax errors of all statements, "line L:C message" with lines of the document like
+     * {@link FormatPrinter#format(String)} reports them
+     */
+    public List<String> getSyntaxErrors() {
+        List<String> errors = new ArrayList<>();
+        int line = 1;
+        int scanned = 0;
+        for (Statement statement : statements) {
+            if (statement.errorMessages.isEmpty()) {
+                continue;
+            }
+            for (; scanned < statement.start; scanned++) {
+                if (text.charAt(scanned) == '\n') {
+                    line++;
+                }
+            }
+            int column = statement.start - (text.lastIndexOf('\n', statement.start - 1) + 1);
+            for (int i = 0; i < statement.errorMessages.size(); i++) {
+                int[] position = statement.errorPositions.get(i);
+                errors.add("line %d:%d %s".formatted(line + position[0] - 1,
+                        position[0] == 1 ? column + position[1] : position[1], statement.errorMessages.get(i)));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Format the document statement by statement from the kept trees. Statements not touched since the last call
+     * with the same options are not formatted again.
+     *
+     * @throws IllegalArgumentException with the syntax errors, if any statement has one
+     */
+    public String format(FormatOptions options) {
+        List<String> errors = getSyntaxErrors();
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", errors));
+        }
+        String key = options.toJson();
+        if (!key.equals(formattedWith)) {
+            statements.forEach(s -> s.formatted = null);
+            formattedWith = key;
+        }
+        StringJoiner joiner = new StringJoiner("\n");
+        for (Statement statement : statements) {
+            if (statement.formatted == null) {
+                statement.formatted = options.mode == FormatOptions.Mode.NORMALIZE
+                        ? Printer.create(options).format(text.substring(statement.start, statement.end))
+                        : new FormatPrinter(options).format(statement.tokens, statement.tree);
+            }
+            joiner.add(statement.formatted);
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,221 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import com.starsqls.parser.StarRocksLexer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fast path for bulk {@code INSERT ... VALUES} statements, which dominate data-migration scripts.
+ * <p>
+ * Every literal of a VALUES row would become a handful of parse tree nodes. The scanner checks the rows with the
+ * tokens alone and moves all rows but the first to {@link #ELIDED_CHANNEL}, so the parser only sees
+ * {@code INSERT ... VALUES (first row)} and still validates the statement head. {@link #write} then prints the
+ * elided rows in a loop over the token arrays, with the builder calls the visitor makes for the same literals, so
+ * the output doesn't depend on the path a row took.
+ * <p>
+ * Only rows of plain literals are elided: numbers, optionally signed, strings, NULL, TRUE, FALSE and DEFAULT. A
+ * statement with any other row, e.g. a function call or an expression, is left to the parser as a whole.
+ */
+public class InsertValuesScanner {
+    /**
+     * Channel of the elided tokens, the parser only reads the default channel
+     */
+    public static final int ELIDED_CHANNEL = 3;
+
+    private final CompactTokenStream tokens;
+
+    /**
+     * Token index of the first row's ')' -> token index of the last row's ')'
+     */
+    private final Map<Integer, Integer> elided = new HashMap<>();
+
+    public InsertValuesScanner(CompactTokenStream tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Elide the rows of the bulk inserts in the filled stream, before it is parsed.
+     *
+     * @return number of rows elided
+     */
+    public int scan() {
+        int rows = 0;
+        int i = next(0);
+        while (tokens.getType(i) != Token.EOF) {
+            int end = statementEnd(i);
+            if (tokens.getType(i) == StarRocksLexer.INSERT) {
+                rows += scanInsert(i, end);
+            }
+            if (tokens.getType(end) == Token.EOF) {
+                break;
+            }
+            i = next(end + 1);
+        }
+        return rows;
+    }
+
+    /**
+     * Token index of the last elided row following the row ending at rowEnd, -1 if none
+     */
+    public int elidedAfter(int rowEnd) {
+        return elided.getOrDefault(rowEnd, -1);
+    }
+
+    /**
+     * Print the rows elided after the row ending at rowEnd
+     *
+     * @param rowSeparator separator between two rows
+     * @param comma        separator between two values of a row
+     */
+    public void write(SQLBuilder sql, int rowEnd, String rowSeparator, String comma) {
+        int last = elidedAfter(rowEnd);
+        boolean inRow = false;
+        for (int i = rowEnd + 1; i <= last; i++) {
+            if (tokens.getChannel(i) != ELIDED_CHANNEL) {
+                continue;
+            }
+            int type = tokens.getType(i);
+            if (type == ClauseLayout.COMMA) {
+                sql.append(inRow ? comma : rowSeparator);
+            } else if (type == ClauseLayout.LEFT_PAREN) {
+                sql.append("(");
+                inRow = true;
+            } else if (type == ClauseLayout.RIGHT_PAREN) {
+                sql.append(")");
+                inRow = false;
+            } else if (type == StarRocksLexer.NULL) {
+                sql.appendKey(tokens.getText(i));
+            } else if (type == StarRocksLexer.DEFAULT) {
+                sql.space().appendKey(tokens.getText(i), false, false);
+            } else if (type == StarRocksLexer.TRUE || type == StarRocksLexer.FALSE) {
+                sql.appendKey(tokens.getText(i), false, false);
+            } else {
+                // numbers, signs and strings are printed as they are
+                sql.append(tokens.getText(i));
+            }
+        }
+    }
+
+    private int next(int i) {
+        while (tokens.getChannel(i) != Token.DEFAULT_CHANNEL && tokens.getType(i) != Token.EOF) {
+            i++;
+        }
+        return i;
+    }
+
+    private int statementEnd(int i) {
+        while (tokens.getType(i) != StarRocksLexer.SEMICOLON && tokens.getType(i) != Token.EOF) {
+            i = next(i + 1);
+        }
+        return i;
+    }
+
+    private int scanInsert(int start, int end) {
+        int values = -1;
+        int depth = 0;
+        for (int i = start; i < end; i = next(i + 1)) {
+            int type = tokens.getType(i);
+            if (type == ClauseLayout.LEFT_PAREN) {
+                depth++;
+            } else if (type == ClauseLayout.RIGHT_PAREN) {
+                depth--;
+            } else if (type == StarRocksLexer.VALUES && depth == 0) {
+                values = i;
+                break;
+            }
+        }
+        if (values < 0) {
+            return 0;
+        }
+
+        int first = row(next(values + 1));
+        if (first < 0) {
+            return 0;
+        }
+        int last = first;
+        int rows = 0;
+        for (int i = next(first + 1); i < end; i = next(last + 1)) {
+            if (tokens.getType(i) != ClauseLayout.COMMA) {
+                return 0;
+            }
+            last = row(next(i + 1));
+            if (last < 0) {
+                return 0;
+            }
+            rows++;
+        }
+        if (rows == 0) {
+            return 0;
+        }
+
+        for (int i = first + 1; i <= last; i++) {
+            if (tokens.getChannel(i) == Token.DEFAULT_CHANNEL) {
+                tokens.setChannel(i, ELIDED_CHANNEL);
+            }
+        }
+        elided.put(first, last);
+        return rows;
+    }
+
+    /**
+     * Index of the ')' closing the row of literals starting at i, -1 if it is not one
+     */
+    private int row(int i) {
+        if (tokens.getType(i) != ClauseLayout.LEFT_PAREN) {
+            return -1;
+        }
+        while (true) {
+            int value = value(next(i + 1));
+            if (value < 0) {
+                return -1;
+            }
+            i = next(value + 1);
+            int type = tokens.getType(i);
+            if (type == ClauseLayout.RIGHT_PAREN) {
+                return i;
+            } else if (type != ClauseLayout.COMMA) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Index of the last token of the literal starting at i, -1 if it is not one
+     */
+    private int value(int i) {
+        switch (tokens.getType(i)) {
+            case StarRocksLexer.MINUS_SYMBOL:
+            case StarRocksLexer.PLUS_SYMBOL:
+                int number = next(i + 1);
+                return isNumber(tokens.getType(number)) ? number : -1;
+            case StarRocksLexer.SINGLE_QUOTED_TEXT:
+            case StarRocksLexer.DOUBLE_QUOTED_TEXT:
+            case StarRocksLexer.NULL:
+            case StarRocksLexer.TRUE:
+            case StarRocksLexer.FALSE:
+            case StarRocksLexer.DEFAULT:
+                return i;
+            default:
+                return isNumber(tokens.getType(i)) ? i : -1;
+        }
+    }
+
+    private static boolean isNumber(int type) {
+        return type == StarRocksLexer.INTEGER_VALUE || type == StarRocksLexer.DECIMAL_VALUE
+                || type == StarRocksLexer.DOUBLE_VALUE;
+    }
+}
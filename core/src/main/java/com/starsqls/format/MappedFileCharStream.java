@@ -0,0 +1,198 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Char stream over a memory-mapped UTF-8 file, decoded lazily while the lexer reads it. Unlike
+ * {@link java.nio.file.Files#readString(Path)} followed by {@link org.antlr.v4.runtime.CharStreams#fromString(String)},
+ * the file is neither decoded into a String nor copied into a code point buffer, the heap only holds the text of
+ * the tokens.
+ * <p>
+ * Indexes are byte offsets into the file: {@link #LA(int)} returns code points, a character of n UTF-8 bytes takes n
+ * indexes, and token start/stop indexes are byte offsets. ASCII bytes are returned as they are, malformed sequences
+ * as U+FFFD one byte at a time. A UTF-8 byte order mark is skipped. Files are limited to 2 GB, the index range
+ * of a char stream.
+ */
+public class MappedFileCharStream implements CharStream {
+    private static final int REPLACEMENT = 0xFFFD;
+
+    private final MappedByteBuffer buffer;
+
+    private final int offset;
+
+    private final int size;
+
+    private final String sourceName;
+
+    private int index;
+
+    private MappedFileCharStream(MappedByteBuffer buffer, String sourceName) {
+        this.buffer = buffer;
+        this.offset = hasBom(buffer) ? 3 : 0;
+        this.size = buffer.limit() - offset;
+        this.sourceName = sourceName;
+    }
+
+    public static MappedFileCharStream open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File larger than 2 GB, split it: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            return new MappedFileCharStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), file.toString());
+        }
+    }
+
+    private static boolean hasBom(MappedByteBuffer buffer) {
+        return buffer.limit() >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB
+                && (buffer.get(2) & 0xFF) == 0xBF;
+    }
+
+    @Override
+    public void consume() {
+        if (index >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        index += sequenceLength(index);
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0;
+        }
+        int p = index;
+        if (i > 0) {
+            for (int k = 1; k < i && p < size; k++) {
+                p += sequenceLength(p);
+            }
+            return p < size ? decode(p) : IntStream.EOF;
+        }
+        for (int k = 0; k > i; k--) {
+            if (p <= 0) {
+                return IntStream.EOF;
+            }
+            p = previous(p);
+        }
+        return decode(p);
+    }
+
+    private int byteAt(int p) {
+        return buffer.get(offset + p) & 0xFF;
+    }
+
+    /**
+     * Number of bytes of the character at p, 1 for ASCII and malformed bytes
+     */
+    private int sequenceLength(int p) {
+        int b = byteAt(p);
+        if (b < 0x80) {
+            return 1;
+        }
+        int length = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+        if (length == 1 || p + length > size) {
+            return 1;
+        }
+        for (int k = 1; k < length; k++) {
+            if ((byteAt(p + k) & 0xC0) != 0x80) {
+                return 1;
+            }
+        }
+        return length;
+    }
+
+    private int decode(int p) {
+        int b = byteAt(p);
+        if (b < 0x80) {
+            return b;
+        }
+        int length = sequenceLength(p);
+        if (length == 1) {
+            return REPLACEMENT;
+        }
+        int codePoint = b & (0xFF >> (length + 1));
+        for (int k = 1; k < length; k++) {
+            codePoint = (codePoint << 6) | (byteAt(p + k) & 0x3F);
+        }
+        return codePoint;
+    }
+
+    /**
+     * Start of the character before p
+     */
+    private int previous(int p) {
+        int start = p - 1;
+        while (start > 0 && p - start < 4 && (byteAt(start) & 0xC0) == 0x80) {
+            start--;
+        }
+        return start + sequenceLength(start) == p ? start : p - 1;
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        this.index = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.min(interval.a, size);
+        int stop = Math.min(interval.b, size - 1);
+        if (stop < start) {
+            return "";
+        }
+        byte[] bytes = new byte[stop - start + 1];
+        buffer.get(offset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
@@ -0,0 +1,32 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+/**
+ * Thrown when a job stops because its {@link CancellationToken} was cancelled or expired
+ */
+public class OperationCancelledException extends RuntimeException {
+    private final boolean timeout;
+
+    public OperationCancelledException(String message, boolean timeout) {
+        super(message);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Whether the deadline has passed, otherwise the job was cancelled explicitly
+     */
+    public boolean isTimeout() {
+        return timeout;
+    }
+}
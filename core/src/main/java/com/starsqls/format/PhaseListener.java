@@ -0,0 +1,39 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+/**
+ * Receives timings and sizes of a format or DAG analysis run, e.g. to export them as metrics.
+ * Called on the thread doing the work, implementations should be cheap.
+ */
+public interface PhaseListener {
+    PhaseListener NONE = (phase, nanos) -> {
+    };
+
+    /**
+     * A phase finished, phases which run interleaved (streaming output) are reported once with the total time
+     */
+    void onPhase(FormatPhase phase, long nanos);
+
+    /**
+     * Token count of the input, including hidden tokens
+     */
+    default void onTokens(int tokens) {
+    }
+
+    /**
+     * The input has syntax errors
+     */
+    default void onParseFailure() {
+    }
+}
@@ -2,11 +2,45 @@ package com.starsqls.format;
 
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public interface Printer {
     String format(String sql);
 
     String format(ParseTree tree);
 
+    /**
+     * Format the script into the writer, printers that can write statement by statement don't build the whole
+     * result in memory
+     */
+    default void format(String sql, Writer out) throws IOException {
+        out.write(format(sql));
+        out.flush();
+    }
+
+    /**
+     * Format a UTF-8 file into the writer, printers that can lex from the file directly don't decode it into a
+     * String first
+     */
+    default void format(Path file, Writer out) throws IOException {
+        format(Files.readString(file), out);
+    }
+
+    /**
+     * Stop formatting with {@link OperationCancelledException} once the token is cancelled or expired
+     */
+    default void setCancellationToken(CancellationToken cancellation) {
+    }
+
+    /**
+     * Report phase timings of the following format calls to the listener
+     */
+    default void setPhaseListener(PhaseListener listener) {
+    }
+
     static Printer create(FormatOptions options) {
         if (options.mode == FormatOptions.Mode.FORMAT) {
             return new FormatPrinter(options);
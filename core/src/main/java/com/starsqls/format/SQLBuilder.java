@@ -28,6 +28,7 @@ public class SQLBuilder {
     private String linePrefix = "";
     private int lastBreakPoint = 0;
     private int lastNewLineIndex = 0; // Cache last newline position for performance
+    private FormatProfile profile;
 
     public SQLBuilder(FormatOptions options) {
         this.options = options;
@@ -47,6 +48,13 @@ public class SQLBuilder {
         this.newLine = options.mode == FormatOptions.Mode.MINIFY ? "" : "\n";
     }
 
+    /**
+     * Record the time spent in line breaking, only set while profiling
+     */
+    void setProfile(FormatProfile profile) {
+        this.profile = profile;
+    }
+
     public void intoLevel(Runnable func) {
         indentLevel++;
         func.run();
@@ -125,6 +133,18 @@ public class SQLBuilder {
     }
 
     private void breakMaxLength() {
+        if (profile == null) {
+            doBreakMaxLength();
+            return;
+        }
+        long bytes = FormatProfile.allocatedBytes();
+        long start = System.nanoTime();
+        doBreakMaxLength();
+        long nanos = System.nanoTime() - start;
+        profile.add(FormatProfile.Phase.LINE_BREAK, nanos, bytes < 0 ? -1 : FormatProfile.allocatedBytes() - bytes);
+    }
+
+    private void doBreakMaxLength() {
         // Use cached newline position instead of lastIndexOf
         int preLineIndex = Math.max(0, lastNewLineIndex);
         int currentLineLength = sql.length() - preLineIndex;
@@ -229,6 +249,35 @@ public class SQLBuilder {
         return this;
     }
 
+    /**
+     * Separate the next token from the last one with a space, unless it already follows a space, a new line, an
+     * opening bracket, a dot or a comma (the comma style decides the space after commas)
+     */
+    public SQLBuilder space() {
+        if (!sql.isEmpty()) {
+            char l = sql.charAt(sql.length() - 1);
+            if (!Character.isWhitespace(l) && l != '(' && l != '[' && l != '.' && l != ',') {
+                sql.append(' ');
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Whether nothing but the indent was written since the last new line
+     */
+    public boolean isLineStart() {
+        for (int i = sql.length() - 1; i >= 0; i--) {
+            char c = sql.charAt(i);
+            if (c == '\n') {
+                return true;
+            } else if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public SQLBuilder appendBreak(boolean isBreak) {
         if (isBreak) {
             appendNewLine();
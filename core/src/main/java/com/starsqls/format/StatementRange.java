@@ -0,0 +1,65 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+/**
+ * Character range of one statement in a script, from its first token (comments before it excluded) to its
+ * semicolon, or to its last token if it has none.
+ */
+public class StatementRange {
+    /**
+     * Offset of the first char, inclusive
+     */
+    private final int start;
+
+    /**
+     * Offset after the last char, exclusive
+     */
+    private final int end;
+
+    public StatementRange(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public boolean intersects(int start, int end) {
+        return this.start <= end && start <= this.end;
+    }
+
+    public String text(CharSequence script) {
+        return script.subSequence(start, end).toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StatementRange other && start == other.start && end == other.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start + end;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ")";
+    }
+}
@@ -0,0 +1,173 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.format;
+
+import com.starsqls.parser.StarRocksLexer;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a script into statements with the lexer alone, so an editor can format the statement it edits instead of
+ * the whole file. Semicolons inside strings, quoted identifiers and comments are single tokens, splitting on the
+ * SEMICOLON token is enough without parsing.
+ */
+public class StatementSplitter {
+
+    /**
+     * Ranges of the statements in the script in order. Empty statements and trailing comments are skipped, a range
+     * starts at the first token of the statement, comments before it are left outside.
+     */
+    public List<StatementRange> split(String script) {
+        StarRocksLexer lexer = new StarRocksLexer(CharStreams.fromString(script));
+        lexer.removeErrorListeners();
+        CharOffsets offsets = CharOffsets.of(script);
+
+        List<StatementRange> ranges = new ArrayList<>();
+        int start = -1;
+        int stop = -1;
+        boolean hasTokens = false;
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            if (token.getType() == StarRocksLexer.WS) {
+                continue;
+            }
+            if (start < 0) {
+                if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+                    continue;
+                }
+                start = token.getStartIndex();
+            }
+            stop = token.getStopIndex();
+            if (token.getType() == StarRocksLexer.SEMICOLON) {
+                if (hasTokens) {
+                    ranges.add(new StatementRange(offsets.charIndex(start), offsets.charIndex(stop + 1)));
+                }
+                start = -1;
+                hasTokens = false;
+            } else if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+                hasTokens = true;
+            }
+        }
+        if (hasTokens) {
+            ranges.add(new StatementRange(offsets.charIndex(start), offsets.charIndex(stop + 1)));
+        }
+        return ranges;
+    }
+
+    /**
+     * The statement at the caret: the one containing it or ending right before it, else the next one.
+     * Null if the script has no statements.
+     */
+    public static StatementRange statementAt(List<StatementRange> ranges, int offset) {
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        // last statement starting at or before the offset
+        int low = 0;
+        int high = ranges.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ranges.get(mid).getStart() <= offset) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return ranges.get(Math.max(found, 0));
+    }
+
+    /**
+     * Statements intersecting the changed range [start, end], touching counts as intersecting
+     */
+    public static List<StatementRange> statementsIn(List<StatementRange> ranges, int start, int end) {
+        List<StatementRange> result = new ArrayList<>();
+        for (StatementRange range : ranges) {
+            if (range.getStart() > end) {
+                break;
+            }
+            if (range.intersects(start, end)) {
+                result.add(range);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Format the statements intersecting [start, end] and splice them back into the script, the rest of the script
+     * is kept as it is. A statement with a syntax error fails the whole call, like formatting the whole script.
+     *
+     * @param options a new printer is created for every statement, comments are kept whatever ignoreComment says
+     */
+    public String formatRange(String script, int start, int end, FormatOptions options) {
+        List<StatementRange> ranges = statementsIn(split(script), start, end);
+        if (ranges.isEmpty()) {
+            return script;
+        }
+        FormatOptions keepComments = keepComments(options);
+        StringBuilder sb = new StringBuilder(script.length());
+        int last = 0;
+        for (StatementRange range : ranges) {
+            sb.append(script, last, range.getStart());
+            sb.append(Printer.create(keepComments).format(range.text(script)));
+            last = range.getEnd();
+        }
+        return sb.append(script, last, script.length()).toString();
+    }
+
+    /**
+     * Copy of the options with ignoreComment off. Formatting statements inside a script the user edits must not
+     * drop the comments in them, unlike formatting a query to copy it somewhere else.
+     */
+    public static FormatOptions keepComments(FormatOptions options) {
+        FormatOptions copy = FormatOptions.fromJson(options.toJson());
+        copy.ignoreComment = false;
+        return copy;
+    }
+
+    /**
+     * Maps the code point indexes of the char stream to char offsets of the string, only needed when the script
+     * has supplementary characters
+     */
+    private static class CharOffsets {
+        private static final CharOffsets IDENTITY = new CharOffsets(null);
+
+        private final int[] charIndex;
+
+        private CharOffsets(int[] charIndex) {
+            this.charIndex = charIndex;
+        }
+
+        static CharOffsets of(String script) {
+            int codePoints = script.codePointCount(0, script.length());
+            if (codePoints == script.length()) {
+                return IDENTITY;
+            }
+            int[] index = new int[codePoints + 1];
+            int offset = 0;
+            for (int i = 0; i < codePoints; i++) {
+                index[i] = offset;
+                offset += Character.charCount(script.codePointAt(offset));
+            }
+            index[codePoints] = offset;
+            return new CharOffsets(index);
+        }
+
+        int charIndex(int codePointIndex) {
+            return charIndex == null ? codePointIndex : charIndex[codePointIndex];
+        }
+    }
+}
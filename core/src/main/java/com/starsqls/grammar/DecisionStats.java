@@ -0,0 +1,120 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.grammar;
+
+/**
+ * Prediction statistics of one parser decision, summed over a corpus
+ */
+public class DecisionStats {
+    private final int decision;
+    private final String rule;
+    private final String kind;
+    private final int alternatives;
+    long invocations;
+    long timeInPrediction;
+    long sllLookahead;
+    long llLookahead;
+    long llFallback;
+    long sllMaxLookahead;
+    long llMaxLookahead;
+    long ambiguities;
+    long contextSensitivities;
+    long errors;
+    String maxLookaheadSample;
+    String ambiguitySample;
+
+    DecisionStats(int decision, String rule, String kind, int alternatives) {
+        this.decision = decision;
+        this.rule = rule;
+        this.kind = kind;
+        this.alternatives = alternatives;
+    }
+
+    public int getDecision() {
+        return decision;
+    }
+
+    /**
+     * Grammar rule containing the decision
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    /**
+     * Kind of the decision state, e.g. "Block" for an alternative block or "StarLoopEntry" for a (...)* loop
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    public int getAlternatives() {
+        return alternatives;
+    }
+
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * Nanoseconds spent in adaptivePredict for the decision
+     */
+    public long getTimeInPrediction() {
+        return timeInPrediction;
+    }
+
+    public long getSllLookahead() {
+        return sllLookahead;
+    }
+
+    public long getLlLookahead() {
+        return llLookahead;
+    }
+
+    /**
+     * Predictions which SLL could not decide and which fell back to full LL
+     */
+    public long getLlFallback() {
+        return llFallback;
+    }
+
+    public long getMaxLookahead() {
+        return Math.max(sllMaxLookahead, llMaxLookahead);
+    }
+
+    public long getAmbiguities() {
+        return ambiguities;
+    }
+
+    public long getContextSensitivities() {
+        return contextSensitivities;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Source and text of the input which needed the deepest lookahead
+     */
+    public String getMaxLookaheadSample() {
+        return maxLookaheadSample;
+    }
+
+    /**
+     * Source and text of the first ambiguous input
+     */
+    public String getAmbiguitySample() {
+        return ambiguitySample;
+    }
+}
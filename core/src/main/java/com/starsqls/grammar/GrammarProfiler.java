@@ -0,0 +1,228 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.grammar;
+
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.DecisionEventInfo;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import org.antlr.v4.runtime.atn.DecisionState;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Runs the parser with profiling over a corpus of SQL files and ranks the grammar decisions by full-LL fallbacks,
+ * ambiguities, lookahead depth or prediction time. Decisions are mapped back to their rule in StarRocks.g4, with
+ * a sample of the input that made them expensive.
+ * <p>
+ * The parser DFA cache is shared by all parsers in the JVM, so the first files of a corpus pay for filling it.
+ * Run over a large enough corpus, or twice, to see the steady state.
+ */
+public class GrammarProfiler {
+
+    public enum Ranking {
+        FALLBACK(Comparator.comparingLong(DecisionStats::getLlFallback)),
+        AMBIGUITY(Comparator.comparingLong(DecisionStats::getAmbiguities)),
+        LOOKAHEAD(Comparator.comparingLong(DecisionStats::getMaxLookahead)),
+        TIME(Comparator.comparingLong(DecisionStats::getTimeInPrediction));
+
+        private final Comparator<DecisionStats> order;
+
+        Ranking(Comparator<DecisionStats> order) {
+            this.order = order.thenComparingLong(DecisionStats::getTimeInPrediction).reversed();
+        }
+    }
+
+    private static final int SAMPLE_LENGTH = 120;
+
+    private final Map<Integer, DecisionStats> decisions = new HashMap<>();
+
+    private int scripts;
+
+    private int syntaxErrors;
+
+    private long tokens;
+
+    private long parseNanos;
+
+    /**
+     * Parse one script and add its decision statistics
+     *
+     * @param source name of the script in the samples, e.g. the file path
+     */
+    public void profile(String sql, String source) {
+        StarRocksLexer lexer = new StarRocksLexer(CharStreams.fromString(sql));
+        lexer.removeErrorListeners();
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+        tokenStream.fill();
+        StarRocksParser parser = new StarRocksParser(tokenStream);
+        parser.removeErrorListeners();
+        parser.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                syntaxErrors++;
+            }
+        });
+        parser.setProfile(true);
+
+        long start = System.nanoTime();
+        parser.sqlStatements();
+        parseNanos += System.nanoTime() - start;
+        scripts++;
+        tokens += tokenStream.size();
+
+        for (DecisionInfo info : parser.getParseInfo().getDecisionInfo()) {
+            if (info.invocations == 0) {
+                continue;
+            }
+            DecisionStats stats = decisions.computeIfAbsent(info.decision, d -> newStats(parser, d));
+            stats.invocations += info.invocations;
+            stats.timeInPrediction += info.timeInPrediction;
+            stats.sllLookahead += info.SLL_TotalLook;
+            stats.llLookahead += info.LL_TotalLook;
+            stats.llFallback += info.LL_Fallback;
+            stats.ambiguities += info.ambiguities.size();
+            stats.contextSensitivities += info.contextSensitivities.size();
+            stats.errors += info.errors.size();
+            if (Math.max(info.SLL_MaxLook, info.LL_MaxLook) > stats.getMaxLookahead()) {
+                DecisionEventInfo event = info.LL_MaxLook > info.SLL_MaxLook ? info.LL_MaxLookEvent
+                        : info.SLL_MaxLookEvent;
+                stats.maxLookaheadSample = sample(source, event);
+            }
+            stats.sllMaxLookahead = Math.max(stats.sllMaxLookahead, info.SLL_MaxLook);
+            stats.llMaxLookahead = Math.max(stats.llMaxLookahead, info.LL_MaxLook);
+            if (stats.ambiguitySample == null && !info.ambiguities.isEmpty()) {
+                stats.ambiguitySample = sample(source, info.ambiguities.get(0));
+            }
+        }
+    }
+
+    public void profile(Path file) throws IOException {
+        profile(Files.readString(file), file.toString());
+    }
+
+    private static DecisionStats newStats(StarRocksParser parser, int decision) {
+        DecisionState state = parser.getATN().getDecisionState(decision);
+        String kind = state.getClass().getSimpleName().replace("State", "");
+        return new DecisionStats(decision, parser.getRuleNames()[state.ruleIndex], kind,
+                state.getNumberOfTransitions());
+    }
+
+    private static String sample(String source, DecisionEventInfo event) {
+        if (event == null || !(event.input instanceof TokenStream input)) {
+            return null;
+        }
+        String text = input.getText(Interval.of(event.startIndex, event.stopIndex)).replaceAll("\\s+", " ");
+        if (text.length() > SAMPLE_LENGTH) {
+            text = text.substring(0, SAMPLE_LENGTH) + "...";
+        }
+        return source + ": " + text;
+    }
+
+    /**
+     * Decisions which were predicted at least once, the most expensive first
+     */
+    public List<DecisionStats> ranked(Ranking ranking) {
+        List<DecisionStats> result = new ArrayList<>(decisions.values());
+        result.sort(ranking.order);
+        return result;
+    }
+
+    /**
+     * Report the top decisions, and their rules summed up
+     */
+    public String report(Ranking ranking, int top) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d scripts, %d tokens, %d syntax errors, parse %d ms, %d decisions used%n%n",
+                scripts, tokens, syntaxErrors, parseNanos / 1_000_000, decisions.size()));
+        sb.append(String.format("%-8s %-28s %-14s %4s %10s %10s %10s %9s %6s %10s%n", "decision", "rule", "kind",
+                "alts", "calls", "predict us", "LL fallbk", "ambiguous", "max LA", "avg LA"));
+        for (DecisionStats d : ranked(ranking).subList(0, Math.min(top, decisions.size()))) {
+            sb.append(String.format("%-8d %-28s %-14s %4d %10d %10d %10d %9d %6d %10.2f%n", d.getDecision(),
+                    d.getRule(), d.getKind(), d.getAlternatives(), d.getInvocations(), d.getTimeInPrediction() / 1000,
+                    d.getLlFallback(), d.getAmbiguities(), d.getMaxLookahead(),
+                    (double) (d.getSllLookahead() + d.getLlLookahead()) / d.getInvocations()));
+            if (d.getMaxLookaheadSample() != null && d.getMaxLookahead() > 1) {
+                sb.append("         max lookahead at ").append(d.getMaxLookaheadSample()).append('\n');
+            }
+            if (d.getAmbiguitySample() != null) {
+                sb.append("         ambiguous at ").append(d.getAmbiguitySample()).append('\n');
+            }
+        }
+
+        Map<String, long[]> rules = new HashMap<>();
+        for (DecisionStats d : decisions.values()) {
+            long[] sum = rules.computeIfAbsent(d.getRule(), r -> new long[3]);
+            sum[0] += d.getTimeInPrediction();
+            sum[1] += d.getLlFallback();
+            sum[2] += d.getAmbiguities();
+        }
+        sb.append(String.format("%n%-28s %10s %10s %9s%n", "rule", "predict us", "LL fallbk", "ambiguous"));
+        rules.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[0]).reversed())
+                .limit(top)
+                .forEach(e -> sb.append(String.format("%-28s %10d %10d %9d%n", e.getKey(), e.getValue()[0] / 1000,
+                        e.getValue()[1], e.getValue()[2])));
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Ranking ranking = Ranking.FALLBACK;
+        int top = 30;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sort" -> ranking = Ranking.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                case "--top" -> top = Integer.parseInt(args[++i]);
+                default -> files.addAll(sqlFiles(Path.of(args[i])));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: GrammarProfiler [--sort fallback|ambiguity|lookahead|time] [--top n] "
+                    + "dir-or-file...");
+            System.exit(2);
+        }
+
+        GrammarProfiler profiler = new GrammarProfiler();
+        for (Path file : files) {
+            profiler.profile(file);
+        }
+        System.out.print(profiler.report(ranking, top));
+    }
+
+    private static List<Path> sqlFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            return walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".sql")).sorted().toList();
+        }
+    }
+}
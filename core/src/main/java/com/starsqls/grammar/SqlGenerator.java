@@ -0,0 +1,383 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.grammar;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+
+/**
+ * Seeded generator of SELECT statements for scalability benchmarks. The same seed and {@link Shape} always give
+ * the same SQL.
+ * <p>
+ * Every size of a {@link Shape} scales one construct and leaves the rest of the statement alone, so the cost of
+ * format, parse and DAG analysis can be measured per dimension:
+ * <ul>
+ *   <li>columns: select items of the outer query (column refs, aggregates, CASE WHEN, CAST, window functions)</li>
+ *   <li>joins: joined relations of the outer query, with one or two join keys each</li>
+ *   <li>depth: subqueries nested in the FROM clause</li>
+ *   <li>ctes: WITH entries, later entries and the main query read the earlier ones as well as tables</li>
+ *   <li>inList: values of an IN predicate in the outer WHERE</li>
+ *   <li>comments: percent of clauses and select items getting a line or block comment</li>
+ * </ul>
+ * The statements only use constructs the formatter and the DAG analyzer handle, they are syntactically valid
+ * StarRocks SQL but the tables and columns don't exist.
+ */
+public class SqlGenerator {
+
+    /**
+     * Sizes of a generated statement
+     */
+    public static class Shape {
+        private int columns = 8;
+
+        private int joins = 2;
+
+        private int depth = 1;
+
+        private int ctes = 0;
+
+        private int inList = 0;
+
+        private int comments = 0;
+
+        public int getColumns() {
+            return columns;
+        }
+
+        public Shape setColumns(int columns) {
+            this.columns = Math.max(1, columns);
+            return this;
+        }
+
+        public int getJoins() {
+            return joins;
+        }
+
+        public Shape setJoins(int joins) {
+            this.joins = Math.max(0, joins);
+            return this;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public Shape setDepth(int depth) {
+            this.depth = Math.max(0, depth);
+            return this;
+        }
+
+        public int getCtes() {
+            return ctes;
+        }
+
+        public Shape setCtes(int ctes) {
+            this.ctes = Math.max(0, ctes);
+            return this;
+        }
+
+        public int getInList() {
+            return inList;
+        }
+
+        public Shape setInList(int inList) {
+            this.inList = Math.max(0, inList);
+            return this;
+        }
+
+        public int getComments() {
+            return comments;
+        }
+
+        /**
+         * Percent of clauses and select items with a comment, 0 to 100
+         */
+        public Shape setComments(int comments) {
+            this.comments = Math.min(100, Math.max(0, comments));
+            return this;
+        }
+
+        /**
+         * Set one dimension by name: columns, joins, depth, ctes, inList or comments
+         */
+        public Shape set(String dimension, int size) {
+            return switch (dimension) {
+                case "columns" -> setColumns(size);
+                case "joins" -> setJoins(size);
+                case "depth" -> setDepth(size);
+                case "ctes" -> setCtes(size);
+                case "inList" -> setInList(size);
+                case "comments" -> setComments(size);
+                default -> throw new IllegalArgumentException("Unknown dimension: " + dimension);
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "columns=" + columns + ", joins=" + joins + ", depth=" + depth + ", ctes=" + ctes
+                    + ", inList=" + inList + ", comments=" + comments;
+        }
+    }
+
+    /**
+     * Select items of nested queries and CTE bodies, they don't grow with {@link Shape#columns}
+     */
+    private static final int INNER_COLUMNS = 4;
+
+    private static final int COLUMN_NAMES = 20;
+
+    private static final String[] AGGREGATES = {"sum", "max", "min", "avg"};
+
+    private static final String[] JOIN_TYPES = {"JOIN", "LEFT JOIN", "INNER JOIN", "LEFT OUTER JOIN"};
+
+    private static final String[] TYPES = {"BIGINT", "DOUBLE", "VARCHAR(64)", "DATE"};
+
+    private final Random random;
+
+    private Shape shape;
+
+    private StringBuilder sql;
+
+    private List<String> cteNames;
+
+    private int commentCount;
+
+    public SqlGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generate one statement, without a trailing semicolon
+     */
+    public String generate(Shape shape) {
+        this.shape = shape;
+        this.sql = new StringBuilder();
+        this.cteNames = new ArrayList<>();
+        this.commentCount = 0;
+        if (shape.ctes > 0) {
+            sql.append("WITH ");
+            for (int i = 0; i < shape.ctes; i++) {
+                if (i > 0) {
+                    sql.append(",\n");
+                }
+                String name = "cte_" + i;
+                sql.append(name).append(" AS (\n");
+                query(INNER_COLUMNS, 0, 0, 0);
+                sql.append("\n)");
+                cteNames.add(name);
+            }
+            sql.append('\n');
+        }
+        query(shape.columns, shape.joins, shape.depth, shape.inList);
+        return sql.toString();
+    }
+
+    /**
+     * Generate a script of statements separated by semicolons
+     */
+    public String script(Shape shape, int statements) {
+        StringJoiner script = new StringJoiner(";\n\n", "", ";\n");
+        for (int i = 0; i < statements; i++) {
+            script.add(generate(shape));
+        }
+        return script.toString();
+    }
+
+    private void query(int columns, int joins, int depth, int inList) {
+        int relations = joins + 1;
+        lineComment();
+        sql.append("SELECT ");
+        if (random.nextInt(10) == 0) {
+            sql.append("DISTINCT ");
+        }
+        boolean grouped = random.nextBoolean();
+        for (int i = 0; i < columns; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            // the first two items are the GROUP BY keys
+            sql.append(i < 2 || !grouped ? expression(relations) : aggregate(relations));
+            sql.append(" AS col_").append(i);
+            blockComment();
+        }
+
+        sql.append('\n');
+        lineComment();
+        sql.append("FROM ");
+        relation(0, depth);
+        for (int j = 1; j < relations; j++) {
+            sql.append('\n');
+            lineComment();
+            sql.append(pick(JOIN_TYPES)).append(' ');
+            relation(j, 0);
+            sql.append(" ON t0.").append(column()).append(" = t").append(j).append('.').append(column());
+            if (random.nextBoolean()) {
+                sql.append(" AND t").append(random.nextInt(j)).append('.').append(column())
+                        .append(" = t").append(j).append('.').append(column());
+            }
+        }
+
+        sql.append('\n');
+        lineComment();
+        sql.append("WHERE ").append(predicate(relations));
+        for (int i = 0; i < 2; i++) {
+            sql.append(random.nextInt(4) == 0 ? " OR " : " AND ").append(predicate(relations));
+        }
+        if (inList > 0) {
+            sql.append(" AND ").append(columnRef(relations)).append(" IN (");
+            boolean strings = random.nextBoolean();
+            for (int i = 0; i < inList; i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(strings ? "'v" + random.nextInt(100000) + "'" : String.valueOf(random.nextInt(100000)));
+            }
+            sql.append(')');
+        }
+
+        if (grouped) {
+            sql.append('\n');
+            lineComment();
+            sql.append("GROUP BY 1, 2");
+            if (random.nextBoolean()) {
+                sql.append("\nHAVING count(*) > ").append(random.nextInt(100));
+            }
+        }
+        if (random.nextInt(3) == 0) {
+            sql.append('\n');
+            lineComment();
+            sql.append("ORDER BY col_0").append(random.nextBoolean() ? " DESC" : "")
+                    .append("\nLIMIT ").append(1 + random.nextInt(1000));
+        }
+    }
+
+    /**
+     * Relation aliased t{index}: a nested query when depth is left, else a CTE or a table
+     */
+    private void relation(int index, int depth) {
+        if (depth > 0) {
+            sql.append("(\n");
+            query(INNER_COLUMNS, 1, depth - 1, 0);
+            sql.append("\n)");
+        } else if (!cteNames.isEmpty() && random.nextBoolean()) {
+            sql.append(cteNames.get(random.nextInt(cteNames.size())));
+        } else {
+            sql.append(random.nextInt(4) == 0 ? "db" + random.nextInt(3) + "." : "")
+                    .append("table_").append(random.nextInt(50));
+        }
+        sql.append(" t").append(index);
+    }
+
+    /**
+     * Nested queries and CTEs expose col_0 .. col_3, tables have c0 .. c19
+     */
+    private String column() {
+        return random.nextBoolean() ? "col_" + random.nextInt(INNER_COLUMNS) : "c" + random.nextInt(COLUMN_NAMES);
+    }
+
+    private String columnRef(int relations) {
+        return "t" + random.nextInt(relations) + "." + column();
+    }
+
+    private String expression(int relations) {
+        return switch (random.nextInt(8)) {
+            case 0 -> columnRef(relations) + " + " + columnRef(relations) + " * " + (1 + random.nextInt(9));
+            case 1 -> "CASE WHEN " + columnRef(relations) + " > " + random.nextInt(100) + " THEN 'high' WHEN "
+                    + columnRef(relations) + " IS NULL THEN 'none' ELSE 'low' END";
+            case 2 -> "CAST(" + columnRef(relations) + " AS " + pick(TYPES) + ")";
+            case 3 -> "coalesce(" + columnRef(relations) + ", " + columnRef(relations) + ", 0)";
+            case 4 -> "concat(" + columnRef(relations) + ", '_', " + columnRef(relations) + ")";
+            default -> columnRef(relations);
+        };
+    }
+
+    private String aggregate(int relations) {
+        return switch (random.nextInt(4)) {
+            case 0 -> "count(DISTINCT " + columnRef(relations) + ")";
+            case 1 -> "row_number() OVER (PARTITION BY " + columnRef(relations) + " ORDER BY "
+                    + columnRef(relations) + " DESC)";
+            default -> pick(AGGREGATES) + "(" + expression(relations) + ")";
+        };
+    }
+
+    private String predicate(int relations) {
+        String column = columnRef(relations);
+        return switch (random.nextInt(6)) {
+            case 0 -> column + " = " + random.nextInt(1000);
+            case 1 -> column + " <> 'x" + random.nextInt(100) + "'";
+            case 2 -> column + " BETWEEN " + random.nextInt(100) + " AND " + (100 + random.nextInt(100));
+            case 3 -> column + " LIKE 'p" + random.nextInt(100) + "%'";
+            case 4 -> column + " IS NOT NULL";
+            default -> column + " > " + columnRef(relations);
+        };
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private boolean comment() {
+        return shape.comments > 0 && random.nextInt(100) < shape.comments;
+    }
+
+    private void lineComment() {
+        if (comment()) {
+            sql.append("-- note ").append(commentCount++).append('\n');
+        }
+    }
+
+    private void blockComment() {
+        if (comment()) {
+            sql.append(" /* item ").append(commentCount++).append(" */");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int count = 1;
+        Path output = null;
+        Shape shape = new Shape();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--count" -> count = Integer.parseInt(args[++i]);
+                case "--output" -> output = Path.of(args[++i]);
+                case "--columns", "--joins", "--depth", "--ctes", "--in-list", "--comments" -> {
+                    String dimension = args[i].equals("--in-list") ? "inList" : args[i].substring(2);
+                    shape.set(dimension, Integer.parseInt(args[++i]));
+                }
+                default -> {
+                    System.err.println("Usage: SqlGenerator [--seed n] [--count n] [--columns n] [--joins n] "
+                            + "[--depth n] [--ctes n] [--in-list n] [--comments percent] [--output dir]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        SqlGenerator generator = new SqlGenerator(seed);
+        if (output == null) {
+            System.out.print(generator.script(shape, count));
+            return;
+        }
+        Files.createDirectories(output);
+        for (int i = 0; i < count; i++) {
+            Files.writeString(output.resolve("generated_" + i + ".sql"), generator.generate(shape) + ";\n");
+        }
+    }
+}
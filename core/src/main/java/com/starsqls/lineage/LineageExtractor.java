@@ -0,0 +1,180 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lineage;
+
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts table and column references from a SQL script, one {@link StatementLineage} per statement.
+ * <p>
+ * Unlike {@link com.starsqls.dag.SQLDagAnalyzer} this does not build a graph or format any fragment, it only
+ * walks the parse tree once, so it is cheap enough to run over a whole repository of SQL files.
+ */
+public class LineageExtractor {
+
+    /**
+     * Extract the references of every statement in the script.
+     * Syntax errors are tolerated, the recovered parse tree is used as-is.
+     */
+    public List<StatementLineage> extract(String sql) {
+        StarRocksLexer lexer = new StarRocksLexer(CharStreams.fromString(sql));
+        lexer.removeErrorListeners();
+        StarRocksParser parser = new StarRocksParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        StarRocksParser.SqlStatementsContext tree = parser.sqlStatements();
+
+        List<StatementLineage> result = new ArrayList<>();
+        for (StarRocksParser.SingleStatementContext statement : tree.singleStatement()) {
+            if (statement.statement() == null) {
+                continue;
+            }
+            StatementLineage lineage = new StatementLineage(result.size(), statement.getStart().getLine());
+            extractStatement(statement.statement(), lineage);
+            result.add(lineage);
+        }
+        return result;
+    }
+
+    private void extractStatement(StarRocksParser.StatementContext statement, StatementLineage lineage) {
+        Set<String> cteNames = new HashSet<>();
+        // alias (or table name itself) -> table name
+        Map<String, String> aliases = new HashMap<>();
+        Set<String> tables = new LinkedHashSet<>();
+
+        // pass 1: tables, aliases, CTE names and write targets
+        for (ParseTree node : walk(statement)) {
+            if (node instanceof StarRocksParser.CommonTableExpressionContext cte) {
+                cteNames.add(normalize(cte.name.getText()));
+            } else if (node instanceof StarRocksParser.TableAtomContext atom) {
+                String table = qualifiedName(atom.qualifiedName());
+                tables.add(table);
+                aliases.put(shortName(table), table);
+                if (atom.alias != null) {
+                    aliases.put(normalize(atom.alias.getText()), table);
+                }
+            } else {
+                StarRocksParser.QualifiedNameContext target = writeTarget(node);
+                if (target != null) {
+                    String table = qualifiedName(target);
+                    lineage.getWriteTables().add(table);
+                    aliases.put(shortName(table), table);
+                }
+            }
+        }
+        for (String table : tables) {
+            if (!cteNames.contains(table)) {
+                lineage.getReadTables().add(table);
+            }
+        }
+        cteNames.forEach(aliases::remove);
+
+        // unqualified columns of INSERT ... SELECT belong to the source, of UPDATE/DELETE to the target
+        Set<String> candidates = lineage.getReadTables().isEmpty() ? lineage.getWriteTables() : lineage.getReadTables();
+        String onlyTable = candidates.size() == 1 ? candidates.iterator().next() : null;
+
+        // pass 2: columns, qualified by the resolved table
+        Set<ParseTree> qualifiers = new HashSet<>();
+        for (ParseTree node : walk(statement)) {
+            if (node instanceof StarRocksParser.DereferenceContext deref
+                    && deref.base instanceof StarRocksParser.ColumnRefContext base && deref.fieldName != null) {
+                qualifiers.add(base);
+                String table = aliases.get(normalize(base.getText()));
+                String column = normalize(deref.fieldName.getText());
+                lineage.getColumns().add(table != null ? table + "." + column : column);
+            } else if (node instanceof StarRocksParser.ColumnRefContext ref && !qualifiers.contains(ref)) {
+                String column = normalize(ref.getText());
+                lineage.getColumns().add(onlyTable != null ? onlyTable + "." + column : column);
+            }
+        }
+    }
+
+    private static StarRocksParser.QualifiedNameContext writeTarget(ParseTree node) {
+        if (node instanceof StarRocksParser.InsertStatementContext insert) {
+            return insert.qualifiedName();
+        } else if (node instanceof StarRocksParser.UpdateStatementContext update) {
+            return update.qualifiedName();
+        } else if (node instanceof StarRocksParser.DeleteStatementContext delete) {
+            return delete.qualifiedName();
+        } else if (node instanceof StarRocksParser.CreateTableAsSelectStatementContext ctas) {
+            return ctas.qualifiedName();
+        } else if (node instanceof StarRocksParser.CreateViewStatementContext view) {
+            return view.qualifiedName();
+        } else if (node instanceof StarRocksParser.CreateMaterializedViewStatementContext mv) {
+            return mv.mvName;
+        }
+        return null;
+    }
+
+    /**
+     * Pre-order walk over the tree with an explicit stack, deeply nested expressions don't grow the call stack
+     */
+    private static List<ParseTree> walk(ParseTree root) {
+        List<ParseTree> nodes = new ArrayList<>();
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            ParseTree node = stack.pop();
+            if (node instanceof TerminalNode) {
+                continue;
+            }
+            nodes.add(node);
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                stack.push(node.getChild(i));
+            }
+        }
+        return nodes;
+    }
+
+    static String qualifiedName(StarRocksParser.QualifiedNameContext ctx) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ctx.getChildCount(); i++) {
+            ParseTree child = ctx.getChild(i);
+            if (child instanceof StarRocksParser.IdentifierContext) {
+                sb.append(normalize(child.getText()));
+            } else {
+                // '.' or DOT_IDENTIFIER
+                sb.append(child.getText().toLowerCase(Locale.ROOT));
+            }
+        }
+        return sb.toString();
+    }
+
+    static String shortName(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(dot + 1);
+    }
+
+    static String normalize(String identifier) {
+        String text = identifier;
+        if (text.length() >= 2 && text.charAt(0) == '`' && text.charAt(text.length() - 1) == '`') {
+            text = text.substring(1, text.length() - 1).replace("``", "`");
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
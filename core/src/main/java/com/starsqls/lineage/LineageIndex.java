@@ -0,0 +1,503 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lineage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent index of table -> statement and column -> statement references over a directory of SQL files.
+ * <p>
+ * The index file is an append-only log: every (re)indexed file appends a FILE record, its REF records and a
+ * COMMIT record, a removed or changed file appends a DROP record. On open the log is read in one pass and replayed
+ * into in-memory posting lists, an uncommitted tail left by a crash is truncated. Lookups never touch the SQL
+ * files, and {@link #refresh()} only parses files whose size or modification time changed. A log written by
+ * another format version is discarded, the next {@link #refresh()} rebuilds it.
+ * Dead records are dropped by {@link #compact()}, which also runs automatically once they outnumber live ones.
+ */
+public class LineageIndex implements Closeable {
+    public enum RefKind {
+        READ, WRITE, COLUMN
+    }
+
+    private static final int MAGIC = 0x53514c49; // "SQLI"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte OP_FILE = 1;
+    private static final byte OP_REF = 2;
+    private static final byte OP_DROP = 3;
+    private static final byte OP_COMMIT = 4;
+
+    private static final int MIN_COMPACT_POSTINGS = 1024;
+
+    private final Path root;
+    private final Path indexFile;
+    private final LineageExtractor extractor = new LineageExtractor();
+
+    private FileChannel channel;
+
+    private final Map<String, FileEntry> filesByPath = new HashMap<>();
+    private final Map<Integer, FileEntry> filesById = new HashMap<>();
+    // kind -> short name -> postings
+    private final Map<RefKind, Map<String, List<Posting>>> postings = new EnumMap<>(RefKind.class);
+    private int nextFileId = 0;
+    private long livePostings = 0;
+    private long deadPostings = 0;
+
+    private LineageIndex(Path root, Path indexFile) {
+        this.root = root;
+        this.indexFile = indexFile;
+        for (RefKind kind : RefKind.values()) {
+            postings.put(kind, new HashMap<>());
+        }
+    }
+
+    /**
+     * Open (or create) the index of the SQL files under {@code root}. The index is not refreshed, call
+     * {@link #refresh()} to pick up changes made while it was closed.
+     */
+    public static LineageIndex open(Path root, Path indexFile) throws IOException {
+        LineageIndex index = new LineageIndex(root.toAbsolutePath().normalize(), indexFile);
+        try {
+            index.load();
+        } catch (IOException e) {
+            if (index.channel != null) {
+                index.channel.close();
+            }
+            throw e;
+        }
+        return index;
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Statements reading the table. An unqualified name matches the table in any database.
+     */
+    public synchronized List<LineageRef> readersOf(String table) {
+        return lookup(RefKind.READ, table);
+    }
+
+    /**
+     * Statements writing the table (INSERT/UPDATE/DELETE/CTAS/VIEW targets).
+     */
+    public synchronized List<LineageRef> writersOf(String table) {
+        return lookup(RefKind.WRITE, table);
+    }
+
+    /**
+     * Statements referencing the column, either "column", "table.column" or "db.table.column".
+     */
+    public synchronized List<LineageRef> referencesTo(String column) {
+        return lookup(RefKind.COLUMN, column);
+    }
+
+    public synchronized int fileCount() {
+        return filesByPath.size();
+    }
+
+    private List<LineageRef> lookup(RefKind kind, String name) {
+        String query = LineageExtractor.normalize(name);
+        List<Posting> list = postings.get(kind).get(LineageExtractor.shortName(query));
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<LineageRef> refs = new ArrayList<>();
+        for (Posting p : list) {
+            FileEntry file = filesById.get(p.fileId);
+            if (file != null && (p.name.equals(query) || p.name.endsWith("." + query))) {
+                refs.add(new LineageRef(file.path, p.statement, p.line, p.name));
+            }
+        }
+        return refs;
+    }
+
+    // ==================== Updates ====================
+
+    /**
+     * Re-index every new or changed *.sql file under the root and drop the removed ones.
+     *
+     * @return number of files added, changed or removed
+     */
+    public synchronized int refresh() throws IOException {
+        List<Path> current;
+        try (Stream<Path> stream = Files.walk(root)) {
+            current = stream.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".sql"))
+                    .collect(Collectors.toList());
+        }
+        Map<String, Path> seen = new HashMap<>();
+        for (Path p : current) {
+            seen.put(relativize(p), p);
+        }
+        List<Path> changed = new ArrayList<>(current);
+        for (String path : new ArrayList<>(filesByPath.keySet())) {
+            if (!seen.containsKey(path)) {
+                changed.add(root.resolve(path));
+            }
+        }
+        return refresh(changed);
+    }
+
+    /**
+     * Re-index the given files only, e.g. the paths reported by a file watcher.
+     * Files that no longer exist are dropped from the index, unchanged files are skipped.
+     *
+     * @return number of files added, changed or removed
+     */
+    public synchronized int refresh(Collection<Path> files) throws IOException {
+        Map<String, Path> unique = new LinkedHashMap<>();
+        for (Path file : files) {
+            Path absolute = root.resolve(file).toAbsolutePath().normalize();
+            unique.put(relativize(absolute), absolute);
+        }
+        List<FileEntry> removed = new ArrayList<>();
+        List<Path> toIndex = new ArrayList<>();
+        for (Map.Entry<String, Path> e : unique.entrySet()) {
+            Path absolute = e.getValue();
+            FileEntry old = filesByPath.get(e.getKey());
+            if (!Files.isRegularFile(absolute)) {
+                if (old != null) {
+                    removed.add(old);
+                }
+                continue;
+            }
+            if (old != null && old.mtime == Files.getLastModifiedTime(absolute).toMillis()
+                    && old.size == Files.size(absolute)) {
+                continue;
+            }
+            toIndex.add(absolute);
+        }
+
+        // parsing dominates, do it in parallel and append the results in order
+        List<IndexedFile> indexed;
+        try {
+            indexed = toIndex.parallelStream().map(this::indexFile).toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // persist first, the in-memory state only changes once the log has the records
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (FileEntry old : removed) {
+            out.writeByte(OP_DROP);
+            out.writeInt(old.id);
+        }
+        int fileId = nextFileId;
+        for (IndexedFile file : indexed) {
+            FileEntry old = filesByPath.get(file.entry.path);
+            if (old != null) {
+                out.writeByte(OP_DROP);
+                out.writeInt(old.id);
+            }
+            file.entry.id = fileId++;
+            writeFile(out, file);
+        }
+        if (bytes.size() > 0) {
+            append(bytes.toByteArray());
+        }
+
+        removed.forEach(this::dropFile);
+        for (IndexedFile file : indexed) {
+            FileEntry old = filesByPath.get(file.entry.path);
+            if (old != null) {
+                dropFile(old);
+            }
+            addFile(file);
+        }
+        nextFileId = fileId;
+        if (deadPostings > MIN_COMPACT_POSTINGS && deadPostings > livePostings) {
+            compact();
+        }
+        return removed.size() + indexed.size();
+    }
+
+    /**
+     * Rewrite the index file with live records only.
+     */
+    public synchronized void compact() throws IOException {
+        Path tmp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(header());
+            Map<Integer, List<TypedPosting>> byFile = new HashMap<>();
+            postings.forEach((kind, byName) -> byName.values().forEach(list -> list.stream()
+                    .filter(p -> filesById.containsKey(p.fileId))
+                    .forEach(p -> byFile.computeIfAbsent(p.fileId, k -> new ArrayList<>())
+                            .add(new TypedPosting(kind, p)))));
+            for (FileEntry entry : filesById.values()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream data = new DataOutputStream(bytes);
+                writeFile(data, new IndexedFile(entry, byFile.getOrDefault(entry.id, Collections.emptyList())));
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        filesByPath.clear();
+        filesById.clear();
+        postings.values().forEach(Map::clear);
+        livePostings = 0;
+        deadPostings = 0;
+        load();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private IndexedFile indexFile(Path file) {
+        try {
+            FileEntry entry = new FileEntry(relativize(file), Files.getLastModifiedTime(file).toMillis(),
+                    Files.size(file));
+            List<TypedPosting> list = new ArrayList<>();
+            String sql;
+            try {
+                sql = Files.readString(file);
+            } catch (CharacterCodingException e) {
+                // not UTF-8, keep the file entry so that it is not re-parsed on every refresh
+                return new IndexedFile(entry, list);
+            }
+            for (StatementLineage statement : extractor.extract(sql)) {
+                statement.getReadTables().forEach(t -> list.add(new TypedPosting(RefKind.READ, statement, t)));
+                statement.getWriteTables().forEach(t -> list.add(new TypedPosting(RefKind.WRITE, statement, t)));
+                statement.getColumns().forEach(c -> list.add(new TypedPosting(RefKind.COLUMN, statement, c)));
+            }
+            return new IndexedFile(entry, list);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addFile(IndexedFile file) {
+        filesByPath.put(file.entry.path, file.entry);
+        filesById.put(file.entry.id, file.entry);
+        for (TypedPosting tp : file.postings) {
+            Posting p = new Posting(file.entry.id, tp.posting.statement, tp.posting.line, tp.posting.name);
+            postings.get(tp.kind).computeIfAbsent(LineageExtractor.shortName(p.name), k -> new ArrayList<>()).add(p);
+        }
+        file.entry.postingCount = file.postings.size();
+        livePostings += file.postings.size();
+    }
+
+    private void dropFile(FileEntry entry) {
+        filesByPath.remove(entry.path);
+        filesById.remove(entry.id);
+        livePostings -= entry.postingCount;
+        deadPostings += entry.postingCount;
+    }
+
+    private String relativize(Path file) {
+        return root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    // ==================== On-disk format ====================
+
+    private static ByteBuffer header() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).flip();
+        return buffer;
+    }
+
+    private static void writeFile(DataOutputStream out, IndexedFile file) throws IOException {
+        out.writeByte(OP_FILE);
+        out.writeInt(file.entry.id);
+        out.writeLong(file.entry.mtime);
+        out.writeLong(file.entry.size);
+        writeString(out, file.entry.path);
+        for (TypedPosting tp : file.postings) {
+            out.writeByte(OP_REF);
+            out.writeInt(file.entry.id);
+            out.writeInt(tp.posting.statement);
+            out.writeInt(tp.posting.line);
+            out.writeByte(tp.kind.ordinal());
+            writeString(out, tp.posting.name);
+        }
+        out.writeByte(OP_COMMIT);
+        out.writeInt(file.entry.id);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            // garbage length of a torn record
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+    }
+
+    private void load() throws IOException {
+        channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Lineage index is too large, compact it: " + indexFile);
+        }
+        // read rather than map: a live mapping keeps the file locked on Windows until it is garbage collected,
+        // which makes the truncate below and the replace in compact() fail
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        if (size >= HEADER_SIZE && buffer.getInt() != MAGIC) {
+            throw new IOException("Not a lineage index file: " + indexFile);
+        }
+        if (size < HEADER_SIZE || buffer.getInt() != VERSION) {
+            channel.truncate(0);
+            channel.write(header(), 0);
+            channel.force(true);
+            return;
+        }
+
+        int committed = buffer.position();
+        IndexedFile pending = null;
+        try {
+            while (buffer.hasRemaining()) {
+                byte op = buffer.get();
+                switch (op) {
+                    case OP_FILE -> {
+                        int fileId = buffer.getInt();
+                        long mtime = buffer.getLong();
+                        long fileSize = buffer.getLong();
+                        FileEntry entry = new FileEntry(fileId, mtime, fileSize, readString(buffer));
+                        pending = new IndexedFile(entry, new ArrayList<>());
+                    }
+                    case OP_REF -> {
+                        int fileId = buffer.getInt();
+                        int statement = buffer.getInt();
+                        int line = buffer.getInt();
+                        byte kindOrdinal = buffer.get();
+                        if (kindOrdinal < 0 || kindOrdinal >= RefKind.values().length) {
+                            throw new IOException("Corrupted lineage index: " + indexFile);
+                        }
+                        RefKind kind = RefKind.values()[kindOrdinal];
+                        String name = readString(buffer);
+                        if (pending == null || pending.entry.id != fileId) {
+                            throw new IOException("Corrupted lineage index: " + indexFile);
+                        }
+                        pending.postings.add(new TypedPosting(kind, new Posting(fileId, statement, line, name)));
+                    }
+                    case OP_COMMIT -> {
+                        int fileId = buffer.getInt();
+                        if (pending == null || pending.entry.id != fileId) {
+                            throw new IOException("Corrupted lineage index: " + indexFile);
+                        }
+                        FileEntry old = filesByPath.get(pending.entry.path);
+                        if (old != null) {
+                            dropFile(old);
+                        }
+                        addFile(pending);
+                        nextFileId = Math.max(nextFileId, fileId + 1);
+                        pending = null;
+                        committed = buffer.position();
+                    }
+                    case OP_DROP -> {
+                        FileEntry old = filesById.get(buffer.getInt());
+                        if (old != null) {
+                            dropFile(old);
+                        }
+                        if (pending == null) {
+                            committed = buffer.position();
+                        }
+                    }
+                    default -> throw new IOException("Corrupted lineage index: " + indexFile);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            // torn write at the tail, handled below
+        }
+        if (committed < size) {
+            // drop the uncommitted tail left by an interrupted refresh
+            channel.truncate(committed);
+        }
+    }
+
+    private static class FileEntry {
+        int id;
+        String path;
+        final long mtime;
+        final long size;
+        int postingCount;
+
+        FileEntry(String path, long mtime, long size) {
+            this(0, mtime, size, path);
+        }
+
+        FileEntry(int id, long mtime, long size, String path) {
+            this.id = id;
+            this.mtime = mtime;
+            this.size = size;
+            this.path = path;
+        }
+    }
+
+    private record Posting(int fileId, int statement, int line, String name) {
+    }
+
+    private record TypedPosting(RefKind kind, Posting posting) {
+        TypedPosting(RefKind kind, StatementLineage statement, String name) {
+            this(kind, new Posting(-1, statement.getIndex(), statement.getLine(), name));
+        }
+    }
+
+    private record IndexedFile(FileEntry entry, List<TypedPosting> postings) {
+    }
+}
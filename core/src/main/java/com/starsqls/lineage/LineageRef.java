@@ -0,0 +1,66 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lineage;
+
+/**
+ * A reference from a statement in an indexed SQL file to a table or a column.
+ */
+public class LineageRef {
+    /**
+     * File path, relative to the indexed root
+     */
+    private final String path;
+
+    /**
+     * Index of the statement in the file, starting from 0
+     */
+    private final int statementIndex;
+
+    /**
+     * Line of the first token of the statement
+     */
+    private final int line;
+
+    /**
+     * Referenced name as it was resolved in the statement, e.g. "db.orders" or "orders.amount"
+     */
+    private final String name;
+
+    public LineageRef(String path, int statementIndex, int line, String name) {
+        this.path = path;
+        this.statementIndex = statementIndex;
+        this.line = line;
+        this.name = name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getStatementIndex() {
+        return statementIndex;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return path + ":" + line + " #" + statementIndex + " " + name;
+    }
+}
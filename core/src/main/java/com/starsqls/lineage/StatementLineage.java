@@ -0,0 +1,83 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lineage;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Table and column references of a single SQL statement.
+ * All names are normalized: lower case, without back quotes.
+ */
+public class StatementLineage {
+    /**
+     * Index of the statement in its script, starting from 0
+     */
+    private final int index;
+
+    /**
+     * Line of the first token of the statement
+     */
+    private final int line;
+
+    /**
+     * Tables read by the statement (CTE names excluded)
+     */
+    private final Set<String> readTables = new LinkedHashSet<>();
+
+    /**
+     * Tables written by the statement (INSERT/UPDATE/DELETE/CTAS/VIEW targets)
+     */
+    private final Set<String> writeTables = new LinkedHashSet<>();
+
+    /**
+     * Referenced columns, qualified with the table name when it can be resolved
+     */
+    private final Set<String> columns = new LinkedHashSet<>();
+
+    public StatementLineage(int index, int line) {
+        this.index = index;
+        this.line = line;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public Set<String> getReadTables() {
+        return readTables;
+    }
+
+    public Set<String> getWriteTables() {
+        return writeTables;
+    }
+
+    public Set<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementLineage{" +
+                "index=" + index +
+                ", line=" + line +
+                ", reads=" + readTables +
+                ", writes=" + writeTables +
+                ", columns=" + columns +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint;
+
+/**
+ * A performance anti-pattern found in a SQL statement.
+ */
+public class Finding {
+    /**
+     * Id of the rule which reported the finding, e.g. "CROSS_JOIN"
+     */
+    private final String ruleId;
+
+    private final Severity severity;
+
+    private final String message;
+
+    /**
+     * Index of the statement in the script, starting from 0
+     */
+    private final int statementIndex;
+
+    /**
+     * Position of the offending code, line starts from 1 and column from 0
+     */
+    private final int line;
+
+    private final int column;
+
+    public Finding(String ruleId, Severity severity, String message, int statementIndex, int line, int column) {
+        this.ruleId = ruleId;
+        this.severity = severity;
+        this.message = message;
+        this.statementIndex = statementIndex;
+        this.line = line;
+        this.column = column;
+    }
+
+    public String getRuleId() {
+        return ruleId;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public int getStatementIndex() {
+        return statementIndex;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return line + ":" + column + " " + severity + " " + ruleId + " " + message;
+    }
+}
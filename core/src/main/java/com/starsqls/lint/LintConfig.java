@@ -0,0 +1,47 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint;
+
+import com.starsqls.dag.cost.StatisticsProvider;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Configuration of {@link QueryLinter}.
+ */
+public class LintConfig {
+    /**
+     * Table statistics, used for the column count and partition columns of tables
+     */
+    public StatisticsProvider statistics = StatisticsProvider.EMPTY;
+
+    /**
+     * SELECT * is reported on tables with at least this many columns
+     */
+    public int wideTableColumns = 50;
+
+    /**
+     * Column names treated as partition columns of every table, in addition to the ones from the statistics
+     */
+    public Set<String> partitionColumns = new HashSet<>();
+
+    /**
+     * Ids of the rules which are not run
+     */
+    public Set<String> disabledRules = new HashSet<>();
+
+    public static LintConfig defaultConfig() {
+        return new LintConfig();
+    }
+}
@@ -0,0 +1,176 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint;
+
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One statement under check, shared by all rules, and the findings reported on it.
+ */
+public class LintContext {
+    private final StarRocksParser.StatementContext statement;
+    private final int statementIndex;
+    private final TokenStream tokens;
+    private final LintConfig config;
+    private final List<Finding> findings = new ArrayList<>();
+    private List<ParseTree> nodes;
+
+    public LintContext(StarRocksParser.StatementContext statement, int statementIndex, TokenStream tokens,
+                       LintConfig config) {
+        this.statement = statement;
+        this.statementIndex = statementIndex;
+        this.tokens = tokens;
+        this.config = config;
+    }
+
+    public StarRocksParser.StatementContext getStatement() {
+        return statement;
+    }
+
+    public TokenStream getTokens() {
+        return tokens;
+    }
+
+    public LintConfig getConfig() {
+        return config;
+    }
+
+    public List<Finding> getFindings() {
+        return findings;
+    }
+
+    public void report(String ruleId, Severity severity, ParserRuleContext at, String message) {
+        Token start = at.getStart();
+        findings.add(new Finding(ruleId, severity, message, statementIndex, start.getLine(),
+                start.getCharPositionInLine()));
+    }
+
+    /**
+     * All nodes of the statement of the given type, in pre-order
+     */
+    public <T extends ParseTree> List<T> find(Class<T> type) {
+        if (nodes == null) {
+            nodes = walk(statement, true);
+        }
+        List<T> result = new ArrayList<>();
+        for (ParseTree node : nodes) {
+            if (type.isInstance(node)) {
+                result.add(type.cast(node));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pre-order walk over the rule nodes below root with an explicit stack.
+     *
+     * @param intoSubqueries false to stop at nested query relations, i.e. only look at the query of root itself
+     */
+    public static List<ParseTree> walk(ParseTree root, boolean intoSubqueries) {
+        List<ParseTree> result = new ArrayList<>();
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            ParseTree node = stack.pop();
+            if (node instanceof TerminalNode
+                    || (!intoSubqueries && node != root && node instanceof StarRocksParser.QueryRelationContext)) {
+                continue;
+            }
+            result.add(node);
+            for (int i = node.getChildCount() - 1; i >= 0; i--) {
+                stack.push(node.getChild(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Top level AND conjuncts of a condition
+     */
+    public static List<StarRocksParser.ExpressionContext> conjuncts(StarRocksParser.ExpressionContext ctx) {
+        List<StarRocksParser.ExpressionContext> result = new ArrayList<>();
+        Deque<StarRocksParser.ExpressionContext> stack = new ArrayDeque<>();
+        if (ctx != null) {
+            stack.push(ctx);
+        }
+        while (!stack.isEmpty()) {
+            StarRocksParser.ExpressionContext expr = stack.pop();
+            if (expr instanceof StarRocksParser.LogicalBinaryContext binary
+                    && (binary.AND() != null || binary.LOGICAL_AND() != null)) {
+                stack.push(binary.right);
+                stack.push(binary.left);
+            } else {
+                result.add(expr);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The column name, lower case without back quotes, if the tree is just a (possibly qualified) column
+     * reference, otherwise null
+     */
+    public static String columnOf(ParseTree tree) {
+        ParseTree node = tree;
+        while (node != null) {
+            if (node instanceof StarRocksParser.ColumnRefContext || node instanceof StarRocksParser.DereferenceContext) {
+                return node.getText().replace("`", "").toLowerCase();
+            }
+            node = node.getChildCount() == 1 ? node.getChild(0) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Tables read directly by the FROM clause of the query, keyed by alias (or table name when there is no alias).
+     * Tables of nested subqueries are not included.
+     */
+    public static Map<String, String> tablesOf(StarRocksParser.QuerySpecificationContext query) {
+        Map<String, String> tables = new LinkedHashMap<>();
+        if (query.fromClause() == null) {
+            return tables;
+        }
+        for (ParseTree node : walk(query.fromClause(), false)) {
+            if (node instanceof StarRocksParser.TableAtomContext atom) {
+                String table = atom.qualifiedName().getText().replace("`", "").toLowerCase();
+                String alias = atom.alias != null ? atom.alias.getText().replace("`", "").toLowerCase()
+                        : table.substring(table.lastIndexOf('.') + 1);
+                tables.put(alias, table);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * The query specification a node belongs to, null if there is none
+     */
+    public static StarRocksParser.QuerySpecificationContext enclosingQuery(ParseTree node) {
+        ParseTree current = node.getParent();
+        while (current != null && !(current instanceof StarRocksParser.QuerySpecificationContext)) {
+            current = current.getParent();
+        }
+        return (StarRocksParser.QuerySpecificationContext) current;
+    }
+}
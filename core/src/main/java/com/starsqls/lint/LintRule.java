@@ -0,0 +1,29 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint;
+
+/**
+ * A check for one performance anti-pattern. Rules are stateless and shared between threads.
+ */
+public interface LintRule {
+
+    /**
+     * Stable id of the rule, used in findings and to disable the rule
+     */
+    String getId();
+
+    /**
+     * Check one statement and report findings through {@link LintContext#report}
+     */
+    void check(LintContext context);
+}
@@ -0,0 +1,190 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint;
+
+import com.starsqls.dag.cost.FileStatisticsProvider;
+import com.starsqls.lint.rules.CrossJoinRule;
+import com.starsqls.lint.rules.DuplicateCteRule;
+import com.starsqls.lint.rules.NotInSubqueryRule;
+import com.starsqls.lint.rules.OrderByWithoutLimitRule;
+import com.starsqls.lint.rules.PartitionColumnFunctionRule;
+import com.starsqls.lint.rules.SelectStarRule;
+import com.starsqls.lint.rules.UnboundedWindowRule;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Static checks for performance anti-patterns of StarRocks queries.
+ * <p>
+ * Each script is parsed once and every enabled {@link LintRule} is run on each statement. The linter is
+ * thread-safe, {@link #lintFiles} checks files in parallel.
+ * <p>
+ * As a command line tool it prints the findings and exits with 1 if any of them reaches the {@code --fail-on}
+ * severity, so it can gate merges:
+ * <pre>
+ * java -cp starsqls-core.jar com.starsqls.lint.QueryLinter [--stats stats.json] [--fail-on WARNING] dir-or-file...
+ * </pre>
+ */
+public class QueryLinter {
+    public static final String SYNTAX_ERROR = "SYNTAX_ERROR";
+    public static final String READ_ERROR = "READ_ERROR";
+
+    private final LintConfig config;
+    private final List<LintRule> rules;
+
+    public QueryLinter() {
+        this(LintConfig.defaultConfig());
+    }
+
+    public QueryLinter(LintConfig config) {
+        this(config, defaultRules());
+    }
+
+    public QueryLinter(LintConfig config, List<LintRule> rules) {
+        this.config = config;
+        this.rules = rules.stream().filter(r -> !config.disabledRules.contains(r.getId())).toList();
+    }
+
+    public static List<LintRule> defaultRules() {
+        return List.of(
+                new CrossJoinRule(),
+                new SelectStarRule(),
+                new PartitionColumnFunctionRule(),
+                new NotInSubqueryRule(),
+                new OrderByWithoutLimitRule(),
+                new DuplicateCteRule(),
+                new UnboundedWindowRule());
+    }
+
+    /**
+     * Check every statement of a script. A script with syntax errors only gets a SYNTAX_ERROR finding.
+     */
+    public List<Finding> lint(String sql) {
+        List<Finding> syntaxErrors = new ArrayList<>();
+        BaseErrorListener errorListener = new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                if (syntaxErrors.isEmpty()) {
+                    syntaxErrors.add(new Finding(SYNTAX_ERROR, Severity.ERROR, msg, -1, line, charPositionInLine));
+                }
+            }
+        };
+        StarRocksLexer lexer = new StarRocksLexer(CharStreams.fromString(sql));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        StarRocksParser parser = new StarRocksParser(tokens);
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+        StarRocksParser.SqlStatementsContext tree = parser.sqlStatements();
+        if (!syntaxErrors.isEmpty()) {
+            return syntaxErrors;
+        }
+
+        List<Finding> findings = new ArrayList<>();
+        int index = 0;
+        for (StarRocksParser.SingleStatementContext statement : tree.singleStatement()) {
+            if (statement.statement() == null) {
+                continue;
+            }
+            LintContext context = new LintContext(statement.statement(), index++, tokens, config);
+            for (LintRule rule : rules) {
+                rule.check(context);
+            }
+            context.getFindings().sort(Comparator.comparingInt(Finding::getLine).thenComparingInt(Finding::getColumn));
+            findings.addAll(context.getFindings());
+        }
+        return findings;
+    }
+
+    public List<Finding> lint(Path file) {
+        try {
+            return lint(Files.readString(file, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            return List.of(new Finding(READ_ERROR, Severity.ERROR, e.toString(), -1, 0, 0));
+        }
+    }
+
+    /**
+     * Check the files in parallel, the result keeps the order of the input
+     */
+    public Map<Path, List<Finding>> lintFiles(Collection<Path> files) {
+        List<List<Finding>> results = files.parallelStream().map(this::lint).toList();
+        Map<Path, List<Finding>> byFile = new LinkedHashMap<>();
+        int i = 0;
+        for (Path file : files) {
+            byFile.put(file, results.get(i++));
+        }
+        return byFile;
+    }
+
+    public static void main(String[] args) throws IOException {
+        LintConfig config = LintConfig.defaultConfig();
+        Severity failOn = Severity.ERROR;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--stats" -> config.statistics = FileStatisticsProvider.load(Path.of(args[++i]));
+                case "--fail-on" -> failOn = Severity.valueOf(args[++i].toUpperCase());
+                case "--wide-table-columns" -> config.wideTableColumns = Integer.parseInt(args[++i]);
+                case "--partition-column" -> config.partitionColumns.add(args[++i].toLowerCase());
+                case "--disable" -> config.disabledRules.add(args[++i].toUpperCase());
+                default -> files.addAll(sqlFiles(Path.of(args[i])));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: QueryLinter [--stats file] [--fail-on INFO|WARNING|ERROR] "
+                    + "[--wide-table-columns n] [--partition-column name] [--disable RULE] dir-or-file...");
+            System.exit(2);
+        }
+
+        int failures = 0;
+        for (Map.Entry<Path, List<Finding>> entry : new QueryLinter(config).lintFiles(files).entrySet()) {
+            for (Finding finding : entry.getValue()) {
+                System.out.println(entry.getKey() + ":" + finding);
+                if (finding.getSeverity().compareTo(failOn) >= 0) {
+                    failures++;
+                }
+            }
+        }
+        System.out.println(files.size() + " files checked, " + failures + " findings at or above " + failOn);
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    private static List<Path> sqlFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            return walk.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".sql")).sorted().toList();
+        }
+    }
+}
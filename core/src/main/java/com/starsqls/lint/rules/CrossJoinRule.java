@@ -0,0 +1,82 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint.rules;
+
+import com.starsqls.lint.LintContext;
+import com.starsqls.lint.LintRule;
+import com.starsqls.lint.Severity;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+/**
+ * Cross joins: comma-separated FROM without any column = column condition in WHERE, and CROSS JOIN / JOIN without
+ * a join condition.
+ * <p>
+ * The DAG turns every comma-separated FROM into a "JOIN (CROSS)" node, even when WHERE links the tables, so this
+ * rule looks at the WHERE clause of the query itself.
+ */
+public class CrossJoinRule implements LintRule {
+    public static final String ID = "CROSS_JOIN";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public void check(LintContext context) {
+        for (StarRocksParser.QuerySpecificationContext query : context.find(StarRocksParser.QuerySpecificationContext.class)) {
+            if (!(query.fromClause() instanceof StarRocksParser.FromContext from)) {
+                continue;
+            }
+            if (joinedRelations(from.relations()) > 1 && !hasJoinPredicate(query.where)) {
+                context.report(ID, Severity.ERROR, from,
+                        "Comma-separated FROM without a join condition in WHERE is a cross join");
+            }
+        }
+        for (StarRocksParser.JoinRelationContext join : context.find(StarRocksParser.JoinRelationContext.class)) {
+            if (join.crossOrInnerJoinType() != null && join.joinCriteria() == null && join.LATERAL() == null) {
+                context.report(ID, Severity.WARNING, join, "Join without a join condition is a cross join");
+            }
+        }
+    }
+
+    /**
+     * Number of relations, ", LATERAL ..." expands the previous relation and doesn't count
+     */
+    private static int joinedRelations(StarRocksParser.RelationsContext relations) {
+        int count = 0;
+        boolean lateral = false;
+        for (int i = 0; i < relations.getChildCount(); i++) {
+            ParseTree child = relations.getChild(i);
+            if (child instanceof StarRocksParser.RelationContext) {
+                count += lateral ? 0 : 1;
+                lateral = false;
+            } else if (child.getText().equalsIgnoreCase("LATERAL")) {
+                lateral = true;
+            }
+        }
+        return count;
+    }
+
+    private static boolean hasJoinPredicate(StarRocksParser.ExpressionContext where) {
+        for (StarRocksParser.ExpressionContext conjunct : LintContext.conjuncts(where)) {
+            if (conjunct instanceof StarRocksParser.ExpressionDefaultContext def
+                    && def.booleanExpression() instanceof StarRocksParser.ComparisonContext cmp
+                    && LintContext.columnOf(cmp.left) != null && LintContext.columnOf(cmp.right) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
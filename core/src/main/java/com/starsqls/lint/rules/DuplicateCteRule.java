@@ -0,0 +1,57 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint.rules;
+
+import com.starsqls.dag.SubtreeHasher;
+import com.starsqls.lint.LintContext;
+import com.starsqls.lint.LintRule;
+import com.starsqls.lint.Severity;
+import com.starsqls.parser.StarRocksParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CTEs of the same WITH clause with identical bodies, each one is computed separately.
+ * Bodies are compared structurally with {@link SubtreeHasher}, like the duplicate detection of the DAG.
+ */
+public class DuplicateCteRule implements LintRule {
+    public static final String ID = "DUPLICATE_CTE";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public void check(LintContext context) {
+        SubtreeHasher hasher = new SubtreeHasher();
+        for (StarRocksParser.WithClauseContext with : context.find(StarRocksParser.WithClauseContext.class)) {
+            List<StarRocksParser.CommonTableExpressionContext> seen = new ArrayList<>();
+            for (StarRocksParser.CommonTableExpressionContext cte : with.commonTableExpression()) {
+                long hash = hasher.hash(cte.queryRelation());
+                StarRocksParser.CommonTableExpressionContext first = seen.stream()
+                        .filter(s -> hasher.hash(s.queryRelation()) == hash
+                                && hasher.equivalent(s.queryRelation(), cte.queryRelation()))
+                        .findFirst()
+                        .orElse(null);
+                if (first != null) {
+                    context.report(ID, Severity.WARNING, cte, "CTE " + cte.name.getText() + " has the same body as "
+                            + first.name.getText() + ", it is computed twice");
+                } else {
+                    seen.add(cte);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint.rules;
+
+import com.starsqls.lint.LintContext;
+import com.starsqls.lint.LintRule;
+import com.starsqls.lint.Severity;
+import com.starsqls.parser.StarRocksParser;
+
+/**
+ * NOT IN (subquery) has to handle NULLs of the subquery, it becomes a null-aware anti join which is much slower
+ * than the anti join of NOT EXISTS.
+ */
+public class NotInSubqueryRule implements LintRule {
+    public static final String ID = "NOT_IN_SUBQUERY";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public void check(LintContext context) {
+        for (StarRocksParser.InSubqueryContext in : context.find(StarRocksParser.InSubqueryContext.class)) {
+            if (in.NOT() != null) {
+                context.report(ID, Severity.WARNING, in,
+                        "NOT IN (subquery) is a null-aware anti join, use NOT EXISTS if NULLs don't matter");
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint.rules;
+
+import com.starsqls.lint.LintContext;
+import com.starsqls.lint.LintRule;
+import com.starsqls.lint.Severity;
+import com.starsqls.parser.StarRocksParser;
+
+/**
+ * ORDER BY without LIMIT: the final result is sorted on a single node, and in a subquery, CTE or INSERT the order
+ * is not kept anyway.
+ */
+public class OrderByWithoutLimitRule implements LintRule {
+    public static final String ID = "ORDER_BY_WITHOUT_LIMIT";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public void check(LintContext context) {
+        for (StarRocksParser.QueryNoWithContext query : context.find(StarRocksParser.QueryNoWithContext.class)) {
+            if (query.ORDER() == null || query.limitElement() != null) {
+                continue;
+            }
+            boolean topLevel = query.getParent() != null
+                    && query.getParent().getParent() instanceof StarRocksParser.QueryStatementContext;
+            if (topLevel) {
+                context.report(ID, Severity.WARNING, query.sortItem(0),
+                        "ORDER BY without LIMIT sorts the whole result on a single node");
+            } else {
+                context.report(ID, Severity.INFO, query.sortItem(0),
+                        "ORDER BY without LIMIT in a nested query has no effect on the result order");
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint.rules;
+
+import com.starsqls.dag.cost.TableStats;
+import com.starsqls.lint.LintContext;
+import com.starsqls.lint.LintRule;
+import com.starsqls.lint.Severity;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.Map;
+
+/**
+ * A function or cast around a partition column in WHERE, e.g. {@code date_format(dt, '%Y%m') = '202401'},
+ * usually prevents partition pruning.
+ */
+public class PartitionColumnFunctionRule implements LintRule {
+    public static final String ID = "FUNCTION_ON_PARTITION_COLUMN";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public void check(LintContext context) {
+        for (StarRocksParser.QuerySpecificationContext query : context.find(StarRocksParser.QuerySpecificationContext.class)) {
+            if (query.where == null) {
+                continue;
+            }
+            Map<String, String> tables = LintContext.tablesOf(query);
+            for (ParseTree node : LintContext.walk(query.where, false)) {
+                if (!(node instanceof StarRocksParser.FunctionCallExpressionContext
+                        || node instanceof StarRocksParser.CastContext)) {
+                    continue;
+                }
+                String column = partitionColumnIn(context, (ParserRuleContext) node, tables);
+                if (column != null) {
+                    context.report(ID, Severity.WARNING, (ParserRuleContext) node, "Partition column " + column
+                            + " is wrapped in " + node.getText() + ", partitions may not be pruned");
+                }
+            }
+        }
+    }
+
+    private static String partitionColumnIn(LintContext context, ParserRuleContext function, Map<String, String> tables) {
+        for (ParseTree node : LintContext.walk(function, false)) {
+            if (!(node instanceof StarRocksParser.ColumnRefContext || node instanceof StarRocksParser.DereferenceContext)) {
+                continue;
+            }
+            String column = LintContext.columnOf(node);
+            if (column != null && isPartitionColumn(context, column, tables)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPartitionColumn(LintContext context, String column, Map<String, String> tables) {
+        int dot = column.lastIndexOf('.');
+        String qualifier = dot < 0 ? null : column.substring(0, dot);
+        String name = column.substring(dot + 1);
+        if (context.getConfig().partitionColumns.stream().anyMatch(name::equalsIgnoreCase)) {
+            return true;
+        }
+        for (Map.Entry<String, String> table : tables.entrySet()) {
+            if (qualifier != null && !qualifier.equals(table.getKey()) && !qualifier.equals(table.getValue())) {
+                continue;
+            }
+            TableStats stats = context.getConfig().statistics.getTableStats(table.getValue());
+            if (stats != null && stats.isPartitionColumn(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
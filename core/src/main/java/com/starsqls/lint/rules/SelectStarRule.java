@@ -0,0 +1,56 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint.rules;
+
+import com.starsqls.dag.cost.TableStats;
+import com.starsqls.lint.LintContext;
+import com.starsqls.lint.LintRule;
+import com.starsqls.lint.Severity;
+import com.starsqls.parser.StarRocksParser;
+
+import java.util.Map;
+
+/**
+ * SELECT * over a table with many columns, StarRocks is columnar and reads every column.
+ * Needs the column count from the statistics, tables without statistics are not reported.
+ */
+public class SelectStarRule implements LintRule {
+    public static final String ID = "SELECT_STAR_WIDE_TABLE";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public void check(LintContext context) {
+        for (StarRocksParser.SelectAllContext all : context.find(StarRocksParser.SelectAllContext.class)) {
+            StarRocksParser.QuerySpecificationContext query = LintContext.enclosingQuery(all);
+            if (query == null) {
+                continue;
+            }
+            String qualifier = all.qualifiedName() == null ? null
+                    : all.qualifiedName().getText().replace("`", "").toLowerCase();
+            for (Map.Entry<String, String> table : LintContext.tablesOf(query).entrySet()) {
+                if (qualifier != null && !qualifier.equals(table.getKey()) && !qualifier.equals(table.getValue())) {
+                    continue;
+                }
+                TableStats stats = context.getConfig().statistics.getTableStats(table.getValue());
+                if (stats != null && stats.getColumnCount() >= context.getConfig().wideTableColumns) {
+                    context.report(ID, Severity.WARNING, all, "SELECT * reads all " + stats.getColumnCount()
+                            + " columns of " + table.getValue() + ", select only the needed columns");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint.rules;
+
+import com.starsqls.lint.LintContext;
+import com.starsqls.lint.LintRule;
+import com.starsqls.lint.Severity;
+import com.starsqls.parser.StarRocksParser;
+
+/**
+ * Window functions without PARTITION BY run on a single node, and frames up to UNBOUNDED FOLLOWING make every
+ * row aggregate the rest of its partition.
+ */
+public class UnboundedWindowRule implements LintRule {
+    public static final String ID = "UNBOUNDED_WINDOW";
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public void check(LintContext context) {
+        for (StarRocksParser.OverContext over : context.find(StarRocksParser.OverContext.class)) {
+            if (over.PARTITION() == null) {
+                context.report(ID, Severity.WARNING, over,
+                        "Window without PARTITION BY processes all rows on a single node");
+            }
+            StarRocksParser.WindowFrameContext frame = over.windowFrame();
+            if (frame != null && frame.end instanceof StarRocksParser.UnboundedFrameContext end
+                    && end.FOLLOWING() != null) {
+                context.report(ID, Severity.WARNING, frame,
+                        "Window frame up to UNBOUNDED FOLLOWING, every row aggregates the rest of its partition");
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.format.CancellationToken;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.OperationCancelledException;
+import com.starsqls.format.Printer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class CancellationTest {
+    private static final String SQL = "SELECT id FROM t WHERE " + IntStream.range(0, 2000)
+            .mapToObj(i -> "c" + i + " = " + i)
+            .collect(Collectors.joining(" AND "));
+
+    @Test
+    public void testFormatTimeout() {
+        Printer printer = Printer.create(FormatOptions.defaultOptions());
+        printer.setCancellationToken(CancellationToken.withTimeout(Duration.ZERO));
+        OperationCancelledException e = Assertions.assertThrows(OperationCancelledException.class,
+                () -> printer.format(SQL));
+        Assertions.assertTrue(e.isTimeout());
+    }
+
+    @Test
+    public void testFormatCancel() {
+        CancellationToken token = CancellationToken.create();
+        token.cancel();
+        Printer printer = Printer.create(FormatOptions.defaultOptions());
+        printer.setCancellationToken(token);
+        OperationCancelledException e = Assertions.assertThrows(OperationCancelledException.class,
+                () -> printer.format(SQL));
+        Assertions.assertFalse(e.isTimeout());
+    }
+
+    @Test
+    public void testFormatWithinDeadline() {
+        Printer printer = Printer.create(FormatOptions.defaultOptions());
+        printer.setCancellationToken(CancellationToken.withTimeout(Duration.ofMinutes(1)));
+        Assertions.assertTrue(printer.format(SQL).contains("c1999 = 1999"));
+
+        // NONE is never cancelled
+        CancellationToken.NONE.cancel();
+        Assertions.assertFalse(CancellationToken.NONE.isCancelled());
+    }
+
+    @Test
+    public void testAnalyzeCancel() {
+        CancellationToken token = CancellationToken.create();
+        token.cancel();
+        SQLDagAnalyzer analyzer = new SQLDagAnalyzer();
+        analyzer.setCancellationToken(token);
+        Assertions.assertThrows(OperationCancelledException.class, () -> analyzer.analyze(SQL));
+
+        analyzer.setCancellationToken(CancellationToken.NONE);
+        Assertions.assertFalse(analyzer.analyze(SQL).getNodes().isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.CompactTokenStream;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.tree.Trees;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompactTokenStreamTest extends PrinterTestBase {
+    private static final String SCRIPT = """
+            -- header
+            select a, /* c */ b from t where s = '😀' and x in (1, 2);
+            insert into r values (1, 'a'), (2, 'b');""";
+
+    private static List<String> texts(List<? extends Token> tokens) {
+        return tokens.stream().map(Token::toString).toList();
+    }
+
+    private static List<String> parse(TokenStream tokens, StringBuilder tree) {
+        StarRocksParser parser = new StarRocksParser(tokens);
+        List<String> errors = new ArrayList<>();
+        parser.removeErrorListeners();
+        parser.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                errors.add(line + ":" + charPositionInLine + " " + msg + " at " + offendingSymbol);
+            }
+        });
+        tree.append(Trees.toStringTree(parser.sqlStatements(), parser));
+        return errors;
+    }
+
+    @Test
+    public void testTokens() {
+        CommonTokenStream common = new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(SCRIPT)));
+        common.fill();
+        CompactTokenStream compact = new CompactTokenStream(new StarRocksLexer(CharStreams.fromString(SCRIPT)));
+        compact.fill();
+
+        assertEquals(texts(common.getTokens()), texts(compact.getTokens()));
+        assertEquals(common.getText(), compact.getText());
+        assertEquals(common.size(), compact.size());
+    }
+
+    @Test
+    public void testNavigation() {
+        CommonTokenStream common = new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(SCRIPT)));
+        CompactTokenStream compact = new CompactTokenStream(new StarRocksLexer(CharStreams.fromString(SCRIPT)));
+        while (common.LA(1) != Token.EOF) {
+            assertEquals(common.LA(1), compact.LA(1));
+            assertEquals(common.index(), compact.index());
+            for (int k = -3; k <= 3; k++) {
+                assertEquals(String.valueOf(common.LT(k)), String.valueOf(compact.LT(k)));
+            }
+            assertSame(compact.LT(1), compact.LT(1));
+            common.consume();
+            compact.consume();
+        }
+        assertEquals(Token.EOF, compact.LA(1));
+        assertThrows(IllegalStateException.class, compact::consume);
+
+        common.seek(5);
+        compact.seek(5);
+        assertEquals(common.index(), compact.index());
+        assertEquals(common.LT(1).toString(), compact.LT(1).toString());
+        assertEquals(common.getText(common.get(2), common.get(9)), compact.getText(compact.get(2), compact.get(9)));
+    }
+
+    @Test
+    public void testParse() {
+        for (String sql : List.of(SCRIPT, sql("tpch/q7.sql"), "select a from where;\nselect (1 from t;")) {
+            StringBuilder expectedTree = new StringBuilder();
+            List<String> expectedErrors = parse(new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(sql))),
+                    expectedTree);
+            StringBuilder tree = new StringBuilder();
+            List<String> errors = parse(new CompactTokenStream(new StarRocksLexer(CharStreams.fromString(sql))), tree);
+            assertEquals(expectedTree.toString(), tree.toString());
+            assertEquals(expectedErrors, errors);
+        }
+    }
+}
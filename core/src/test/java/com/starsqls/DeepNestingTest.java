@@ -0,0 +1,96 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.NodeType;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Machine generated SQL with long AND/OR, UNION ALL and arithmetic chains must not depend on a big thread stack
+ */
+public class DeepNestingTest {
+    // far below the default 512k-1m, a recursion per AND would overflow
+    private static final long STACK_SIZE = 256 * 1024;
+
+    private static final int LENGTH = 3000;
+
+    private static void runWithSmallStack(Runnable task) throws InterruptedException {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "small-stack", STACK_SIZE);
+        thread.start();
+        thread.join();
+        if (error.get() != null) {
+            Assertions.fail(error.get());
+        }
+    }
+
+    @Test
+    public void testLogicalBinaryChain() throws InterruptedException {
+        String sql = "SELECT id FROM t WHERE " + IntStream.range(0, LENGTH)
+                .mapToObj(i -> "c" + i + " = " + i + (i % 3 == 0 ? " OR" : " AND"))
+                .collect(Collectors.joining(" ")) + " x = 1";
+        runWithSmallStack(() -> {
+            String result = new FormatPrinter(FormatOptions.defaultOptions()).format(sql);
+            Assertions.assertTrue(result.contains("c2999 = 2999"), result);
+            Assertions.assertEquals(LENGTH, result.split("\\b(AND|OR)\\b", -1).length - 1);
+
+            DagGraph graph = new SQLDagAnalyzer().analyze(sql);
+            Assertions.assertTrue(graph.getNodes().stream().anyMatch(n -> n.getType() == NodeType.FILTER));
+        });
+    }
+
+    @Test
+    public void testUnionAllChain() throws InterruptedException {
+        String sql = IntStream.range(0, LENGTH / 3)
+                .mapToObj(i -> "SELECT " + i + " AS v FROM t" + i)
+                .collect(Collectors.joining(" UNION ALL "));
+        runWithSmallStack(() -> {
+            String result = new FormatPrinter(FormatOptions.defaultOptions()).format(sql);
+            Assertions.assertEquals(LENGTH / 3 - 1, result.split("UNION ALL", -1).length - 1);
+
+            DagGraph graph = new SQLDagAnalyzer().analyze(sql);
+            Assertions.assertEquals(LENGTH / 3 - 1,
+                    graph.getNodes().stream().filter(n -> n.getType() == NodeType.UNION).count());
+            Assertions.assertTrue(graph.toTreeString().contains("SCAN"));
+        });
+    }
+
+    @Test
+    public void testArithmeticChain() throws InterruptedException {
+        String sql = "SELECT " + IntStream.range(0, LENGTH).mapToObj(i -> "c" + i).collect(Collectors.joining(" + "))
+                + " AS total FROM t";
+        runWithSmallStack(() -> {
+            FormatOptions options = new FormatOptions();
+            String result = new FormatPrinter(options).format(sql);
+            Assertions.assertTrue(result.startsWith("SELECT c0+c1+c2"), result);
+
+            DagGraph graph = new SQLDagAnalyzer().analyze(sql);
+            Assertions.assertTrue(graph.getNodes().stream().anyMatch(n -> n.getType() == NodeType.PROJECT));
+        });
+    }
+}
@@ -0,0 +1,158 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FormatDdlTest extends PrinterTestBase {
+
+    private static String format(String sql) {
+        return new FormatPrinter(FormatOptions.defaultOptions()).format(sql);
+    }
+
+    @Test
+    public void testCreateTable() {
+        String sql = """
+                create table if not exists db.orders (
+                  id bigint not null comment 'order id', amount decimal(10, 2) sum default "0", dt date,
+                  index idx_id (id) using bitmap comment 'x'
+                ) engine = olap aggregate key(id) comment 'orders'
+                partition by range(dt) (partition p1 values less than ('2024-01-01'),
+                partition p2 values less than ('2024-02-01'))
+                distributed by hash(id) buckets 8 properties ("replication_num" = "3", "storage_medium" = "SSD");""";
+        assertEquals("""
+                CREATE TABLE IF NOT EXISTS db.orders (
+                    id BIGINT NOT NULL COMMENT 'order id',
+                    amount DECIMAL(10,2) SUM DEFAULT "0",
+                    dt DATE,
+                    INDEX idx_id (id) USING BITMAP COMMENT 'x'
+                )
+                ENGINE = olap
+                AGGREGATE KEY(id)
+                COMMENT 'orders'
+                PARTITION BY RANGE(dt) (
+                    PARTITION p1 VALUES LESS THAN ('2024-01-01'),
+                    PARTITION p2 VALUES LESS THAN ('2024-02-01')
+                )
+                DISTRIBUTED BY HASH(id) BUCKETS 8
+                PROPERTIES (
+                    "replication_num" = "3",
+                    "storage_medium" = "SSD"
+                );""", format(sql));
+
+        assertEquals("""
+                CREATE TABLE t3
+                PRIMARY KEY(id)
+                DISTRIBUTED BY HASH(id)
+                AS SELECT id, name
+                FROM t
+                WHERE id > 0;""", format("create table t3 primary key (id) distributed by hash(id) "
+                + "as select id, name from t where id > 0;"));
+        assertEquals("CREATE TABLE t2 LIKE db.t;", format("create table t2 like db.t;"));
+    }
+
+    @Test
+    public void testViews() {
+        assertEquals("""
+                CREATE MATERIALIZED VIEW mv1
+                DISTRIBUTED BY HASH(id)
+                REFRESH ASYNC EVERY (INTERVAL 1 DAY)
+                AS SELECT id, SUM(amount)
+                FROM orders
+                GROUP BY id;""", format("create materialized view mv1 distributed by hash(id) "
+                + "refresh async every (interval 1 day) as select id, sum(amount) from orders group by id;"));
+        assertEquals("""
+                CREATE VIEW v1 (
+                    a COMMENT 'x',
+                    b
+                )
+                COMMENT 'view'
+                AS SELECT a, b
+                FROM t;""", format("create view v1 (a comment 'x', b) comment 'view' as select a, b from t;"));
+    }
+
+    @Test
+    public void testDml() {
+        assertEquals("""
+                INSERT OVERWRITE db.t PARTITION (p1) (a, b) WITH LABEL l1
+                SELECT a, b
+                FROM s
+                WHERE x > 1;""", format("insert overwrite db.t partition (p1) (a, b) with label l1 "
+                + "select a, b from s where x > 1;"));
+        assertEquals("""
+                UPDATE t
+                SET a = 1, b = b + 1
+                FROM s
+                WHERE t.id = s.id AND s.x > 0;""", format("update t set a = 1, b = b + 1 from s "
+                + "where t.id = s.id and s.x > 0;"));
+        assertEquals("""
+                DELETE FROM t PARTITION (p1)
+                USING s
+                WHERE t.id = s.id;""", format("delete from t partition (p1) using s where t.id = s.id;"));
+    }
+
+    @Test
+    public void testLoad() {
+        assertEquals("""
+                CREATE ROUTINE LOAD db.job1 ON orders
+                COLUMNS TERMINATED BY ",",
+                COLUMNS (id, uid, amount)
+                PROPERTIES (
+                    "desired_concurrent_number" = "3"
+                )
+                FROM kafka (
+                    "kafka_broker_list" = "b:9092",
+                    "kafka_topic" = "t"
+                );""", format("create routine load db.job1 on orders columns terminated by \",\", "
+                + "columns (id, uid, amount) properties (\"desired_concurrent_number\" = \"3\") "
+                + "from kafka (\"kafka_broker_list\" = \"b:9092\", \"kafka_topic\" = \"t\");"));
+        assertEquals("""
+                LOAD LABEL db.l1
+                (
+                    DATA INFILE ("hdfs://a/b")
+                    INTO TABLE t
+                    COLUMNS TERMINATED BY ","
+                    (a, b)
+                )
+                WITH BROKER "b" (
+                    "user" = "u"
+                );""", format("load label db.l1 (data infile (\"hdfs://a/b\") into table t "
+                + "columns terminated by \",\" (a, b)) with broker \"b\" (\"user\" = \"u\");"));
+    }
+
+    @Test
+    public void testOptions() {
+        String sql = "alter table db.t add index idx (a, b) using bitmap comment 'i', modify column c bigint;";
+        assertEquals("""
+                ALTER TABLE db.t
+                ADD INDEX idx (a, b) USING BITMAP COMMENT 'i',
+                MODIFY COLUMN c BIGINT;""", format(sql));
+
+        FormatOptions options = FormatOptions.defaultOptions();
+        options.breakStatementClauses = false;
+        assertEquals("ALTER TABLE db.t ADD INDEX idx (a, b) USING BITMAP COMMENT 'i', MODIFY COLUMN c BIGINT;",
+                new FormatPrinter(options).format(sql));
+        assertEquals("alter table db.t add index idx (a,b) using bitmap comment 'i',modify column c bigint;",
+                new FormatPrinter(new FormatOptions()).format(sql));
+    }
+
+    @Test
+    public void testLambdaParameters() {
+        assertEquals("SELECT array_map((x, y)->x + y, a, b)\nFROM t;",
+                format("select array_map((x, y) -> x + y, a, b) from t;"));
+    }
+}
@@ -0,0 +1,94 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.CompactTokenStream;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import com.starsqls.format.InsertValuesScanner;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FormatInsertValuesTest extends PrinterTestBase {
+    private static final String SCRIPT = """
+            insert into t (a, b, c, d) values (1, 'x', -2.5, true),
+            /* second */ (2, NULL, DEFAULT, false), (3, 'it''s', + 4, "q"),
+            (4, 'a;b', 1e3, 0.5);
+            select 1;
+            insert into t values (1, now()), (2, 3);
+            insert into t values (1, 2);""";
+
+    private static int scan(String sql) {
+        CompactTokenStream tokens = new CompactTokenStream(new StarRocksLexer(CharStreams.fromString(sql)));
+        tokens.fill();
+        return new InsertValuesScanner(tokens).scan();
+    }
+
+    /**
+     * Format through the parser only, without the VALUES fast path
+     */
+    private static String formatParsed(String sql, FormatOptions options) {
+        CommonTokenStream tokens = new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(sql)));
+        tokens.fill();
+        StarRocksParser.SqlStatementsContext context = new StarRocksParser(tokens).sqlStatements();
+        return new FormatPrinter(options).format(tokens.getTokens(), context);
+    }
+
+    @Test
+    public void testScan() {
+        assertEquals(3, scan(SCRIPT));
+        assertEquals(0, scan("insert into t select * from (values (1), (2)) v"));
+        assertEquals(0, scan("insert into t values (1, 2), (3, 4 + 1)"));
+        assertEquals(0, scan("explain insert into t values (1, 2), (3, 4)"));
+        assertEquals(1, scan("insert overwrite t partition (p1) (a) with label l1 values ('a'), ('b')"));
+    }
+
+    @Test
+    public void testSameAsParsed() {
+        FormatOptions comments = FormatOptions.defaultOptions();
+        comments.ignoreComment = false;
+        for (FormatOptions options : List.of(FormatOptions.defaultOptions(), FormatOptions.allFormatOptions(),
+                comments)) {
+            assertEquals(formatParsed(SCRIPT, options), new FormatPrinter(options).format(SCRIPT));
+        }
+    }
+
+    @Test
+    public void testBreakInsertValues() {
+        FormatOptions options = FormatOptions.defaultOptions();
+        options.breakInsertValues = true;
+        String sql = "insert into t values (1, 'a'), (2, null), (-3, 'c');";
+        assertEquals("""
+                INSERT INTO t VALUES\s
+                    (1, 'a'),\s
+                    (2, NULL ),\s
+                    (-3, 'c');""", new FormatPrinter(options).format(sql));
+    }
+
+    @Test
+    public void testSyntaxError() {
+        FormatOptions options = FormatOptions.defaultOptions();
+        assertThrows(IllegalArgumentException.class,
+                () -> new FormatPrinter(options).format("insert into values (1), (2);"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new FormatPrinter(options).format("insert into t values (1), (2,, 3), (4);"));
+    }
+}
@@ -0,0 +1,53 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import com.starsqls.format.FormatProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FormatProfileTest extends PrinterTestBase {
+
+    @Test
+    public void testProfile() {
+        FormatOptions options = FormatOptions.defaultOptions();
+        options.maxLineLength = 40;
+        String sql = sql("tpch/q7.sql");
+
+        FormatProfile profile = new FormatPrinter(options).profile(sql);
+        assertEquals(new FormatPrinter(options).format(sql), profile.getResult());
+
+        for (FormatProfile.Phase phase : FormatProfile.Phase.values()) {
+            assertTrue(profile.getPhases().containsKey(phase), phase.name());
+        }
+        assertTrue(profile.getPhases().get(FormatProfile.Phase.LINE_BREAK).getCount() > 1);
+        assertTrue(profile.getPhases().get(FormatProfile.Phase.VISIT).getNanos()
+                >= profile.getPhases().get(FormatProfile.Phase.LINE_BREAK).getNanos());
+        assertTrue(profile.getTokens() > 100);
+
+        List<FormatProfile.RuleStats> rules = profile.getRules();
+        assertFalse(rules.isEmpty());
+        for (int i = 1; i < rules.size(); i++) {
+            assertTrue(rules.get(i - 1).getTimeInPrediction() >= rules.get(i).getTimeInPrediction());
+        }
+        assertTrue(rules.stream().anyMatch(r -> r.getRule().equals("expression")));
+        assertTrue(profile.toReport(5).contains("PARSE"));
+    }
+}
@@ -0,0 +1,131 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import com.starsqls.format.IncrementalDocument;
+import com.starsqls.format.StatementSplitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IncrementalDocumentTest extends PrinterTestBase {
+
+    private static String script(int statements) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            sb.append("-- statement ").append(i).append("\nselect a, b from t").append(i)
+                    .append(" where x = ").append(i).append(";\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testEditReparsesOnlyTouchedStatement() {
+        IncrementalDocument doc = new IncrementalDocument(script(100));
+        assertEquals(100, doc.getStatementCount());
+        Object before = doc.getTree(49);
+        Object after = doc.getTree(51);
+
+        int offset = doc.getText().indexOf("t50 ") + 3;
+        assertEquals(1, doc.edit(offset, 0, " join u on t50.id = u.id"));
+        assertEquals(100, doc.getStatementCount());
+        assertSame(before, doc.getTree(49));
+        assertSame(after, doc.getTree(51));
+        assertTrue(doc.getText().contains("t50 join u on t50.id = u.id where"));
+        assertEquals(new StatementSplitter().split(doc.getText()), doc.getStatements());
+    }
+
+    @Test
+    public void testEditsMatchFullParse() {
+        String[] inserts = {";", "select 1;", "/*", "*/", "'", "x", " ", "\n", "-- c\n", "`", "😀", "select 2"};
+        Random random = new Random(7);
+        IncrementalDocument doc = new IncrementalDocument(script(20));
+        for (int i = 0; i < 500; i++) {
+            String text = doc.getText();
+            int offset = random.nextInt(text.length() + 1);
+            int length = random.nextInt(4) == 0 ? Math.min(random.nextInt(20), text.length() - offset) : 0;
+            // never split a surrogate pair
+            if (offset > 0 && Character.isLowSurrogate(text.charAt(Math.min(offset, text.length() - 1)))) {
+                continue;
+            }
+            if (offset + length < text.length() && Character.isLowSurrogate(text.charAt(offset + length))) {
+                continue;
+            }
+            doc.edit(offset, length, inserts[random.nextInt(inserts.length)]);
+
+            IncrementalDocument fresh = new IncrementalDocument(doc.getText());
+            assertEquals(new StatementSplitter().split(doc.getText()), doc.getStatements(), "edit " + i);
+            assertEquals(fresh.getSyntaxErrors(), doc.getSyntaxErrors(), "edit " + i);
+            for (int s = 0; s < doc.getStatementCount(); s++) {
+                assertEquals(fresh.getTree(s).toStringTree(), doc.getTree(s).toStringTree(), "edit " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testCommentSwallowsStatements() {
+        IncrementalDocument doc = new IncrementalDocument(script(10).replace("t7 ", "t7 /* seven */ "));
+        int offset = doc.getText().indexOf("select a, b from t5");
+        // the comment now runs to the end of the one in statement 7, which is lexed again, nothing after it
+        assertEquals(1, doc.edit(offset, 0, "/*"));
+        assertEquals(8, doc.getStatementCount());
+        assertEquals(3, doc.edit(offset, 2, ""));
+        assertEquals(10, doc.getStatementCount());
+    }
+
+    @Test
+    public void testClosingEarlierComment() {
+        // "/*" without an end is lexed as '/' '*' after scanning to EOF, closing it changes the statements before
+        IncrementalDocument doc = new IncrementalDocument("select 1 /* x;\nselect 2;\nselect 3;");
+        assertEquals(3, doc.getStatementCount());
+        doc.edit(doc.getText().indexOf("select 3"), 0, "*/ ");
+        assertEquals(new StatementSplitter().split(doc.getText()), doc.getStatements());
+        assertEquals(1, doc.getStatementCount());
+    }
+
+    @Test
+    public void testFormat() {
+        FormatOptions options = FormatOptions.defaultOptions();
+        String sql = sql("tpch/q7.sql") + "\n" + sql("tpch/q8.sql") + "\n" + sql("tpch/q2.sql");
+        IncrementalDocument doc = new IncrementalDocument(sql);
+        assertEquals(new FormatPrinter(options).format(sql).strip(), doc.format(options).strip());
+
+        int offset = doc.getText().indexOf("'IRAN'");
+        doc.edit(offset, "'IRAN'".length(), "'CHINA'");
+        assertEquals(new FormatPrinter(options).format(doc.getText()).strip(), doc.format(options).strip());
+        assertEquals(new FormatPrinter(new FormatOptions()).format(doc.getText()).strip(),
+                doc.format(new FormatOptions()).strip());
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        IncrementalDocument doc = new IncrementalDocument("select 1;\nselect 2;\nselect 3 from;");
+        List<String> errors = doc.getSyntaxErrors();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).startsWith("line 3:13"), errors.get(0));
+        assertThrows(IllegalArgumentException.class, () -> doc.format(FormatOptions.defaultOptions()));
+
+        doc.edit(doc.getText().length() - 1, 0, " t");
+        assertTrue(doc.getSyntaxErrors().isEmpty());
+        assertNotSame(null, doc.format(FormatOptions.defaultOptions()));
+    }
+}
@@ -0,0 +1,102 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.MappedFileCharStream;
+import com.starsqls.format.Printer;
+import com.starsqls.parser.StarRocksLexer;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedFileCharStreamTest extends PrinterTestBase {
+    private static final String SCRIPT = """
+            -- 报表 ünïcode
+            select a, '😀x' as `列名`, b from t where s = 'é;€' /* 注释 */;
+            select 1;""";
+
+    @TempDir
+    Path dir;
+
+    private Path write(String name, byte[] content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, content);
+        return file;
+    }
+
+    private static List<String> tokens(CharStream input) {
+        return new StarRocksLexer(input).getAllTokens().stream()
+                .map(t -> t.getType() + ":" + t.getText() + "@" + t.getLine() + ":" + t.getCharPositionInLine())
+                .toList();
+    }
+
+    @Test
+    public void testTokens() throws IOException {
+        Path file = write("a.sql", SCRIPT.getBytes(StandardCharsets.UTF_8));
+        assertEquals(tokens(CharStreams.fromString(SCRIPT)), tokens(MappedFileCharStream.open(file)));
+    }
+
+    @Test
+    public void testDecode() throws IOException {
+        byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+        byte[] text = "a€😀".getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[bom.length + text.length + 1];
+        System.arraycopy(bom, 0, content, 0, bom.length);
+        System.arraycopy(text, 0, content, bom.length, text.length);
+        // a stray continuation byte
+        content[content.length - 1] = (byte) 0x80;
+
+        MappedFileCharStream input = MappedFileCharStream.open(write("b.sql", content));
+        assertEquals(text.length + 1, input.size());
+        assertEquals('a', input.LA(1));
+        assertEquals('€', input.LA(2));
+        assertEquals(0x1F600, input.LA(3));
+        assertEquals(0xFFFD, input.LA(4));
+        assertEquals(CharStream.EOF, input.LA(5));
+
+        input.consume();
+        input.consume();
+        assertEquals(4, input.index());
+        assertEquals('€', input.LA(-1));
+        assertEquals('a', input.LA(-2));
+        assertEquals(CharStream.EOF, input.LA(-3));
+        input.consume();
+        input.consume();
+        assertEquals(0xFFFD, input.LA(-1));
+        assertEquals(CharStream.EOF, input.LA(1));
+        assertThrows(IllegalStateException.class, input::consume);
+    }
+
+    @Test
+    public void testFormatFile() throws IOException {
+        String sql = sql("tpch/q7.sql");
+        Path file = write("q7.sql", (SCRIPT + "\n" + sql).getBytes(StandardCharsets.UTF_8));
+        Printer printer = Printer.create(FormatOptions.defaultOptions());
+        StringWriter out = new StringWriter();
+        Printer.create(FormatOptions.defaultOptions()).format(file, out);
+        assertEquals(printer.format(SCRIPT + "\n" + sql), out.toString());
+    }
+}
@@ -0,0 +1,86 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPhase;
+import com.starsqls.format.PhaseListener;
+import com.starsqls.format.Printer;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhaseListenerTest {
+
+    private static class Recorder implements PhaseListener {
+        final Map<FormatPhase, Integer> phases = new EnumMap<>(FormatPhase.class);
+        int tokens;
+        int failures;
+
+        @Override
+        public void onPhase(FormatPhase phase, long nanos) {
+            assertTrue(nanos >= 0);
+            phases.merge(phase, 1, Integer::sum);
+        }
+
+        @Override
+        public void onTokens(int tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void onParseFailure() {
+            failures++;
+        }
+    }
+
+    @Test
+    public void testFormatPhases() throws Exception {
+        Recorder recorder = new Recorder();
+        Printer printer = Printer.create(FormatOptions.defaultOptions());
+        printer.setPhaseListener(recorder);
+        printer.format("SELECT a /* c */ FROM t; SELECT 1");
+        assertEquals(List.of(FormatPhase.values()), List.copyOf(recorder.phases.keySet()));
+        assertTrue(recorder.phases.values().stream().allMatch(n -> n == 1));
+        assertTrue(recorder.tokens > 10);
+
+        printer = Printer.create(FormatOptions.defaultOptions());
+        printer.setPhaseListener(recorder);
+        printer.format("SELECT 1", new StringWriter());
+        assertTrue(recorder.phases.values().stream().allMatch(n -> n == 2));
+
+        Printer failing = Printer.create(FormatOptions.defaultOptions());
+        failing.setPhaseListener(recorder);
+        assertThrows(IllegalArgumentException.class, () -> failing.format("SELEC 1"));
+        assertEquals(1, recorder.failures);
+    }
+
+    @Test
+    public void testAnalyzePhases() {
+        Recorder recorder = new Recorder();
+        SQLDagAnalyzer analyzer = new SQLDagAnalyzer();
+        analyzer.setPhaseListener(recorder);
+        analyzer.analyze("SELECT a FROM t WHERE b IN (SELECT b FROM u)");
+        assertEquals(List.of(FormatPhase.LEX, FormatPhase.PARSE, FormatPhase.VISIT),
+                List.copyOf(recorder.phases.keySet()));
+        assertEquals(0, recorder.failures);
+    }
+}
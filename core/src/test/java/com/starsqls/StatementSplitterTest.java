@@ -0,0 +1,91 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.Printer;
+import com.starsqls.format.StatementRange;
+import com.starsqls.format.StatementSplitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatementSplitterTest extends PrinterTestBase {
+    private static final String SCRIPT = """
+            -- daily report
+            select a, b from t where s = 'x;y' and `c;d` = 1;
+            ;
+            insert into r select c from u -- source
+            ;
+            /* only a comment */;
+            select 1 /* trailing */""";
+
+    private static List<String> texts(String script) {
+        return new StatementSplitter().split(script).stream().map(r -> r.text(script)).toList();
+    }
+
+    @Test
+    public void testSplit() {
+        assertEquals(List.of(
+                "select a, b from t where s = 'x;y' and `c;d` = 1;",
+                "insert into r select c from u -- source\n;",
+                "select 1 /* trailing */"), texts(SCRIPT));
+        assertEquals(List.of(), texts("  -- nothing\n;;"));
+        // supplementary characters take two chars but one code point in the lexer
+        assertEquals(List.of("select '😀';", "select 2;"), texts("select '😀'; select 2;"));
+    }
+
+    @Test
+    public void testStatementAt() {
+        String script = "select 1;  select 2;\nselect 3";
+        List<StatementRange> ranges = new StatementSplitter().split(script);
+        assertEquals("select 1;", StatementSplitter.statementAt(ranges, 0).text(script));
+        assertEquals("select 1;", StatementSplitter.statementAt(ranges, 9).text(script));
+        assertEquals("select 2;", StatementSplitter.statementAt(ranges, 11).text(script));
+        assertEquals("select 3", StatementSplitter.statementAt(ranges, script.length()).text(script));
+        assertNull(StatementSplitter.statementAt(List.of(), 0));
+
+        assertEquals(2, StatementSplitter.statementsIn(ranges, 5, 12).size());
+        assertEquals(1, StatementSplitter.statementsIn(ranges, 21, 21).size());
+    }
+
+    @Test
+    public void testFormatRange() {
+        FormatOptions options = FormatOptions.defaultOptions();
+        String script = "select a from t;\n\nselect b from u where x=1;\nselect c from v;";
+        int edit = script.indexOf("x=1");
+        String formatted = new StatementSplitter().formatRange(script, edit, edit, options);
+        assertEquals("select a from t;\n\n" + Printer.create(options).format("select b from u where x=1;")
+                + "\nselect c from v;", formatted);
+
+        // every statement formatted on its own gives the same statements as formatting the whole script
+        String q = sql("tpch/q7.sql") + ";\n" + sql("tpch/q8.sql");
+        String all = new StatementSplitter().formatRange(q, 0, q.length(), options);
+        assertEquals(Printer.create(options).format(q).strip().replaceAll("\\s+", " "),
+                all.strip().replaceAll("\\s+", " "));
+        assertTrue(all.contains("\n"));
+    }
+
+    @Test
+    public void testFormatRangeKeepsComments() {
+        String script = "select 1;\n-- keep me\nselect a /* why */ from t where x = 1;\n";
+        String formatted = new StatementSplitter().formatRange(script, 30, 31, FormatOptions.defaultOptions());
+        assertTrue(formatted.startsWith("select 1;\n-- keep me\n"), formatted);
+        assertTrue(formatted.contains("/* why */"), formatted);
+        assertTrue(FormatOptions.defaultOptions().ignoreComment, "the options passed in are left alone");
+    }
+}
@@ -0,0 +1,85 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls;
+
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.Printer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StreamingFormatTest extends PrinterTestBase {
+    private static final String SCRIPT = """
+            -- daily report
+            SELECT a, b /* columns */ FROM t WHERE x = 1;
+            ;
+            INSERT INTO r SELECT /*+SET_VAR(query_timeout=10) */ c FROM u -- source
+            ;
+            SELECT 1 /* trailing */""";
+
+    private static String stream(Printer printer, String sql) throws IOException {
+        StringWriter out = new StringWriter();
+        printer.format(sql, out);
+        return out.toString();
+    }
+
+    @Test
+    public void testSameAsFormat() throws IOException {
+        for (FormatOptions options : List.of(FormatOptions.defaultOptions(), new FormatOptions())) {
+            assertEquals(Printer.create(options).format(SCRIPT), stream(Printer.create(options), SCRIPT));
+        }
+        for (String dir : List.of("tpch", "complex")) {
+            Path path = Path.of(Objects.requireNonNull(ClassLoader.getSystemClassLoader().getResource("case/" + dir))
+                    .getPath());
+            try (Stream<Path> files = Files.list(path)) {
+                for (Path file : files.sorted().toList()) {
+                    String sql = sql(dir + "/" + file.getFileName());
+                    assertEquals(Printer.create(FormatOptions.defaultOptions()).format(sql),
+                            stream(Printer.create(FormatOptions.defaultOptions()), sql), file.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWritesPerStatement() throws IOException {
+        List<String> writes = new ArrayList<>();
+        Writer out = new Writer() {
+            @Override
+            public void write(char[] buf, int off, int len) {
+                writes.add(new String(buf, off, len));
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Printer.create(FormatOptions.defaultOptions()).format("SELECT 1; SELECT 2; SELECT 3", out);
+        assertEquals("SELECT 1;\nSELECT 2;\nSELECT 3", String.join("", writes));
+        assertEquals(5, writes.size());
+    }
+}
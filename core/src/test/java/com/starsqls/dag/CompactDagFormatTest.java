@@ -0,0 +1,119 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.dag;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.starsqls.PrinterTestBase;
+import com.starsqls.dag.cost.CostEstimator;
+import com.starsqls.dag.cost.StatisticsProvider;
+import com.starsqls.dag.model.CompactDagFormat;
+import com.starsqls.dag.model.DagEdge;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.DagNode;
+import com.starsqls.dag.model.EdgeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactDagFormatTest extends PrinterTestBase {
+
+    private static final Gson GSON = new Gson();
+
+    private static DagGraph analyze(String sql, boolean mergeDuplicates) {
+        SQLDagAnalyzer analyzer = new SQLDagAnalyzer();
+        analyzer.setMergeDuplicates(mergeDuplicates);
+        DagGraph graph = analyzer.analyze(sql);
+        new CostEstimator(StatisticsProvider.EMPTY).estimate(graph);
+        return graph;
+    }
+
+    private static void assertSameGraph(DagGraph expected, DagGraph actual) {
+        assertEquals(expected.getNodes().size(), actual.getNodes().size());
+        for (int i = 0; i < expected.getNodes().size(); i++) {
+            DagNode e = expected.getNodes().get(i);
+            DagNode a = actual.getNodes().get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getLabel(), a.getLabel());
+            assertEquals(e.getDetails(), a.getDetails());
+            assertEquals(e.getSqlFragment(), a.getSqlFragment());
+            assertEquals(e.getData().keySet(), a.getData().keySet());
+        }
+        assertEquals(expected.getEdges().size(), actual.getEdges().size());
+        for (int i = 0; i < expected.getEdges().size(); i++) {
+            DagEdge e = expected.getEdges().get(i);
+            DagEdge a = actual.getEdges().get(i);
+            assertEquals(e.getSource(), a.getSource());
+            assertEquals(e.getTarget(), a.getTarget());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getLabel(), a.getLabel());
+            assertEquals(e.getStyle(), a.getStyle());
+            assertEquals(e.getRows(), a.getRows());
+            assertEquals(e.getData().keySet(), a.getData().keySet());
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        DagGraph graph = analyze(sql("tpch/q7.sql"), true);
+        assertSameGraph(graph, CompactDagFormat.decode(CompactDagFormat.encode(graph)));
+    }
+
+    @Test
+    public void testJsonRoundTrip() {
+        String sql = """
+                SELECT a.k, b.k
+                FROM (SELECT k, sum(v) AS s FROM t WHERE x > 1 GROUP BY k) a
+                JOIN (SELECT k, sum(v) AS s FROM t WHERE x > 1 GROUP BY k) b ON a.k = b.k
+                """;
+        DagGraph graph = analyze(sql, false);
+        assertTrue(graph.getEdges().stream().anyMatch(e -> e.getType() == EdgeType.DUPLICATE_OF));
+
+        String json = GSON.toJson(CompactDagFormat.encode(graph));
+        Map<String, Object> parsed = GSON.fromJson(json, new TypeToken<Map<String, Object>>() {}.getType());
+        DagGraph decoded = CompactDagFormat.decode(parsed);
+        assertSameGraph(graph, decoded);
+
+        DagNode duplicate = graph.getNodes().stream().filter(n -> n.getData().containsKey("duplicateOf"))
+                .findFirst().orElseThrow();
+        assertEquals(duplicate.getData().get("duplicateOf"),
+                decoded.findNode(duplicate.getId()).getData().get("duplicateOf"));
+    }
+
+    @Test
+    public void testSmallerThanVerboseJson() {
+        DagGraph graph = analyze(sql("tpch/q8.sql"), false);
+        int verbose = GSON.toJson(Map.of("nodes", graph.getNodes(), "edges", graph.getEdges())).length();
+        int compact = GSON.toJson(CompactDagFormat.encode(graph)).length();
+        assertTrue(compact < verbose, compact + " >= " + verbose);
+    }
+
+    @Test
+    public void testStringsInterned() {
+        DagGraph graph = analyze("SELECT * FROM t WHERE a > 1 UNION ALL SELECT * FROM t WHERE a > 1", false);
+        @SuppressWarnings("unchecked")
+        List<String> strings = (List<String>) CompactDagFormat.encode(graph).get("strings");
+        assertEquals(strings.size(), strings.stream().distinct().count());
+        assertTrue(strings.contains("SCAN"));
+    }
+
+    @Test
+    public void testUnsupportedVersion() {
+        assertThrows(IllegalArgumentException.class, () -> CompactDagFormat.decode(Map.of("version", 99)));
+    }
+}
@@ -0,0 +1,123 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.dag;
+
+import com.starsqls.dag.model.DagEdge;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.DagNode;
+import com.starsqls.dag.model.EdgeType;
+import com.starsqls.dag.model.NodeType;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for duplicate subquery / CTE detection
+ */
+public class DuplicateSubplanTest {
+
+    private static final String SQL = """
+            SELECT a.k, b.k
+            FROM (SELECT k, sum(v) AS s FROM t WHERE x > 1 GROUP BY k) a
+            JOIN (select K, SUM(v) as s from `t` where x > 1 group by k) b ON a.k = b.k
+            WHERE a.s > (SELECT avg(v) FROM t)
+            """;
+
+    private static List<DagNode> subqueries(DagGraph graph) {
+        return graph.getNodes().stream().filter(n -> n.getType() == NodeType.SUBQUERY).toList();
+    }
+
+    @Test
+    public void testReportDuplicates() {
+        DagGraph graph = new SQLDagAnalyzer().analyze(SQL);
+
+        List<DagEdge> duplicates = graph.getEdges().stream().filter(e -> e.getType() == EdgeType.DUPLICATE_OF).toList();
+        assertEquals(1, duplicates.size());
+        DagNode first = graph.findNode(duplicates.get(0).getTarget());
+        DagNode second = graph.findNode(duplicates.get(0).getSource());
+        assertEquals(List.of("a"), first.getDetails());
+        assertEquals(List.of("b"), second.getDetails());
+        assertEquals(1, first.getData().get("duplicates"));
+        assertEquals(first.getId(), second.getData().get("duplicateOf"));
+        assertEquals(first.getData().get("subtreeHash"), second.getData().get("subtreeHash"));
+
+        // the scalar subquery is different
+        assertEquals(3, subqueries(graph).size());
+    }
+
+    @Test
+    public void testMergeDuplicates() {
+        DagGraph reported = new SQLDagAnalyzer().analyze(SQL);
+        SQLDagAnalyzer analyzer = new SQLDagAnalyzer();
+        analyzer.setMergeDuplicates(true);
+        DagGraph merged = analyzer.analyze(SQL);
+
+        assertEquals(2, subqueries(merged).size());
+        assertTrue(merged.getNodes().size() < reported.getNodes().size());
+        assertTrue(merged.getEdges().stream().noneMatch(e -> e.getType() == EdgeType.DUPLICATE_OF));
+        for (DagEdge edge : merged.getEdges()) {
+            assertNotNull(merged.findNode(edge.getSource()), edge.toString());
+            assertNotNull(merged.findNode(edge.getTarget()), edge.toString());
+        }
+
+        // both join inputs now come from the same subquery
+        DagNode join = merged.getNodes().stream().filter(n -> n.getType() == NodeType.JOIN).findFirst().orElseThrow();
+        List<DagEdge> inputs = merged.getIncomingEdges(join.getId());
+        assertEquals(2, inputs.size());
+        assertEquals(inputs.get(0).getSource(), inputs.get(1).getSource());
+    }
+
+    @Test
+    public void testDuplicateCte() {
+        String sql = """
+                WITH x AS (SELECT id FROM users WHERE age > 18),
+                     y AS (SELECT id FROM users WHERE age > 18),
+                     z AS (SELECT id FROM users WHERE age > 21)
+                SELECT * FROM x JOIN y ON x.id = y.id JOIN z ON x.id = z.id
+                """;
+        SQLDagAnalyzer analyzer = new SQLDagAnalyzer();
+        analyzer.setMergeDuplicates(true);
+        DagGraph graph = analyzer.analyze(sql);
+
+        assertNotNull(graph.findNode("cte_x"));
+        assertNull(graph.findNode("cte_y"));
+        assertNotNull(graph.findNode("cte_z"));
+        assertEquals(2, graph.getOutgoingEdges("cte_x").stream()
+            .filter(e -> e.getType() == EdgeType.CTE_REFERENCE).count());
+    }
+
+    @Test
+    public void testHasher() {
+        SubtreeHasher hasher = new SubtreeHasher();
+        ParseTree a = parseQuery("SELECT a FROM t WHERE s = 'X'");
+        ParseTree b = parseQuery("select `A` from T where s = 'X'");
+        ParseTree c = parseQuery("SELECT a FROM t WHERE s = 'x'");
+        assertEquals(hasher.hash(a), hasher.hash(b));
+        assertTrue(hasher.equivalent(a, b));
+        assertNotEquals(hasher.hash(a), hasher.hash(c));
+        assertFalse(hasher.equivalent(a, c));
+    }
+
+    private static ParseTree parseQuery(String sql) {
+        StarRocksLexer lexer = new StarRocksLexer(CharStreams.fromString(sql));
+        StarRocksParser parser = new StarRocksParser(new CommonTokenStream(lexer));
+        return parser.sqlStatements().singleStatement(0).statement();
+    }
+}
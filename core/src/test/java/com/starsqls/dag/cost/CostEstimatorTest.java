@@ -0,0 +1,110 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.dag.cost;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.model.DagEdge;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.DagNode;
+import com.starsqls.dag.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CostEstimatorTest {
+
+    private static final String STATS_JSON = """
+            {
+              "db.orders": { "rowCount": 1000000, "avgRowBytes": 200, "ndv": { "user_id": 50000, "status": 5 } },
+              "users": { "rowCount": 50000, "avgRowBytes": 100, "ndv": { "id": 50000, "city": 100 } }
+            }
+            """;
+
+    private DagGraph analyze(String sql, StatisticsProvider provider) {
+        DagGraph graph = new SQLDagAnalyzer().analyze(sql);
+        new CostEstimator(provider).estimate(graph);
+        return graph;
+    }
+
+    private static DagNode node(DagGraph graph, NodeType type) {
+        return graph.getNodes().stream().filter(n -> n.getType() == type).findFirst().orElseThrow();
+    }
+
+    private static long rows(DagNode node) {
+        return ((Number) node.getData().get(CostEstimator.ESTIMATED_ROWS)).longValue();
+    }
+
+    @Test
+    public void testFilterAndJoin() {
+        DagGraph graph = analyze("SELECT o.user_id, u.city FROM db.orders o JOIN users u ON o.user_id = u.id "
+                + "WHERE o.status = 'PAID'", FileStatisticsProvider.fromJson(STATS_JSON));
+
+        DagNode join = node(graph, NodeType.JOIN);
+        // 1M * 50k / max(ndv) = 1M
+        assertEquals(1_000_000, rows(join));
+        // status has 5 distinct values
+        assertEquals(200_000, rows(node(graph, NodeType.FILTER)));
+        assertEquals(1_000_000L * 300, join.getData().get(CostEstimator.ESTIMATED_BYTES));
+
+        for (DagEdge edge : graph.getIncomingEdges(join.getId())) {
+            assertNotNull(edge.getData().get(CostEstimator.ESTIMATED_ROWS));
+        }
+        double total = graph.getNodes().stream()
+                .mapToDouble(n -> (Double) n.getData().get(CostEstimator.RELATIVE_COST)).sum();
+        assertEquals(1.0, total, 0.01);
+        assertTrue((Double) graph.findNode("result").getData().get(CostEstimator.CUMULATIVE_COST)
+                >= (Double) join.getData().get(CostEstimator.CUMULATIVE_COST));
+    }
+
+    @Test
+    public void testAggregateAndLimit() {
+        DagGraph graph = analyze("SELECT city, count(*) FROM users GROUP BY city ORDER BY city LIMIT 10",
+                FileStatisticsProvider.fromJson(STATS_JSON));
+        assertEquals(100, rows(node(graph, NodeType.AGGREGATE)));
+        assertEquals(10, rows(node(graph, NodeType.LIMIT)));
+
+        // larger than a long, the limit is unknown and the rows of the input pass through
+        graph = analyze("SELECT city FROM users LIMIT 99999999999999999999",
+                FileStatisticsProvider.fromJson(STATS_JSON));
+        assertNull(node(graph, NodeType.LIMIT).getData().get("limit"));
+        assertEquals(50_000, rows(node(graph, NodeType.LIMIT)));
+    }
+
+    @Test
+    public void testMissingStats() {
+        DagGraph graph = analyze("SELECT * FROM unknown_table WHERE a > 1", StatisticsProvider.EMPTY);
+        DagNode scan = node(graph, NodeType.SCAN);
+        assertEquals(Boolean.TRUE, scan.getData().get(CostEstimator.STATS_MISSING));
+        assertEquals(CostEstimator.DEFAULT_ROW_COUNT, rows(scan));
+        assertTrue(rows(node(graph, NodeType.FILTER)) < rows(scan));
+    }
+
+    @Test
+    public void testCsvProvider() throws IOException {
+        String csv = """
+                table,column,row_count,avg_row_bytes,ndv
+                db.orders,,1000,50,
+                db.orders,user_id,,,10
+                """;
+        StatisticsProvider provider = FileStatisticsProvider.fromCsv(new StringReader(csv));
+        assertEquals(1000, provider.getTableStats("DB.ORDERS").getRowCount());
+        assertEquals(10, provider.getTableStats("`db`.`orders`").getNdv("USER_ID"));
+        assertNull(provider.getTableStats("users"));
+
+        DagGraph graph = analyze("SELECT * FROM db.orders WHERE user_id = 3", provider);
+        assertEquals(100, rows(node(graph, NodeType.FILTER)));
+    }
+}
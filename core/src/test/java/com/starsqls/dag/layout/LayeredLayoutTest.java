@@ -0,0 +1,158 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.dag.layout;
+
+import com.starsqls.PrinterTestBase;
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.model.DagEdge;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.DagNode;
+import com.starsqls.dag.model.EdgeType;
+import com.starsqls.dag.model.NodeType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayeredLayoutTest extends PrinterTestBase {
+
+    private static DagNode node(DagGraph graph, String id) {
+        DagNode node = new DagNode(id, NodeType.SCAN, "node " + id);
+        graph.addNode(node);
+        return node;
+    }
+
+    /**
+     * Every data flow edge points upwards and nodes of the same rank don't overlap
+     */
+    private static void assertWellFormed(DagGraph graph, DagLayout layout) {
+        assertEquals(graph.getNodes().size(), layout.getPositions().size());
+        for (DagEdge edge : graph.getEdges()) {
+            if (edge.getType() == EdgeType.DUPLICATE_OF) {
+                continue;
+            }
+            assertTrue(layout.getPosition(edge.getTarget()).getY() < layout.getPosition(edge.getSource()).getY(),
+                    edge.toString());
+        }
+        List<NodePosition> positions = new ArrayList<>(layout.getPositions().values());
+        for (int i = 0; i < positions.size(); i++) {
+            for (int j = i + 1; j < positions.size(); j++) {
+                NodePosition a = positions.get(i);
+                NodePosition b = positions.get(j);
+                if (a.getY() == b.getY()) {
+                    assertTrue(Math.abs(a.getX() - b.getX()) >= (a.getWidth() + b.getWidth()) / 2,
+                            a + " overlaps " + b);
+                }
+            }
+            NodePosition p = positions.get(i);
+            assertTrue(p.getX() - p.getWidth() / 2 >= -1e-6 && p.getX() + p.getWidth() / 2 <= layout.getWidth() + 1e-6);
+        }
+    }
+
+    @Test
+    public void testBottomToTop() {
+        DagGraph graph = new SQLDagAnalyzer().analyze("SELECT a, count(*) FROM t WHERE b > 1 GROUP BY a");
+        DagLayout layout = new LayeredLayout().layout(graph);
+        assertWellFormed(graph, layout);
+
+        DagNode scan = graph.getNodes().stream().filter(n -> n.getType() == NodeType.SCAN).findFirst().orElseThrow();
+        NodePosition result = layout.getPosition("result");
+        assertEquals(result.getHeight() / 2, result.getY(), 1e-6);
+        assertEquals(layout.getHeight(), layout.getPosition(scan.getId()).getY()
+                + layout.getPosition(scan.getId()).getHeight() / 2, 1e-6);
+        // a chain is drawn straight
+        for (NodePosition position : layout.getPositions().values()) {
+            assertEquals(result.getX(), position.getX(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testCrossingReduction() {
+        // a1 feeds b2 and a2 feeds b1, the initial order crosses the edges
+        DagGraph graph = new DagGraph();
+        DagNode a1 = node(graph, "a1");
+        DagNode a2 = node(graph, "a2");
+        DagNode b1 = node(graph, "b1");
+        DagNode b2 = node(graph, "b2");
+        DagNode c = node(graph, "c");
+        graph.addEdge(a1, b2);
+        graph.addEdge(a2, b1);
+        graph.addEdge(b1, c);
+        graph.addEdge(b2, c);
+        DagLayout layout = new LayeredLayout().layout(graph);
+        assertWellFormed(graph, layout);
+        assertEquals(3, layout.getRanks());
+        assertEquals(0, layout.getCrossings());
+    }
+
+    @Test
+    public void testLongEdgesAndSources() {
+        // the scan joined at the top hangs right below its join, not on the bottom rank
+        DagGraph graph = new DagGraph();
+        DagNode s1 = node(graph, "s1");
+        DagNode f1 = node(graph, "f1");
+        DagNode f2 = node(graph, "f2");
+        DagNode s2 = node(graph, "s2");
+        DagNode join = node(graph, "join");
+        graph.addEdge(s1, f1);
+        graph.addEdge(f1, f2);
+        graph.addEdge(f2, join);
+        graph.addEdge(s2, join);
+        graph.addEdge(s1, join);
+        DagLayout layout = new LayeredLayout().layout(graph);
+        assertWellFormed(graph, layout);
+        assertEquals(layout.getPosition("f2").getY(), layout.getPosition("s2").getY(), 1e-6);
+    }
+
+    @Test
+    public void testCycleAndDuplicateEdges() {
+        DagGraph graph = new DagGraph();
+        DagNode a = node(graph, "a");
+        DagNode b = node(graph, "b");
+        DagNode c = node(graph, "c");
+        graph.addEdge(a, b);
+        graph.addEdge(b, c);
+        graph.addEdge(c, a);
+        graph.addEdge(a, c, EdgeType.DUPLICATE_OF);
+        DagLayout layout = new LayeredLayout().layout(graph);
+        assertEquals(3, layout.getRanks());
+        assertEquals(3, layout.getPositions().size());
+    }
+
+    @Test
+    public void testLargeQueries() {
+        for (String file : List.of("tpch/q2.sql", "tpch/q8.sql", "tpch/q21.sql")) {
+            DagGraph graph = new SQLDagAnalyzer().analyze(sql(file));
+            DagLayout layout = new LayeredLayout().layout(graph);
+            assertWellFormed(graph, layout);
+        }
+        assertEquals(new DagLayout(Map.of(), 0, 0, 0, 0).toString(),
+                new LayeredLayout().layout(new DagGraph()).toString());
+    }
+
+    @Test
+    public void testFingerprint() {
+        String sql = sql("tpch/q7.sql");
+        String fingerprint = LayeredLayout.fingerprint(new SQLDagAnalyzer().analyze(sql));
+        assertEquals(fingerprint, LayeredLayout.fingerprint(new SQLDagAnalyzer().analyze(sql)));
+        assertNotEquals(fingerprint, LayeredLayout.fingerprint(new SQLDagAnalyzer().analyze(sql("tpch/q8.sql"))));
+
+        DagGraph graph = new SQLDagAnalyzer().analyze(sql);
+        graph.getNodes().get(0).addDetail("changed");
+        assertNotEquals(fingerprint, LayeredLayout.fingerprint(graph));
+    }
+}
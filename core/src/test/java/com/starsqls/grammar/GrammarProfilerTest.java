@@ -0,0 +1,52 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.grammar;
+
+import com.starsqls.PrinterTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GrammarProfilerTest {
+
+    @Test
+    public void testRankedDecisions() {
+        GrammarProfiler profiler = new GrammarProfiler();
+        for (String file : List.of("tpch/q2.sql", "tpch/q7.sql", "tpch/q21.sql")) {
+            profiler.profile(PrinterTestBase.sql(file), file);
+        }
+        // a dangling AND forces error recovery and deeper predictions
+        profiler.profile("SELECT a FROM t WHERE a = 1 AND", "broken.sql");
+
+        for (GrammarProfiler.Ranking ranking : GrammarProfiler.Ranking.values()) {
+            List<DecisionStats> ranked = profiler.ranked(ranking);
+            assertFalse(ranked.isEmpty());
+            ranked.forEach(d -> assertNotNull(d.getRule()));
+        }
+
+        List<DecisionStats> byLookahead = profiler.ranked(GrammarProfiler.Ranking.LOOKAHEAD);
+        for (int i = 1; i < byLookahead.size(); i++) {
+            assertTrue(byLookahead.get(i - 1).getMaxLookahead() >= byLookahead.get(i).getMaxLookahead());
+        }
+        assertTrue(byLookahead.get(0).getMaxLookahead() > 1);
+        assertNotNull(byLookahead.get(0).getMaxLookaheadSample());
+
+        String report = profiler.report(GrammarProfiler.Ranking.FALLBACK, 10);
+        assertTrue(report.startsWith("4 scripts"), report);
+        assertTrue(report.contains("1 syntax errors"), report);
+    }
+}
@@ -0,0 +1,96 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.starsqls.grammar;
+
+import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.NodeType;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.FormatPrinter;
+import com.starsqls.parser.StarRocksLexer;
+import com.starsqls.parser.StarRocksParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlGeneratorTest {
+
+    private static int count(String text, String part) {
+        return text.split(Pattern.quote(part), -1).length - 1;
+    }
+
+    private static StarRocksParser.SqlStatementsContext parse(String sql) {
+        StarRocksParser parser = new StarRocksParser(new CommonTokenStream(new StarRocksLexer(CharStreams.fromString(sql))));
+        parser.removeErrorListeners();
+        StarRocksParser.SqlStatementsContext tree = parser.sqlStatements();
+        assertEquals(0, parser.getNumberOfSyntaxErrors(), sql);
+        return tree;
+    }
+
+    @Test
+    public void testDeterministic() {
+        SqlGenerator.Shape shape = new SqlGenerator.Shape().setCtes(2).setInList(10).setComments(20);
+        assertEquals(new SqlGenerator(42).script(shape, 3), new SqlGenerator(42).script(shape, 3));
+        assertNotEquals(new SqlGenerator(42).generate(shape), new SqlGenerator(43).generate(shape));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"columns", "joins", "depth", "ctes", "inList", "comments"})
+    public void testDimensionsAreValidSql(String dimension) {
+        for (int size : new int[] {0, 1, 8, 40}) {
+            SqlGenerator.Shape shape = new SqlGenerator.Shape().set(dimension, size);
+            for (long seed = 0; seed < 5; seed++) {
+                String sql = new SqlGenerator(seed).generate(shape);
+                parse(sql);
+                assertFalse(new FormatPrinter(FormatOptions.allFormatOptions()).format(sql).isBlank());
+                assertFalse(new SQLDagAnalyzer().analyze(sql).getNodes().isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testSizes() {
+        SqlGenerator generator = new SqlGenerator(7);
+        SqlGenerator.Shape base = new SqlGenerator.Shape().setDepth(0).setJoins(0);
+
+        assertEquals(64, count(generator.generate(base.setColumns(64)), " AS col_"));
+        base.setColumns(1);
+
+        String in = generator.generate(base.setInList(1000));
+        in = in.substring(in.indexOf(" IN ("), in.lastIndexOf(')'));
+        assertEquals(1000, count(in, ", ") + 1);
+        base.setInList(0);
+
+        String nested = generator.generate(base.setDepth(12));
+        assertEquals(13, count(nested, "SELECT "));
+        base.setDepth(0);
+
+        DagGraph graph = new SQLDagAnalyzer().analyze(generator.generate(base.setCtes(6)));
+        assertEquals(6, graph.getNodes().stream().filter(n -> n.getType() == NodeType.CTE).count());
+        base.setCtes(0);
+
+        String commented = generator.generate(base.setColumns(20).setComments(100));
+        assertEquals(20, count(commented, "/* item"));
+        assertTrue(count(commented, "-- note") >= 3);
+        assertEquals(0, count(generator.generate(base.setComments(0)), "-- note"));
+
+        assertEquals(5, parse(generator.script(new SqlGenerator.Shape(), 5)).singleStatement().size());
+    }
+}
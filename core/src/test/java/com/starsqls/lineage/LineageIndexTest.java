@@ -0,0 +1,170 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lineage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineageIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private Path write(String name, String sql) throws IOException {
+        Path file = dir.resolve("sql").resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, sql);
+        return file;
+    }
+
+    private static List<String> paths(List<LineageRef> refs) {
+        return refs.stream().map(LineageRef::getPath).distinct().sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testExtractor() {
+        String sql = """
+                WITH t AS (SELECT id FROM db.users)
+                SELECT o.amount, t.id FROM orders o JOIN t ON o.uid = t.id;
+                INSERT INTO `Report` SELECT amount FROM orders WHERE dt > '2024-01-01';
+                """;
+        List<StatementLineage> statements = new LineageExtractor().extract(sql);
+        assertEquals(2, statements.size());
+
+        StatementLineage first = statements.get(0);
+        assertEquals(List.of("db.users", "orders"), List.copyOf(first.getReadTables()));
+        assertTrue(first.getColumns().contains("orders.amount"));
+        assertTrue(first.getColumns().contains("orders.uid"));
+        assertFalse(first.getReadTables().contains("t"), "CTE is not a table");
+
+        StatementLineage second = statements.get(1);
+        assertEquals(3, second.getLine());
+        assertEquals(List.of("report"), List.copyOf(second.getWriteTables()));
+        assertEquals(List.of("orders"), List.copyOf(second.getReadTables()));
+        assertTrue(second.getColumns().contains("orders.dt"));
+    }
+
+    @Test
+    public void testIndexAndIncrementalRefresh() throws IOException {
+        write("a.sql", "SELECT * FROM orders WHERE amount > 10;\nSELECT name FROM users;");
+        write("b.sql", "INSERT INTO report SELECT u.name FROM db1.users u;");
+        Path c = write("nested/c.sql", "SELECT id FROM items;");
+        Path indexFile = dir.resolve("lineage.idx");
+
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            assertEquals(3, index.refresh());
+            assertEquals(0, index.refresh(), "Nothing changed");
+
+            assertEquals(List.of("a.sql", "b.sql"), paths(index.readersOf("users")));
+            assertEquals(List.of("b.sql"), paths(index.readersOf("db1.users")));
+            assertEquals(List.of("b.sql"), paths(index.writersOf("REPORT")));
+            assertEquals(List.of("a.sql"), paths(index.referencesTo("orders.amount")));
+            assertEquals(List.of("a.sql", "b.sql"), paths(index.referencesTo("users.name")));
+            assertEquals(List.of("b.sql"), paths(index.referencesTo("db1.users.name")));
+            assertEquals(1, index.readersOf("users").stream().filter(r -> r.getPath().equals("a.sql"))
+                    .findFirst().orElseThrow().getStatementIndex());
+
+            // change one file, remove another
+            Path a = write("a.sql", "SELECT * FROM payments;");
+            Files.setLastModifiedTime(a, FileTime.fromMillis(Files.getLastModifiedTime(a).toMillis() + 1000));
+            Files.delete(c);
+            assertEquals(2, index.refresh());
+            assertEquals(List.of("b.sql"), paths(index.readersOf("users")));
+            assertEquals(List.of("a.sql"), paths(index.readersOf("payments")));
+            assertTrue(index.readersOf("items").isEmpty());
+        }
+
+        // reopen from disk without touching the SQL files
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            assertEquals(2, index.fileCount());
+            assertEquals(List.of("a.sql"), paths(index.readersOf("payments")));
+            assertTrue(index.readersOf("orders").isEmpty());
+
+            index.compact();
+            assertEquals(2, index.fileCount());
+            assertEquals(List.of("b.sql"), paths(index.readersOf("users")));
+        }
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        write("a.sql", "SELECT * FROM orders;");
+        Path indexFile = dir.resolve("lineage.idx");
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            index.refresh();
+        }
+        long size = Files.size(indexFile);
+        // simulate a crash in the middle of an append
+        Files.write(indexFile, new byte[] {1, 0, 0, 0, 7, 0}, StandardOpenOption.APPEND);
+
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            assertEquals(List.of("a.sql"), paths(index.readersOf("orders")));
+        }
+        assertEquals(size, Files.size(indexFile));
+    }
+
+    @Test
+    public void testLongMultiByteNames() throws IOException {
+        // 3 bytes per character in UTF-8, longer than 0xFFFF bytes in total
+        String table = "表".repeat(30000);
+        write("a.sql", "SELECT * FROM `" + table + "`;");
+        Path indexFile = dir.resolve("lineage.idx");
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            index.refresh();
+        }
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            assertEquals(List.of("a.sql"), paths(index.readersOf(table)));
+            index.compact();
+            assertEquals(List.of("a.sql"), paths(index.readersOf(table)));
+        }
+    }
+
+    @Test
+    public void testCorruptedKind() throws IOException {
+        Path a = write("a.sql", "SELECT * FROM orders;");
+        Path indexFile = dir.resolve("lineage.idx");
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            assertEquals(1, index.refresh(List.of(a, a)), "Duplicates are indexed once");
+        }
+        byte[] bytes = Files.readAllBytes(indexFile);
+        // header, FILE record of "a.sql", then op, file id, statement and line of the first REF record
+        bytes[8 + 30 + 13] = 0x7f;
+        Files.write(indexFile, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> LineageIndex.open(dir.resolve("sql"), indexFile));
+        assertTrue(e.getMessage().startsWith("Corrupted lineage index"));
+    }
+
+    @Test
+    public void testOtherVersionIsRebuilt() throws IOException {
+        write("a.sql", "SELECT * FROM orders;");
+        Path indexFile = dir.resolve("lineage.idx");
+        Files.write(indexFile, new byte[] {0x53, 0x51, 0x4c, 0x49, 0, 0, 0, 1, 9});
+
+        try (LineageIndex index = LineageIndex.open(dir.resolve("sql"), indexFile)) {
+            assertEquals(0, index.fileCount());
+            assertEquals(1, index.refresh());
+            assertEquals(List.of("a.sql"), paths(index.readersOf("orders")));
+        }
+    }
+}
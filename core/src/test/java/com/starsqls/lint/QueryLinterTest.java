@@ -0,0 +1,105 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.lint;
+
+import com.starsqls.dag.cost.FileStatisticsProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryLinterTest {
+
+    private final QueryLinter linter = new QueryLinter();
+
+    private static List<String> rules(List<Finding> findings) {
+        return findings.stream().map(Finding::getRuleId).toList();
+    }
+
+    @Test
+    public void testCrossJoin() {
+        assertEquals(List.of("CROSS_JOIN"), rules(linter.lint("SELECT a.x FROM a, b WHERE a.x > 1")));
+        assertTrue(linter.lint("SELECT a.x FROM a, b WHERE a.id = b.id").isEmpty());
+        List<Finding> findings = linter.lint("SELECT * FROM a CROSS JOIN b");
+        assertEquals(Severity.WARNING, findings.get(0).getSeverity());
+    }
+
+    @Test
+    public void testSelectStarAndPartitionColumn() {
+        LintConfig config = LintConfig.defaultConfig();
+        config.statistics = FileStatisticsProvider.fromJson("""
+                { "db.events": { "rowCount": 1000, "columnCount": 120, "partitionColumns": ["dt"] } }
+                """);
+        QueryLinter linter = new QueryLinter(config);
+
+        List<Finding> findings = linter.lint("SELECT * FROM db.events e WHERE date_format(e.dt, '%Y%m') = '202401'");
+        assertEquals(List.of("SELECT_STAR_WIDE_TABLE", "FUNCTION_ON_PARTITION_COLUMN"), rules(findings));
+        assertEquals(1, findings.get(1).getLine());
+        assertEquals(32, findings.get(1).getColumn());
+
+        assertTrue(linter.lint("SELECT id FROM db.events WHERE dt = '2024-01-01'").isEmpty());
+        assertTrue(linter.lint("SELECT * FROM other WHERE upper(name) = 'A'").isEmpty());
+    }
+
+    @Test
+    public void testSubqueryOrderAndWindow() {
+        String sql = """
+                SELECT id, row_number() OVER (ORDER BY ts) AS rn,
+                       sum(v) OVER (PARTITION BY k ORDER BY ts ROWS BETWEEN CURRENT ROW AND UNBOUNDED FOLLOWING)
+                FROM (SELECT * FROM t ORDER BY ts) s
+                WHERE id NOT IN (SELECT id FROM blocked)
+                ORDER BY id;
+                """;
+        List<Finding> findings = linter.lint(sql);
+        assertEquals(List.of("UNBOUNDED_WINDOW", "UNBOUNDED_WINDOW", "ORDER_BY_WITHOUT_LIMIT", "NOT_IN_SUBQUERY",
+                "ORDER_BY_WITHOUT_LIMIT"), rules(findings));
+        assertEquals(Severity.INFO, findings.get(2).getSeverity());
+        assertEquals(Severity.WARNING, findings.get(4).getSeverity());
+        assertTrue(linter.lint("SELECT id FROM t ORDER BY id LIMIT 10").isEmpty());
+    }
+
+    @Test
+    public void testDuplicateCte() {
+        String sql = """
+                WITH a AS (SELECT k, sum(v) FROM t GROUP BY k),
+                     b AS (select K, SUM(v) from T group by k),
+                     c AS (SELECT k, sum(v) FROM t WHERE s = 'X' GROUP BY k)
+                SELECT * FROM a JOIN b ON a.k = b.k JOIN c ON a.k = c.k
+                """;
+        List<Finding> findings = linter.lint(sql);
+        assertEquals(List.of("DUPLICATE_CTE"), rules(findings));
+        assertTrue(findings.get(0).getMessage().contains("same body as a"));
+    }
+
+    @Test
+    public void testBatch(@TempDir Path dir) throws IOException {
+        Path ok = Files.writeString(dir.resolve("ok.sql"), "SELECT id FROM t LIMIT 1;");
+        Path bad = Files.writeString(dir.resolve("bad.sql"), "SELECT a.x FROM a, b;\nSELECT FROM;");
+        Path missing = dir.resolve("missing.sql");
+
+        LintConfig config = LintConfig.defaultConfig();
+        config.disabledRules.add("CROSS_JOIN");
+        Map<Path, List<Finding>> result = new QueryLinter(config).lintFiles(List.of(ok, bad, missing));
+        assertEquals(List.of(ok, bad, missing), List.copyOf(result.keySet()));
+        assertTrue(result.get(ok).isEmpty());
+        assertEquals(List.of(QueryLinter.SYNTAX_ERROR), rules(result.get(bad)));
+        assertEquals(2, result.get(bad).get(0).getLine());
+        assertEquals(List.of(QueryLinter.READ_ERROR), rules(result.get(missing)));
+    }
+}
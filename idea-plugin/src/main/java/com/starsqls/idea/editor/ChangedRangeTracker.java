@@ -0,0 +1,61 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.idea.editor;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.TextRange;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tracks the span of a .sql document edited since its last save, for format on save. The span is kept in the
+ * document's user data and grows with every change, so a save knows what changed without comparing the text
+ * with the file on disk.
+ */
+public class ChangedRangeTracker implements DocumentListener {
+    private static final Key<TextRange> CHANGED = Key.create("StarSQLs.changedRange");
+
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+        if (!StarSqlsSettings.getInstance().isFormatOnSave()) {
+            return;
+        }
+        Document document = event.getDocument();
+        if (!StatementFormatter.isSql(FileDocumentManager.getInstance().getFile(document))) {
+            return;
+        }
+        int offset = event.getOffset();
+        int changedEnd = offset + event.getNewLength();
+        TextRange range = document.getUserData(CHANGED);
+        if (range != null) {
+            // the end of the old span moves with the text after the change
+            if (range.getEndOffset() >= offset + event.getOldLength()) {
+                changedEnd = Math.max(changedEnd, range.getEndOffset() + event.getNewLength() - event.getOldLength());
+            }
+            offset = Math.min(range.getStartOffset(), offset);
+        }
+        document.putUserData(CHANGED, new TextRange(offset, Math.min(changedEnd, document.getTextLength())));
+    }
+
+    /**
+     * The span changed since the last call, null if nothing changed
+     */
+    static TextRange take(Document document) {
+        TextRange range = document.getUserData(CHANGED);
+        document.putUserData(CHANGED, null);
+        return range;
+    }
+}
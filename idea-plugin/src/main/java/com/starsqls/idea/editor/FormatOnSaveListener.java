@@ -0,0 +1,68 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.idea.editor;
+
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.command.CommandProcessor;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileDocumentManagerListener;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Formats the statements changed since the last save of a .sql file, when enabled in the tool window. The changed
+ * span comes from {@link ChangedRangeTracker}, so a large file only pays for splitting it into statements and
+ * formatting the edited ones.
+ * <p>
+ * The save itself is not held up: the statements are formatted in the background, and if the document wasn't
+ * edited meanwhile the result is applied outside of the undo history and the document is saved again.
+ */
+public class FormatOnSaveListener implements FileDocumentManagerListener {
+    private static final Logger LOG = Logger.getInstance(FormatOnSaveListener.class);
+
+    @Override
+    public void beforeDocumentSaving(@NotNull Document document) {
+        StarSqlsSettings settings = StarSqlsSettings.getInstance();
+        VirtualFile file = FileDocumentManager.getInstance().getFile(document);
+        if (!settings.isFormatOnSave() || !StatementFormatter.isSql(file) || !file.isValid()
+                || !document.isWritable()) {
+            return;
+        }
+        TextRange changed = ChangedRangeTracker.take(document);
+        if (changed == null) {
+            return;
+        }
+
+        long stamp = document.getModificationStamp();
+        new StatementFormatTask(null, document, changed.getStartOffset(), changed.getEndOffset(),
+                settings.getOptions(), edits -> {
+            if (edits.isEmpty() || !file.isValid()) {
+                return;
+            }
+            boolean[] applied = new boolean[1];
+            CommandProcessor.getInstance().runUndoTransparentAction(() -> WriteAction.run(
+                    () -> applied[0] = StatementFormatter.apply(document, stamp, edits)));
+            if (applied[0]) {
+                // the formatted statements don't count as changed for the next save
+                ChangedRangeTracker.take(document);
+                FileDocumentManager.getInstance().saveDocument(document);
+            }
+        }, error -> {
+            // a statement in the middle of editing doesn't parse, it was saved as it is
+            LOG.debug("Format on save skipped for " + file.getPath(), error);
+        }).queue();
+    }
+}
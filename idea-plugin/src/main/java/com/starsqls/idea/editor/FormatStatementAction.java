@@ -0,0 +1,76 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.idea.editor;
+
+import com.intellij.codeInsight.hint.HintManager;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.SelectionModel;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.starsqls.format.FormatOptions;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Formats the statement at the caret, or the statements touched by the selection, of a .sql file with the options
+ * saved from the tool window, in the background
+ */
+public class FormatStatementAction extends AnAction {
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        Editor editor = e.getData(CommonDataKeys.EDITOR);
+        VirtualFile file = e.getData(CommonDataKeys.VIRTUAL_FILE);
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null && editor != null
+                && editor.getDocument().isWritable() && StatementFormatter.isSql(file));
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        Editor editor = e.getData(CommonDataKeys.EDITOR);
+        if (project == null || editor == null) {
+            return;
+        }
+        SelectionModel selection = editor.getSelectionModel();
+        int start = selection.hasSelection() ? selection.getSelectionStart() : editor.getCaretModel().getOffset();
+        int end = selection.hasSelection() ? selection.getSelectionEnd() : start;
+        Document document = editor.getDocument();
+        FormatOptions options = StarSqlsSettings.getInstance().getOptions();
+        long stamp = document.getModificationStamp();
+        new StatementFormatTask(project, document, start, end, options, edits -> {
+            if (edits.isEmpty() || project.isDisposed()) {
+                return;
+            }
+            boolean applied = WriteCommandAction.writeCommandAction(project).withName("Format SQL Statement")
+                    .compute(() -> StatementFormatter.apply(document, stamp, edits));
+            if (!applied && !editor.isDisposed()) {
+                HintManager.getInstance().showErrorHint(editor, "The statement changed while it was formatted");
+            }
+        }, error -> {
+            if (!editor.isDisposed()) {
+                HintManager.getInstance().showErrorHint(editor, "Format failed: " + error.getMessage());
+            }
+        }).queue();
+    }
+}
@@ -0,0 +1,77 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.idea.editor;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.StatementSplitter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of the editor actions: the format options saved from the tool window, and whether changed statements
+ * are formatted on save.
+ */
+@Service(Service.Level.APP)
+@State(name = "StarSQLsSettings", storages = @Storage("starsqls.xml"))
+public final class StarSqlsSettings implements PersistentStateComponent<StarSqlsSettings.Settings> {
+
+    public static class Settings {
+        public boolean formatOnSave = false;
+
+        /**
+         * {@link FormatOptions#toJson()}, null until saved from the tool window
+         */
+        public String options;
+    }
+
+    private Settings settings = new Settings();
+
+    public static StarSqlsSettings getInstance() {
+        return ApplicationManager.getApplication().getService(StarSqlsSettings.class);
+    }
+
+    @Override
+    public @NotNull Settings getState() {
+        return settings;
+    }
+
+    @Override
+    public void loadState(@NotNull Settings state) {
+        this.settings = state;
+    }
+
+    public boolean isFormatOnSave() {
+        return settings.formatOnSave;
+    }
+
+    public void setFormatOnSave(boolean formatOnSave) {
+        settings.formatOnSave = formatOnSave;
+    }
+
+    /**
+     * Options for formatting statements in the editor, always keeping their comments
+     */
+    public FormatOptions getOptions() {
+        FormatOptions options = settings.options == null ? FormatOptions.defaultOptions()
+                : FormatOptions.fromJson(settings.options);
+        return StatementSplitter.keepComments(options);
+    }
+
+    public void setOptions(FormatOptions options) {
+        settings.options = options.toJson();
+    }
+}
@@ -0,0 +1,73 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.idea.editor;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.starsqls.format.FormatOptions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Formats the statements of a document intersecting a range in a background task, like
+ * {@link com.starsqls.idea.tool.FormatTask} does for the tool window. The task works on a snapshot of the text
+ * taken when it is created, the callbacks run on the EDT: compare the document's modification stamp with the one
+ * of the snapshot before applying the result, see {@link StatementFormatter#apply}.
+ */
+class StatementFormatTask extends Task.Backgroundable {
+    private final String text;
+
+    private final int start;
+
+    private final int end;
+
+    private final FormatOptions options;
+
+    private final Consumer<List<StatementFormatter.Edit>> onResult;
+
+    private final Consumer<Throwable> onError;
+
+    private List<StatementFormatter.Edit> edits;
+
+    StatementFormatTask(@Nullable Project project, Document document, int start, int end, FormatOptions options,
+                        Consumer<List<StatementFormatter.Edit>> onResult, Consumer<Throwable> onError) {
+        super(project, "Formatting SQL statements", true);
+        this.text = document.getText();
+        this.start = start;
+        this.end = end;
+        this.options = options;
+        this.onResult = onResult;
+        this.onError = onError;
+    }
+
+    @Override
+    public void run(@NotNull ProgressIndicator indicator) {
+        indicator.setIndeterminate(true);
+        edits = StatementFormatter.compute(text, start, end, options);
+    }
+
+    @Override
+    public void onSuccess() {
+        onResult.accept(edits);
+    }
+
+    @Override
+    public void onThrowable(@NotNull Throwable error) {
+        onError.accept(error);
+    }
+}
@@ -0,0 +1,81 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.idea.editor;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.Printer;
+import com.starsqls.format.StatementRange;
+import com.starsqls.format.StatementSplitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formats the statements of a document which intersect a range and replaces only them, the rest of the document,
+ * its markers and the caret outside of them are left alone. The statements are formatted off the EDT from a
+ * snapshot of the text, only the replacement runs in the write action.
+ */
+final class StatementFormatter {
+
+    private StatementFormatter() {
+    }
+
+    static boolean isSql(VirtualFile file) {
+        return file != null && "sql".equalsIgnoreCase(file.getExtension());
+    }
+
+    /**
+     * A formatted statement replacing [start, end) of the text it was computed from
+     */
+    record Edit(int start, int end, String text) {
+    }
+
+    /**
+     * Format the statements intersecting [start, end] of a snapshot of the document, off the EDT. Statements which
+     * are formatted already are left out. Fails if any of the statements fails to format.
+     */
+    static List<Edit> compute(String text, int start, int end, FormatOptions options) {
+        List<StatementRange> ranges = StatementSplitter.statementsIn(new StatementSplitter().split(text), start, end);
+        List<Edit> edits = new ArrayList<>(ranges.size());
+        for (StatementRange range : ranges) {
+            ProgressManager.checkCanceled();
+            String statement = range.text(text);
+            String formatted = Printer.create(options).format(statement);
+            if (!statement.equals(formatted)) {
+                edits.add(new Edit(range.getStart(), range.getEnd(), formatted));
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * Replace the statements in the document, must be called in a write action. Nothing is replaced if the document
+     * changed since the snapshot the edits were computed from.
+     *
+     * @return whether the edits were applied
+     */
+    static boolean apply(Document document, long modificationStamp, List<Edit> edits) {
+        if (document.getModificationStamp() != modificationStamp) {
+            return false;
+        }
+        // back to front, the offsets of the edits before stay valid
+        for (int i = edits.size() - 1; i >= 0; i--) {
+            Edit edit = edits.get(i);
+            document.replaceString(edit.start(), edit.end(), edit.text());
+        }
+        return true;
+    }
+}
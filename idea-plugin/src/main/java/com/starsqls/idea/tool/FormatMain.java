@@ -25,13 +25,13 @@ import com.intellij.ui.components.JBTextField;
 import com.intellij.ui.content.Content;
 import com.intellij.util.ui.FormBuilder;
 import com.starsqls.format.FormatOptions;
-import com.starsqls.format.FormatPrinter;
-import com.starsqls.format.Printer;
+import com.starsqls.idea.editor.StarSqlsSettings;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JLabel;
@@ -105,25 +105,34 @@ public class FormatMain implements ToolWindowFactory {
                 .add("breakGroupByItems", new JBCheckBox("Break group by items", options.breakGroupByItems))
                 .add("breakOrderBy", new JBCheckBox("Break order by", options.breakOrderBy))
                 .add("formatSubquery", new JBCheckBox("Format subquery", options.formatSubquery))
+                .add("breakInsertValues", new JBCheckBox("Break insert values", options.breakInsertValues))
+                .add("breakStatementClauses", new JBCheckBox("Break statement clauses",
+                        options.breakStatementClauses))
                 .add("ignoreComment", new JBCheckBox("Ignore comment", options.ignoreComment));
 
         // Buttons
         JButton unescapeBtn = new JButton("Unescape");
         JButton formatBtn = new JButton("Format");
         JButton minifyBtn = new JButton("Minify");
+        JButton editorOptionsBtn = new JButton("Use for Editor");
+        editorOptionsBtn.setToolTipText("Format statements in the editor and on save with these options");
 
-        // Button events
+        // Button events, a newer click supersedes the job still running
+        AtomicReference<FormatTask> running = new AtomicReference<>();
         formatBtn.addActionListener(e -> {
             FormatOptions opts = collectOptions(builder, false);
-            formatSql(sqlArea, errorArea, errorScrollPane, opts);
+            formatSql(project, running, sqlArea, errorArea, errorScrollPane, opts);
         });
         minifyBtn.addActionListener(e -> {
             FormatOptions opts = collectOptions(builder, true);
-            formatSql(sqlArea, errorArea, errorScrollPane, opts);
+            formatSql(project, running, sqlArea, errorArea, errorScrollPane, opts);
         });
+        // The editor action and format on save use the options saved here, comments are always kept there
+        editorOptionsBtn.addActionListener(e -> StarSqlsSettings.getInstance()
+                .setOptions(collectOptions(builder, false)));
         unescapeBtn.addActionListener(e -> {
             FormatOptions opts = collectOptions(builder, false, true);
-            formatSql(sqlArea, errorArea, errorScrollPane, opts);
+            formatSql(project, running, sqlArea, errorArea, errorScrollPane, opts);
         });
 
         JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5)); // Add 10px horizontal gap, 5px vertical gap
@@ -131,6 +140,13 @@ public class FormatMain implements ToolWindowFactory {
         btnPanel.add(unescapeBtn);
         btnPanel.add(formatBtn);
         btnPanel.add(minifyBtn);
+        btnPanel.add(editorOptionsBtn);
+
+        // Format only the statements changed since the last save of a .sql file
+        JBCheckBox formatOnSave = new JBCheckBox("Format changed statements on save",
+                StarSqlsSettings.getInstance().isFormatOnSave());
+        formatOnSave.addActionListener(e -> StarSqlsSettings.getInstance().setFormatOnSave(formatOnSave.isSelected()));
+        btnPanel.add(formatOnSave);
 
         // Create main panel with proper margins
         JPanel mainPanel = new JPanel(new BorderLayout());
@@ -199,6 +215,8 @@ public class FormatMain implements ToolWindowFactory {
         opts.breakGroupByItems = builder.<JBCheckBox>get("breakGroupByItems").isSelected();
         opts.breakOrderBy = builder.<JBCheckBox>get("breakOrderBy").isSelected();
         opts.formatSubquery = builder.<JBCheckBox>get("formatSubquery").isSelected();
+        opts.breakInsertValues = builder.<JBCheckBox>get("breakInsertValues").isSelected();
+        opts.breakStatementClauses = builder.<JBCheckBox>get("breakStatementClauses").isSelected();
         opts.ignoreComment = builder.<JBCheckBox>get("ignoreComment").isSelected();
         
         // Calculate indent based on character and size selection
@@ -230,11 +248,15 @@ public class FormatMain implements ToolWindowFactory {
         return opts;
     }
 
-    private void formatSql(JBTextArea sqlArea, JTextArea errorArea, JBScrollPane errorScrollPane, FormatOptions opts) {
+    private void formatSql(Project project, AtomicReference<FormatTask> running, JBTextArea sqlArea,
+                           JTextArea errorArea, JBScrollPane errorScrollPane, FormatOptions opts) {
         String sql = sqlArea.getText();
-        try {
-            Printer printer = Printer.create(opts);
-            String result = printer.format(sql);
+        new FormatTask(project, sql, opts, running, result -> {
+            if (!sqlArea.getText().equals(sql)) {
+                // Don't overwrite edits made while formatting
+                showError(errorArea, errorScrollPane, "SQL changed while formatting, format again");
+                return;
+            }
             sqlArea.setText(result);
             // Hide error area on success and revalidate layout
             errorScrollPane.setVisible(false);
@@ -242,14 +264,17 @@ public class FormatMain implements ToolWindowFactory {
             // Force layout update to properly hide the error area
             errorScrollPane.getParent().revalidate();
             errorScrollPane.getParent().repaint();
-        } catch (Exception ex) {
+        }, ex -> {
             // Show error in separate area without clearing SQL
-            String errorMsg = ex.getMessage();
-            errorArea.setText("Format failed: " + errorMsg);
-            errorScrollPane.setVisible(true);
-            // Ensure error area is visible by revalidating the container
-            errorScrollPane.getParent().revalidate();
-            errorScrollPane.getParent().repaint();
-        }
+            showError(errorArea, errorScrollPane, "Format failed: " + ex.getMessage());
+        }).start();
+    }
+
+    private static void showError(JTextArea errorArea, JBScrollPane errorScrollPane, String message) {
+        errorArea.setText(message);
+        errorScrollPane.setVisible(true);
+        // Ensure error area is visible by revalidating the container
+        errorScrollPane.getParent().revalidate();
+        errorScrollPane.getParent().repaint();
     }
 }
\ No newline at end of file
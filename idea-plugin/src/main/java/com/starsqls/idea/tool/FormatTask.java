@@ -0,0 +1,133 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.idea.tool;
+
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.starsqls.format.CancellationToken;
+import com.starsqls.format.FormatOptions;
+import com.starsqls.format.OperationCancelledException;
+import com.starsqls.format.Printer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Formats SQL in a background task with a progress indicator, the callbacks run on the EDT.
+ * <p>
+ * Tasks sharing a slot supersede each other: starting one cancels the task still running in the slot, and only
+ * the task in the slot delivers its result. Cancelling the indicator or superseding the task cancels the printer
+ * through its {@link CancellationToken}, so a stale job stops at its next check instead of running to the end.
+ */
+public class FormatTask extends Task.Backgroundable {
+    /**
+     * How often the indicator's cancel button is forwarded to the printer
+     */
+    private static final long CANCEL_POLL_MILLIS = 100;
+
+    private final String sql;
+
+    private final FormatOptions options;
+
+    private final AtomicReference<FormatTask> slot;
+
+    private final Consumer<String> onResult;
+
+    private final Consumer<Throwable> onError;
+
+    private final CancellationToken cancellation = CancellationToken.create();
+
+    private volatile ProgressIndicator indicator;
+
+    private String result;
+
+    public FormatTask(Project project, String sql, FormatOptions options, AtomicReference<FormatTask> slot,
+                      Consumer<String> onResult, Consumer<Throwable> onError) {
+        super(project, "Formatting SQL", true);
+        this.sql = sql;
+        this.options = options;
+        this.slot = slot;
+        this.onResult = onResult;
+        this.onError = onError;
+    }
+
+    /**
+     * Cancel the task running in the slot and queue this one
+     */
+    public void start() {
+        FormatTask stale = slot.getAndSet(this);
+        if (stale != null) {
+            stale.cancel();
+        }
+        queue();
+    }
+
+    public void cancel() {
+        cancellation.cancel();
+        ProgressIndicator running = indicator;
+        if (running != null) {
+            running.cancel();
+        }
+    }
+
+    @Override
+    public void run(@NotNull ProgressIndicator indicator) {
+        this.indicator = indicator;
+        indicator.setIndeterminate(true);
+        indicator.setText("Formatting " + sql.length() + " characters");
+        if (slot.get() != this) {
+            // superseded before it got a thread
+            throw new ProcessCanceledException();
+        }
+
+        ScheduledFuture<?> watcher = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(() -> {
+            if (indicator.isCanceled()) {
+                cancellation.cancel();
+            }
+        }, CANCEL_POLL_MILLIS, CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            Printer printer = Printer.create(options);
+            printer.setCancellationToken(cancellation);
+            result = printer.format(sql);
+        } catch (OperationCancelledException e) {
+            throw new ProcessCanceledException(e);
+        } finally {
+            watcher.cancel(false);
+        }
+    }
+
+    @Override
+    public void onSuccess() {
+        if (slot.compareAndSet(this, null)) {
+            onResult.accept(result);
+        }
+    }
+
+    @Override
+    public void onThrowable(@NotNull Throwable error) {
+        if (slot.compareAndSet(this, null)) {
+            onError.accept(error);
+        }
+    }
+
+    @Override
+    public void onCancel() {
+        slot.compareAndSet(this, null);
+    }
+}
@@ -0,0 +1,31 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starsqls.web.metrics.StarSqlsMetrics;
+import com.starsqls.web.metrics.TimedJsonConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Replaces the default JSON converter, Spring Boot keeps one converter per type
+     */
+    @Bean
+    public TimedJsonConverter timedJsonConverter(ObjectMapper objectMapper, StarSqlsMetrics metrics) {
+        return new TimedJsonConverter(objectMapper, metrics);
+    }
+}
@@ -12,13 +12,40 @@
 
 package com.starsqls.web.controller;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.starsqls.dag.SQLDagAnalyzer;
+import com.starsqls.dag.cost.CostEstimator;
+import com.starsqls.dag.cost.FileStatisticsProvider;
+import com.starsqls.dag.cost.StatisticsProvider;
+import com.starsqls.dag.layout.DagLayout;
+import com.starsqls.dag.layout.LayeredLayout;
+import com.starsqls.dag.layout.NodePosition;
+import com.starsqls.dag.model.CompactDagFormat;
 import com.starsqls.dag.model.DagGraph;
+import com.starsqls.dag.model.DagNode;
+import com.starsqls.format.CancellationToken;
+import com.starsqls.format.OperationCancelledException;
+import com.starsqls.web.execution.SchedulerRejectedException;
+import com.starsqls.web.execution.WorkScheduler;
+import com.starsqls.web.metrics.StarSqlsMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,16 +57,78 @@ public class DagController {
     
     private static final Logger logger = LoggerFactory.getLogger(DagController.class);
     
+    /**
+     * Graph encoded by {@link CompactDagFormat}, as JSON
+     */
+    public static final MediaType COMPACT_JSON = MediaType.parseMediaType("application/vnd.starsqls.dag+json");
+    
+    /**
+     * Graph encoded by {@link CompactDagFormat}, as CBOR
+     */
+    public static final MediaType COMPACT_CBOR = MediaType.parseMediaType("application/cbor");
+    
+    private final CostEstimator costEstimator;
+    
+    private final LayeredLayout layeredLayout = new LayeredLayout();
+    
+    /**
+     * Layouts by {@link LayeredLayout#fingerprint graph fingerprint}, analyzing the same SQL again skips the layout
+     */
+    private final Cache<String, DagLayout> layouts;
+    
+    private final WorkScheduler scheduler;
+    
+    private final StarSqlsMetrics metrics;
+    
+    private final Duration requestTimeout;
+    
+    public DagController(@Value("${starsqls.dag.statistics-file:}") String statisticsFile, WorkScheduler scheduler,
+                         StarSqlsMetrics metrics,
+                         @Value("${starsqls.web.request-timeout-millis:30000}") long requestTimeoutMillis,
+                         @Value("${starsqls.dag.layout.cache-size:1000}") long layoutCacheSize) {
+        this.costEstimator = new CostEstimator(loadStatistics(statisticsFile));
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.layouts = metrics.monitor(CacheBuilder.newBuilder().maximumSize(layoutCacheSize).recordStats().build(),
+                "starsqls.dag.layout");
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+    }
+    
+    /**
+     * Load table statistics for the cost estimation, tables without statistics use the estimator defaults
+     */
+    private static StatisticsProvider loadStatistics(String statisticsFile) {
+        if (statisticsFile == null || statisticsFile.isBlank()) {
+            return StatisticsProvider.EMPTY;
+        }
+        try {
+            StatisticsProvider provider = FileStatisticsProvider.load(Path.of(statisticsFile));
+            logger.info("Loaded table statistics from {}", statisticsFile);
+            return provider;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("Failed to load table statistics from {}, using defaults", statisticsFile, e);
+            return StatisticsProvider.EMPTY;
+        }
+    }
+    
     /**
      * Analyze SQL and generate DAG
      * 
      * POST /api/dag/analyze
-     * Request body: { "sql": "SELECT * FROM users" }
-     * Response: { "success": true, "graph": { "nodes": [...], "edges": [...] } }
+     * Request body: { "sql": "SELECT * FROM users", "mergeDuplicates": "false", "layout": "true" }
+     * Response: { "success": true, "graph": { "nodes": [...], "edges": [...], "layout": {...} } }
+     * 
+     * The layout holds the node positions computed by {@link LayeredLayout}, it is left out with "layout": "false"
+     * 
+     * With "Accept: application/vnd.starsqls.dag+json" (or "application/cbor") the graph is sent in the
+     * {@link CompactDagFormat} encoding instead
      */
     @PostMapping("/analyze")
-    public Map<String, Object> analyzeSql(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, Object>> analyzeSql(@RequestBody Map<String, String> request,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                          String accept) {
         Map<String, Object> response = new HashMap<>();
+        MediaType format = negotiate(accept);
         
         try {
             String sql = request.get("sql");
@@ -47,28 +136,132 @@ public class DagController {
             if (sql == null || sql.trim().isEmpty()) {
                 response.put("success", false);
                 response.put("error", "SQL statement is required");
-                return response;
+                return ResponseEntity.ok().contentType(format).body(response);
             }
             
             logger.info("Analyzing SQL DAG for: {}", sql.substring(0, Math.min(100, sql.length())));
             
             // Analyze SQL
+            CancellationToken cancellation = CancellationToken.withTimeout(requestTimeout);
             SQLDagAnalyzer analyzer = new SQLDagAnalyzer();
-            DagGraph graph = analyzer.analyze(sql);
+            analyzer.setMergeDuplicates(Boolean.parseBoolean(request.get("mergeDuplicates")));
+            analyzer.setCancellationToken(cancellation);
+            analyzer.setPhaseListener(metrics.phases(StarSqlsMetrics.DAG, StarSqlsMetrics.DAG));
+            metrics.recordInput(StarSqlsMetrics.DAG, sql);
+            boolean withLayout = !"false".equalsIgnoreCase(request.get("layout"));
+            Analysis analysis = scheduler.call(sql, cancellation, () -> {
+                DagGraph result = analyzer.analyze(sql);
+                long start = System.nanoTime();
+                costEstimator.estimate(result);
+                metrics.recordPhase(StarSqlsMetrics.DAG, StarSqlsMetrics.DAG, "estimate", System.nanoTime() - start);
+                return new Analysis(result, withLayout ? layout(result) : null);
+            });
+            DagGraph graph = analysis.graph();
             
             // Build response
+            boolean compact = !format.equals(MediaType.APPLICATION_JSON);
+            Map<String, Object> graphMap = compact ? CompactDagFormat.encode(graph) : convertGraphToMap(graph);
+            if (analysis.layout() != null) {
+                graphMap.put("layout", convertLayoutToMap(graph, analysis.layout(), compact));
+            }
             response.put("success", true);
-            response.put("graph", convertGraphToMap(graph));
+            response.put("graph", graphMap);
             
             logger.info("DAG analysis completed: {}", graph.getStats());
             
+        } catch (SchedulerRejectedException e) {
+            logger.warn("DAG analysis rejected: {}", e.getMessage());
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(e.getStatus()).contentType(format);
+            if (e.isRetryable()) {
+                builder.header(HttpHeaders.RETRY_AFTER, "1");
+            }
+            return builder.body(response);
+        } catch (OperationCancelledException e) {
+            logger.warn("DAG analysis stopped: {}", e.getMessage());
+            response.put("success", false);
+            response.put("error", "Analysis stopped: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(format).body(response);
         } catch (Exception e) {
             logger.error("Failed to analyze SQL DAG", e);
             response.put("success", false);
             response.put("error", "Failed to analyze SQL: " + e.getMessage());
         }
         
-        return response;
+        return ResponseEntity.ok().contentType(format).body(response);
+    }
+    
+    /**
+     * Pick the response format from the Accept header, the verbose JSON unless a compact type is preferred
+     */
+    private static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        // stable, so types of the same quality keep the client's order
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            // wildcards, including "application/*", get the verbose JSON
+            if (type.getQualityValue() <= 0 || type.isWildcardType() || type.isWildcardSubtype()) {
+                continue;
+            }
+            for (MediaType candidate : List.of(COMPACT_JSON, COMPACT_CBOR, MediaType.APPLICATION_JSON)) {
+                if (type.includes(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+    
+    private record Analysis(DagGraph graph, DagLayout layout) {
+    }
+    
+    private DagLayout layout(DagGraph graph) {
+        long start = System.nanoTime();
+        String fingerprint = LayeredLayout.fingerprint(graph);
+        DagLayout layout = layouts.getIfPresent(fingerprint);
+        if (layout == null) {
+            layout = layeredLayout.layout(graph);
+            layouts.put(fingerprint, layout);
+        }
+        metrics.recordPhase(StarSqlsMetrics.DAG, StarSqlsMetrics.DAG, "layout", System.nanoTime() - start);
+        return layout;
+    }
+    
+    /**
+     * Node centers rounded to pixels: by node id, or as x and y arrays in the node order of the compact format
+     */
+    private Map<String, Object> convertLayoutToMap(DagGraph graph, DagLayout layout, boolean compact) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("width", Math.round(layout.getWidth()));
+        result.put("height", Math.round(layout.getHeight()));
+        if (compact) {
+            long[] x = new long[graph.getNodes().size()];
+            long[] y = new long[graph.getNodes().size()];
+            for (int i = 0; i < x.length; i++) {
+                NodePosition position = layout.getPosition(graph.getNodes().get(i).getId());
+                x[i] = Math.round(position.getX());
+                y[i] = Math.round(position.getY());
+            }
+            result.put("x", x);
+            result.put("y", y);
+        } else {
+            Map<String, Object> positions = new LinkedHashMap<>();
+            for (DagNode node : graph.getNodes()) {
+                NodePosition position = layout.getPosition(node.getId());
+                positions.put(node.getId(), Map.of("x", Math.round(position.getX()), "y", Math.round(position.getY())));
+            }
+            result.put("positions", positions);
+        }
+        return result;
     }
     
     /**
@@ -12,24 +12,84 @@
 
 package com.starsqls.web.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.starsqls.format.CancellationToken;
 import com.starsqls.format.FormatOptions;
-import com.starsqls.format.FormatPrinter;
+import com.starsqls.format.OperationCancelledException;
 import com.starsqls.format.Printer;
-import com.starsqls.parser.StarRocksLexer;
-import com.starsqls.parser.StarRocksParser;
+import com.starsqls.web.dto.BatchFormatRequest;
+import com.starsqls.web.dto.BatchFormatResult;
 import com.starsqls.web.dto.FormatRequest;
 import com.starsqls.web.dto.FormatResponse;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
+import com.starsqls.web.execution.OutputPipe;
+import com.starsqls.web.execution.SchedulerRejectedException;
+import com.starsqls.web.execution.WorkScheduler;
+import com.starsqls.web.metrics.StarSqlsMetrics;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class FormatController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final int STREAM_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Chunks of formatted output a streaming request holds while the client reads slower than the job writes
+     */
+    private static final int STREAM_CHUNKS = 16;
+
+    private final WorkScheduler scheduler;
+
+    private final StarSqlsMetrics metrics;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Max items of one batch being formatted or waiting to be written, bounds the memory of a batch request
+     */
+    private final int batchWindow;
+
+    /**
+     * Time limit of formatting one SQL, including the wait for a thread
+     */
+    private final Duration requestTimeout;
+
+    public FormatController(WorkScheduler scheduler, StarSqlsMetrics metrics, ObjectMapper objectMapper,
+                            @Value("${starsqls.format.batch.window:64}") int batchWindow,
+                            @Value("${starsqls.web.request-timeout-millis:30000}") long requestTimeoutMillis) {
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+        this.batchWindow = Math.max(1, batchWindow);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+    }
+
     @PostMapping("/format")
     public ResponseEntity<FormatResponse> formatSQL(@RequestBody FormatRequest request) {
         try {
@@ -38,21 +98,281 @@ public class FormatController {
                 return ResponseEntity.badRequest().body(new FormatResponse(false, null, "SQL cannot be empty"));
             }
 
-            // Use format options from request, or default if null
-            FormatOptions formatOptions = request.getOptions();
-            if (formatOptions == null) {
-                formatOptions = FormatOptions.defaultOptions();
-            } else if (formatOptions.mode == FormatOptions.Mode.MINIFY) {
-                formatOptions = new FormatOptions();
-            }
             // Format SQL
-            Printer printer = Printer.create(formatOptions);
-            String formattedSQL = printer.format(sql);
+            CancellationToken cancellation = CancellationToken.withTimeout(requestTimeout);
+            Printer printer = newPrinter(resolveOptions(request.getOptions()), cancellation, sql);
+            String formattedSQL = scheduler.call(sql, cancellation, () -> printer.format(sql));
 
             return ResponseEntity.ok(new FormatResponse(true, formattedSQL, null));
 
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(new FormatResponse(false, null, "Failed to format SQL: " + e.getMessage()));
+            return failure(e);
+        }
+    }
+
+    /**
+     * Format SQL and stream the result as plain text, statement by statement
+     *
+     * POST /api/format/stream
+     * Request body: same as /api/format
+     * Response: the formatted SQL as chunked text/plain, or a FormatResponse error with the status of /api/format
+     * when the SQL cannot be formatted
+     */
+    @PostMapping("/format/stream")
+    public void formatSQLStream(@RequestBody FormatRequest request, HttpServletResponse response) throws IOException {
+        String sql = request.getSql();
+        try {
+            if (sql == null || sql.trim().isEmpty()) {
+                writeFailure(ResponseEntity.badRequest().body(new FormatResponse(false, null, "SQL cannot be empty")),
+                        response);
+                return;
+            }
+            CancellationToken cancellation = CancellationToken.withTimeout(requestTimeout);
+            Printer printer = newPrinter(resolveOptions(request.getOptions()), cancellation, sql);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            // format on the pool into a bounded pipe and write to the client here, so a slow client never blocks a
+            // pool thread. The whole script is parsed before the first write, syntax errors still get an error response
+            OutputPipe pipe = new OutputPipe(STREAM_CHUNKS, STREAM_CHUNK_SIZE, cancellation);
+            Future<Void> job = scheduler.submit(sql, cancellation, () -> {
+                printer.format(sql, pipe);
+                // only a complete output ends the pipe, a failure reaches the request thread through the future
+                pipe.close();
+                return null;
+            });
+            try {
+                pipe.drainTo(response.getWriter(), job);
+            } finally {
+                // stops the job when the client went away or the drain failed
+                cancellation.cancel();
+            }
+        } catch (Exception e) {
+            if (response.isCommitted()) {
+                // part of the result is sent already, the client sees a truncated response
+                throw e instanceof IOException io ? io : new IOException("Streaming format failed", e);
+            }
+            response.reset();
+            writeFailure(failure(e), response);
+        }
+    }
+
+    private ResponseEntity<FormatResponse> failure(Exception e) {
+        if (e instanceof OperationCancelledException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new FormatResponse(false, null, "Formatting stopped: " + e.getMessage()));
+        } else if (e instanceof SchedulerRejectedException rejected) {
+            ResponseEntity.BodyBuilder builder = ResponseEntity.status(rejected.getStatus());
+            if (rejected.isRetryable()) {
+                builder.header(HttpHeaders.RETRY_AFTER, "1");
+            }
+            return builder.body(new FormatResponse(false, null, e.getMessage()));
+        }
+        return ResponseEntity.badRequest().body(new FormatResponse(false, null, "Failed to format SQL: " + e.getMessage()));
+    }
+
+    private void writeFailure(ResponseEntity<FormatResponse> failure, HttpServletResponse response) throws IOException {
+        response.setStatus(failure.getStatusCode().value());
+        failure.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), failure.getBody());
+    }
+
+    /**
+     * Format many SQLs with shared options
+     *
+     * POST /api/format/batch
+     * Request body: { "options": {...}, "sqls": ["SELECT 1", "SELECT 2"] }
+     * Response: NDJSON, one { "index": 0, "success": true, "formattedSQL": "..." } line per item, in input order
+     */
+    @PostMapping(value = "/format/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> formatBatch(@RequestBody BatchFormatRequest request) {
+        FormatOptions options = resolveOptions(request.getOptions());
+        List<String> sqls = request.getSqls() == null ? List.of() : request.getSqls();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> formatItems(new ItemSource() {
+                    private int index = 0;
+
+                    @Override
+                    public String next() {
+                        return index < sqls.size() ? sqls.get(index++) : null;
+                    }
+                }, options, out));
+    }
+
+    /**
+     * Format an NDJSON stream of SQLs, the request is read while the results are written
+     *
+     * POST /api/format/batch (Content-Type: application/x-ndjson)
+     * Request body: an optional first line { "options": {...} }, then one "SELECT 1" or { "sql": "SELECT 1" } per line
+     * Response: same as the JSON batch
+     */
+    @PostMapping(value = "/format/batch", consumes = NDJSON, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> formatBatchStream(InputStream body) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> {
+                    String line = nextLine(reader);
+                    FormatOptions options = null;
+                    if (line != null && line.startsWith("{")) {
+                        JsonNode header = readLine(line);
+                        if (header != null && header.has("options") && !header.has("sql")) {
+                            options = objectMapper.treeToValue(header.get("options"), FormatOptions.class);
+                            line = nextLine(reader);
+                        }
+                    }
+                    String first = line;
+                    formatItems(new ItemSource() {
+                        private String pending = first;
+
+                        @Override
+                        public String next() throws IOException {
+                            String current = pending;
+                            pending = current == null ? null : nextLine(reader);
+                            return current == null ? null : sqlOf(current);
+                        }
+                    }, resolveOptions(options), out);
+                });
+    }
+
+    /**
+     * Printer for one SQL, stopped by the token and reporting its phases to the metrics
+     */
+    private Printer newPrinter(FormatOptions options, CancellationToken cancellation, String sql) {
+        String mode = options.mode.name().toLowerCase(Locale.ROOT);
+        Printer printer = Printer.create(options);
+        printer.setCancellationToken(cancellation);
+        printer.setPhaseListener(metrics.phases(StarSqlsMetrics.FORMAT, mode));
+        metrics.setRequestMode(mode);
+        metrics.recordInput(StarSqlsMetrics.FORMAT, sql);
+        return printer;
+    }
+
+    private FormatOptions resolveOptions(FormatOptions formatOptions) {
+        // Use format options from request, or default if null
+        if (formatOptions == null) {
+            return FormatOptions.defaultOptions();
+        } else if (formatOptions.mode == FormatOptions.Mode.MINIFY) {
+            return new FormatOptions();
+        }
+        return formatOptions;
+    }
+
+    private interface ItemSource {
+        /**
+         * Next SQL, or null at the end of the batch
+         */
+        String next() throws IOException;
+    }
+
+    private record PendingItem(Future<BatchFormatResult> result, CancellationToken cancellation) {
+    }
+
+    /**
+     * Format the items on the large job pool, at most {@link #batchWindow} of them are in flight. Results are written
+     * in input order, the output is flushed whenever the next result is not ready yet. Each item has the request
+     * timeout, and when the client goes away (the write fails) the items in flight are cancelled.
+     */
+    private void formatItems(ItemSource source, FormatOptions options, OutputStream out) throws IOException {
+        Deque<PendingItem> pending = new ArrayDeque<>();
+        int index = 0;
+        try {
+            for (String sql = source.next(); sql != null; sql = source.next()) {
+                int itemIndex = index++;
+                String item = sql;
+                CancellationToken cancellation = CancellationToken.withTimeout(requestTimeout);
+                try {
+                    pending.add(new PendingItem(scheduler.submitBatchItem(item, cancellation,
+                            () -> formatItem(itemIndex, item, options, cancellation)), cancellation));
+                } catch (SchedulerRejectedException e) {
+                    // too large or the server is busy, the item fails and the batch goes on
+                    pending.add(new PendingItem(CompletableFuture.completedFuture(
+                            new BatchFormatResult(itemIndex, false, null, e.getMessage())), cancellation));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Batch format interrupted", e);
+                }
+                if (pending.size() >= batchWindow) {
+                    writeResult(pending.poll().result(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeResult(pending.poll().result(), out);
+            }
+            out.flush();
+        } finally {
+            pending.forEach(item -> {
+                item.cancellation().cancel();
+                item.result().cancel(true);
+            });
+        }
+    }
+
+    private BatchFormatResult formatItem(int index, String sql, FormatOptions options,
+                                         CancellationToken cancellation) {
+        if (sql.trim().isEmpty()) {
+            return new BatchFormatResult(index, false, null, "SQL cannot be empty");
+        }
+        try {
+            Printer printer = newPrinter(options, cancellation, sql);
+            return new BatchFormatResult(index, true, printer.format(sql), null);
+        } catch (OperationCancelledException e) {
+            return new BatchFormatResult(index, false, null, "Formatting stopped: " + e.getMessage());
+        } catch (Exception e) {
+            return new BatchFormatResult(index, false, null, "Failed to format SQL: " + e.getMessage());
+        }
+    }
+
+    private void writeResult(Future<BatchFormatResult> future, OutputStream out) throws IOException {
+        if (!future.isDone()) {
+            out.flush();
+        }
+        BatchFormatResult result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch format interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch format failed", e.getCause());
+        }
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write('\n');
+    }
+
+    /**
+     * Next non-blank line of the NDJSON request
+     */
+    private static String nextLine(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private JsonNode readLine(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * SQL of an NDJSON line, a line that is not a JSON string or object is taken as plain SQL
+     */
+    private String sqlOf(String line) {
+        JsonNode node = readLine(line);
+        if (node != null && node.isTextual()) {
+            return node.asText();
+        } else if (node != null && node.hasNonNull("sql")) {
+            return node.get("sql").asText();
         }
+        return line;
     }
-}
\ No newline at end of file
+}
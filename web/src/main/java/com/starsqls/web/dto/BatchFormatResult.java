@@ -0,0 +1,39 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Result of one item of a batch format request, written as one NDJSON line
+ */
+@JsonPropertyOrder({"index", "success", "formattedSQL", "error"})
+public class BatchFormatResult extends FormatResponse {
+    private int index;
+
+    public BatchFormatResult() {
+    }
+
+    public BatchFormatResult(int index, boolean success, String formattedSQL, String error) {
+        super(success, formattedSQL, error);
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+}
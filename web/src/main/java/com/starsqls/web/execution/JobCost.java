@@ -0,0 +1,54 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.execution;
+
+/**
+ * Cost estimate of a parse/format job, from the input alone and without running the lexer
+ *
+ * @param length input length in chars
+ * @param tokens approximate token count: words, numbers, quoted strings and punctuation
+ */
+public record JobCost(int length, int tokens) {
+
+    public static JobCost of(String input) {
+        if (input == null) {
+            return new JobCost(0, 0);
+        }
+        int tokens = 0;
+        boolean inWord = false;
+        char quote = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                inWord = false;
+                tokens++;
+            } else if (Character.isLetterOrDigit(c) || c == '_') {
+                if (!inWord) {
+                    tokens++;
+                    inWord = true;
+                }
+            } else {
+                inWord = false;
+                if (!Character.isWhitespace(c)) {
+                    tokens++;
+                }
+            }
+        }
+        return new JobCost(input.length(), tokens);
+    }
+}
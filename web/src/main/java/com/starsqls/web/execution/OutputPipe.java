@@ -0,0 +1,146 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.execution;
+
+import com.starsqls.format.CancellationToken;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pipe between a job writing its output on a scheduler pool and the request thread sending it to the client.
+ * <p>
+ * The job writes into the pipe, which holds at most {@code capacity} chunks of {@code chunkSize} chars. When it is
+ * full the job waits for the request thread, but keeps checking its cancellation token, so a slow or stalled
+ * client only holds the pool thread until the token is cancelled or expires, never for a blocking socket write.
+ * The request thread calls {@link #drainTo} and cancels the token when the client goes away.
+ */
+public class OutputPipe extends Writer {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<String> chunks;
+
+    private final int chunkSize;
+
+    private final CancellationToken cancellation;
+
+    private final StringBuilder current = new StringBuilder();
+
+    /**
+     * Set by the job once the last chunk is queued
+     */
+    private volatile boolean closed;
+
+    public OutputPipe(int capacity, int chunkSize, CancellationToken cancellation) {
+        this.chunks = new ArrayBlockingQueue<>(capacity);
+        this.chunkSize = chunkSize;
+        this.cancellation = cancellation;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = Math.min(length, chunkSize - current.length());
+            current.append(buffer, offset, n);
+            offset += n;
+            length -= n;
+            if (current.length() == chunkSize) {
+                publish();
+            }
+        }
+    }
+
+    @Override
+    public void write(String s, int offset, int length) throws IOException {
+        while (length > 0) {
+            int n = Math.min(length, chunkSize - current.length());
+            current.append(s, offset, offset + n);
+            offset += n;
+            length -= n;
+            if (current.length() == chunkSize) {
+                publish();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!current.isEmpty()) {
+            publish();
+        }
+    }
+
+    /**
+     * Queue the rest of the output and mark the end, the job calls it when it finished writing
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        closed = true;
+    }
+
+    private void publish() throws IOException {
+        String chunk = current.toString();
+        current.setLength(0);
+        try {
+            while (!chunks.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // the reader is slow, stop if it gave up or the deadline passed
+                cancellation.throwIfCancelled();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Output pipe interrupted");
+        }
+    }
+
+    /**
+     * Write the chunks to {@code out} as they come until the pipe is closed, flushing whenever the next chunk is not
+     * ready yet. Nothing is written before the job produces its first chunk, so a job failing early leaves
+     * {@code out} untouched.
+     *
+     * @param job the job writing into the pipe, its exception is rethrown as-is when it fails
+     */
+    public void drainTo(Writer out, Future<?> job) throws Exception {
+        while (true) {
+            String chunk = chunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (chunk != null) {
+                out.write(chunk);
+                if (chunks.isEmpty()) {
+                    out.flush();
+                }
+            } else if (closed) {
+                // every chunk was queued before the flag was set
+                for (chunk = chunks.poll(); chunk != null; chunk = chunks.poll()) {
+                    out.write(chunk);
+                }
+                out.flush();
+                return;
+            } else if (job.isDone()) {
+                try {
+                    job.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+                // the job returned without closing the pipe, send what it wrote
+                closed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.execution;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * A job was not run because the scheduler is overloaded or the input is too large
+ */
+public class SchedulerRejectedException extends RuntimeException {
+    private final HttpStatus status;
+
+    public SchedulerRejectedException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * 413 for inputs over the size limit, 429 when the queue or the in-flight budget is full,
+     * 503 when the job waited too long for a thread
+     */
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Whether the same request may succeed later, i.e. it was rejected for load and not for its size
+     */
+    public boolean isRetryable() {
+        return status != HttpStatus.PAYLOAD_TOO_LARGE;
+    }
+}
@@ -0,0 +1,290 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.execution;
+
+import com.starsqls.format.CancellationToken;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs parse, format and DAG work of the web requests.
+ * <p>
+ * Jobs are classified by {@link JobCost}: small jobs (interactive formatting) and large jobs (big scripts, batch items)
+ * run on separate pools, so a few huge scripts can only hold the large pool and never delay a small request.
+ * Each pool has a fixed number of threads and a bounded number of waiting jobs, and the input held by running and
+ * waiting jobs is bounded too. A job that does not fit is rejected at once (429), a job that waits longer than the
+ * queue timeout is dropped (503), the caller can tell the user to retry instead of piling up more requests.
+ */
+@Component
+public class WorkScheduler {
+
+    private final Lane small;
+
+    private final Lane large;
+
+    /**
+     * Slots of the large lane batch items may hold, the rest stays free for interactive requests
+     */
+    private final Semaphore batchSlots;
+
+    private final int largeLength;
+
+    private final int largeTokens;
+
+    private final int maxInputLength;
+
+    private final long maxInFlightLength;
+
+    private final long queueTimeoutMillis;
+
+    private final AtomicLong inFlightLength = new AtomicLong();
+
+    public WorkScheduler(@Value("${starsqls.web.scheduler.small-threads:0}") int smallThreads,
+                         @Value("${starsqls.web.scheduler.large-threads:0}") int largeThreads,
+                         @Value("${starsqls.web.scheduler.queue-capacity:256}") int queueCapacity,
+                         @Value("${starsqls.web.scheduler.large-length:65536}") int largeLength,
+                         @Value("${starsqls.web.scheduler.large-tokens:10000}") int largeTokens,
+                         @Value("${starsqls.web.scheduler.max-input-length:104857600}") int maxInputLength,
+                         @Value("${starsqls.web.scheduler.max-in-flight-length:268435456}") long maxInFlightLength,
+                         @Value("${starsqls.web.scheduler.queue-timeout-millis:10000}") long queueTimeoutMillis,
+                         @Value("${starsqls.web.scheduler.batch-slots:0}") int batchSlots) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.small = new Lane("small", smallThreads > 0 ? smallThreads : cores, queueCapacity);
+        this.large = new Lane("large", largeThreads > 0 ? largeThreads : Math.max(1, cores / 2), queueCapacity);
+        // by default keep one large thread for interactive requests
+        this.batchSlots = new Semaphore(batchSlots > 0 ? batchSlots
+                : Math.max(1, large.pool.getMaximumPoolSize() - 1));
+        this.largeLength = largeLength;
+        this.largeTokens = largeTokens;
+        this.maxInputLength = maxInputLength;
+        this.maxInFlightLength = maxInFlightLength;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    /**
+     * Run the job for the input and wait for its result, exceptions of the job are rethrown as-is.
+     * The job is skipped if the token is cancelled before it starts, and the token is cancelled when the caller
+     * stops waiting, the job itself should check the token while it runs.
+     *
+     * @throws SchedulerRejectedException when the job is not admitted or not started in time
+     */
+    public <T> T call(String input, CancellationToken cancellation, Callable<T> work) throws Exception {
+        Job<T> job = start(input, cancellation, work);
+        try {
+            return job.task.get(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (job.claimed.compareAndSet(false, true)) {
+                // still queued, the worker skips it
+                throw new SchedulerRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Request waited too long in the queue, please retry later");
+            }
+            return await(job.task);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            job.claimed.set(true);
+            cancellation.cancel();
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * Queue the job like {@link #call} but return at once, for callers that consume the output of the job while it
+     * runs (see {@link OutputPipe}). A job that did not start within the queue timeout fails with
+     * {@link SchedulerRejectedException} instead of running.
+     *
+     * @throws SchedulerRejectedException when the job is not admitted
+     */
+    public <T> Future<T> submit(String input, CancellationToken cancellation, Callable<T> work) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        return start(input, cancellation, () -> {
+            if (System.nanoTime() - deadline > 0) {
+                throw new SchedulerRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Request waited too long in the queue, please retry later");
+            }
+            return work.call();
+        }).task;
+    }
+
+    /**
+     * Admit the job and queue it on its lane, rejecting it at once when the lane is full
+     */
+    private <T> Job<T> start(String input, CancellationToken cancellation, Callable<T> work) {
+        JobCost cost = JobCost.of(input);
+        admit(cost);
+        Lane lane = isLarge(cost) ? large : small;
+        if (!lane.slots.tryAcquire()) {
+            inFlightLength.addAndGet(-cost.length());
+            throw new SchedulerRejectedException(HttpStatus.TOO_MANY_REQUESTS, "Server is busy, please retry later");
+        }
+        return lane.start(cancellation, work, () -> inFlightLength.addAndGet(-cost.length()));
+    }
+
+    /**
+     * Submit one item of a batch. Batch items always run on the large pool and are admitted like {@link #call} by
+     * their size and the in-flight budget, but instead of being rejected at once when the pool is full the caller
+     * waits up to the queue timeout for a free slot, which throttles the batch to the pool speed. Batch items hold
+     * at most {@code batch-slots} slots of the large pool together, the rest is kept for interactive requests.
+     *
+     * @throws SchedulerRejectedException when the item is too large, or not admitted within the queue timeout
+     */
+    public <T> Future<T> submitBatchItem(String input, CancellationToken cancellation, Callable<T> work)
+            throws InterruptedException {
+        JobCost cost = JobCost.of(input);
+        if (!batchSlots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new SchedulerRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Batch waited too long for a free slot, please retry later");
+        }
+        try {
+            admit(cost);
+        } catch (RuntimeException e) {
+            batchSlots.release();
+            throw e;
+        }
+        boolean acquired = false;
+        try {
+            acquired = large.slots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            if (!acquired) {
+                inFlightLength.addAndGet(-cost.length());
+                batchSlots.release();
+            }
+        }
+        if (!acquired) {
+            throw new SchedulerRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Batch waited too long for a free slot, please retry later");
+        }
+        // from here the lane gives the slots and the length back when the item is done
+        return large.start(cancellation, work, () -> {
+            inFlightLength.addAndGet(-cost.length());
+            batchSlots.release();
+        }).task;
+    }
+
+    /**
+     * Reject inputs over the size limit, and count the input in the in-flight budget if it fits.
+     * The caller gives the length back when the job is done or not started.
+     */
+    private void admit(JobCost cost) {
+        if (cost.length() > maxInputLength) {
+            throw new SchedulerRejectedException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "SQL is too large: " + cost.length() + " chars, limit is " + maxInputLength);
+        }
+        if (inFlightLength.addAndGet(cost.length()) > maxInFlightLength) {
+            inFlightLength.addAndGet(-cost.length());
+            throw new SchedulerRejectedException(HttpStatus.TOO_MANY_REQUESTS, "Server is busy, please retry later");
+        }
+    }
+
+    private boolean isLarge(JobCost cost) {
+        return cost.length() >= largeLength || cost.tokens() >= largeTokens;
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        return e.getCause() instanceof Exception cause ? cause : e;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        small.pool.shutdownNow();
+        large.pool.shutdownNow();
+    }
+
+    private static final class Job<T> {
+        private final FutureTask<T> task;
+
+        /**
+         * Set by the worker that runs the job, or by the caller that gives up on it, whichever comes first
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Job(Callable<T> work) {
+            this.task = new FutureTask<>(work);
+        }
+    }
+
+    private static final class Lane {
+        private final ThreadPoolExecutor pool;
+
+        /**
+         * Running plus waiting jobs, the pool queue itself is unbounded
+         */
+        private final Semaphore slots;
+
+        private Lane(String name, int threads, int queueCapacity) {
+            AtomicInteger counter = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "starsqls-" + name + "-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            this.slots = new Semaphore(threads + queueCapacity);
+        }
+
+        /**
+         * Queue the job, the caller has acquired a slot already
+         */
+        private <T> Job<T> start(CancellationToken cancellation, Callable<T> work, Runnable onDone) {
+            Job<T> job = new Job<>(() -> {
+                // the caller may have given up while the job was queued
+                cancellation.throwIfCancelled();
+                return work.call();
+            });
+            try {
+                pool.execute(() -> {
+                    try {
+                        if (job.claimed.compareAndSet(false, true)) {
+                            job.task.run();
+                        }
+                    } finally {
+                        done(onDone);
+                    }
+                });
+            } catch (RuntimeException e) {
+                done(onDone);
+                throw e;
+            }
+            return job;
+        }
+
+        private void done(Runnable onDone) {
+            slots.release();
+            onDone.run();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.metrics;
+
+import com.google.common.cache.Cache;
+import com.starsqls.format.FormatPhase;
+import com.starsqls.format.PhaseListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the format and DAG paths, exported at /actuator/prometheus.
+ * <ul>
+ *   <li>starsqls.phase: time of each phase (lex, parse, visit, comments, estimate, layout, serialize), by operation
+ *   and mode</li>
+ *   <li>starsqls.input.size / starsqls.input.tokens: size of the SQL in chars and in tokens</li>
+ *   <li>starsqls.parse.failures: inputs with syntax errors</li>
+ *   <li>cache.gets / cache.evictions / cache.size: hits, misses and size of the caches, by cache name</li>
+ * </ul>
+ * Operation is "format" or "dag", mode is the lower case {@link com.starsqls.format.FormatOptions.Mode} or "dag".
+ */
+@Component
+public class StarSqlsMetrics {
+
+    public static final String FORMAT = "format";
+
+    public static final String DAG = "dag";
+
+    /**
+     * Request attribute holding the mode of the current format request, see {@link #setRequestMode}
+     */
+    public static final String MODE_ATTRIBUTE = StarSqlsMetrics.class.getName() + ".mode";
+
+    private final MeterRegistry registry;
+
+    public StarSqlsMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Listener recording the phases and token count of one format or DAG run
+     */
+    public PhaseListener phases(String operation, String mode) {
+        return new PhaseListener() {
+            @Override
+            public void onPhase(FormatPhase phase, long nanos) {
+                recordPhase(operation, mode, phase.name().toLowerCase(Locale.ROOT), nanos);
+            }
+
+            @Override
+            public void onTokens(int tokens) {
+                DistributionSummary.builder("starsqls.input.tokens")
+                        .description("Tokens of the SQL input")
+                        .tag("operation", operation)
+                        .publishPercentileHistogram()
+                        .register(registry)
+                        .record(tokens);
+            }
+
+            @Override
+            public void onParseFailure() {
+                Counter.builder("starsqls.parse.failures")
+                        .description("SQL inputs with syntax errors")
+                        .tag("operation", operation)
+                        .tag("mode", mode)
+                        .register(registry)
+                        .increment();
+            }
+        };
+    }
+
+    /**
+     * Phases outside of core, e.g. "estimate" for the DAG cost estimation or "serialize" for the JSON response
+     */
+    public void recordPhase(String operation, String mode, String phase, long nanos) {
+        Timer.builder("starsqls.phase")
+                .description("Time of a format or DAG analysis phase")
+                .tag("operation", operation)
+                .tag("mode", mode)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Remember the mode of the current request, the "serialize" phase of its JSON response is tagged with it.
+     * Does nothing outside of a request thread.
+     */
+    public void setRequestMode(String mode) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(MODE_ATTRIBUTE, mode, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    public void recordInput(String operation, String sql) {
+        DistributionSummary.builder("starsqls.input.size")
+                .description("Length of the SQL input")
+                .baseUnit("chars")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(sql.length());
+    }
+
+    /**
+     * Export the statistics of a cache built with {@code recordStats()}
+     */
+    public <K, V, C extends Cache<K, V>> C monitor(C cache, String name) {
+        return GuavaCacheMetrics.monitor(registry, cache, name);
+    }
+}
@@ -0,0 +1,69 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.starsqls.web.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * JSON converter recording the serialization time of the /api responses as the "serialize" phase,
+ * tagged with the mode the controller set by {@link StarSqlsMetrics#setRequestMode}, "dag" for the DAG endpoints.
+ * Responses without a mode, e.g. the rejection of an empty SQL, are not recorded.
+ */
+public class TimedJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    private final StarSqlsMetrics metrics;
+
+    public TimedJsonConverter(ObjectMapper objectMapper, StarSqlsMetrics metrics) {
+        super(objectMapper);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        HttpServletRequest request = request();
+        Object pattern = request == null ? null : request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null || !pattern.toString().startsWith("/api/")) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            boolean dag = pattern.toString().startsWith("/api/dag");
+            Object mode = dag ? StarSqlsMetrics.DAG : request.getAttribute(StarSqlsMetrics.MODE_ATTRIBUTE);
+            if (mode != null) {
+                metrics.recordPhase(dag ? StarSqlsMetrics.DAG : StarSqlsMetrics.FORMAT, mode.toString(), "serialize",
+                        System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static HttpServletRequest request() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest();
+        }
+        return null;
+    }
+}
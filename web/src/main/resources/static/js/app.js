@@ -2,6 +2,7 @@ class SQLFormatter {
     // Constants
     static API_ENDPOINT = '/api/format';
     static DAG_API_ENDPOINT = '/api/dag/analyze';
+    static DAG_COMPACT_TYPE = 'application/vnd.starsqls.dag+json';
     static SETTINGS_KEY = 'sqlFormatterSettings';
     static CONTENT_KEY = 'sqlFormatterContent';
     static MONACO_CDN_URL = 'https://unpkg.com/monaco-editor@0.45.0/min/vs';
@@ -115,6 +116,8 @@ class SQLFormatter {
         this.breakGroupByItems = document.getElementById('breakGroupByItems');
         this.breakOrderBy = document.getElementById('breakOrderBy');
         this.formatSubquery = document.getElementById('formatSubquery');
+        this.breakInsertValues = document.getElementById('breakInsertValues');
+        this.breakStatementClauses = document.getElementById('breakStatementClauses');
         this.ignoreComment = document.getElementById('ignoreComment');
     }
 
@@ -193,7 +196,8 @@ class SQLFormatter {
             this.breakCaseWhen, this.alignCaseWhen, this.breakInList, this.alignInList, 
             this.breakAndOr, this.breakExplain, this.breakCTE, this.breakJoinRelations, 
             this.breakJoinOn, this.alignJoinOn, this.breakSelectItems, 
-            this.breakGroupByItems, this.breakOrderBy, this.formatSubquery, this.ignoreComment
+            this.breakGroupByItems, this.breakOrderBy, this.formatSubquery, this.breakInsertValues,
+            this.breakStatementClauses, this.ignoreComment
         ];
         optionElements.forEach(element => {
             element.addEventListener('change', () => this.saveSettings());
@@ -250,6 +254,7 @@ class SQLFormatter {
                 method: 'POST',
                 headers: {
                     'Content-Type': 'application/json',
+                    'Accept': `${SQLFormatter.DAG_COMPACT_TYPE}, application/json;q=0.9`
                 },
                 body: JSON.stringify({ sql: sql })
             });
@@ -263,6 +268,7 @@ class SQLFormatter {
             
             const result = await response.json();
             console.log('DAG result:', result);
+            const compact = (response.headers.get('Content-Type') || '').startsWith(SQLFormatter.DAG_COMPACT_TYPE);
             
             if (result.success) {
                 // Initialize DAG visualizer if not already done
@@ -272,7 +278,8 @@ class SQLFormatter {
                 }
                 
                 // Render the DAG (pass nodes and edges separately)
-                await this.dagVisualizer.renderDAG(result.graph.nodes, result.graph.edges);
+                const graph = compact ? SQLDagVisualizer.decodeCompactGraph(result.graph) : result.graph;
+                await this.dagVisualizer.renderDAG(graph.nodes, graph.edges, graph.layout);
                 
                 // Auto minimize editor to give more space for DAG
                 const mainContent = this.dagPanel.querySelector('.main-content');
@@ -513,6 +520,8 @@ class SQLFormatter {
             breakGroupByItems: this.breakGroupByItems.checked,
             breakOrderBy: this.breakOrderBy.checked,
             formatSubquery: this.formatSubquery.checked,
+            breakInsertValues: this.breakInsertValues.checked,
+            breakStatementClauses: this.breakStatementClauses.checked,
             ignoreComment: this.ignoreComment.checked
         };
     }
@@ -789,6 +798,8 @@ class SQLFormatter {
             breakGroupByItems: this.breakGroupByItems.checked,
             breakOrderBy: this.breakOrderBy.checked,
             formatSubquery: this.formatSubquery.checked,
+            breakInsertValues: this.breakInsertValues.checked,
+            breakStatementClauses: this.breakStatementClauses.checked,
             ignoreComment: this.ignoreComment.checked
         };
     }
@@ -924,6 +935,8 @@ class SQLFormatter {
             breakGroupByItems: this.breakGroupByItems.checked,
             breakOrderBy: this.breakOrderBy.checked,
             formatSubquery: this.formatSubquery.checked,
+            breakInsertValues: this.breakInsertValues.checked,
+            breakStatementClauses: this.breakStatementClauses.checked,
             ignoreComment: this.ignoreComment.checked
         };
         localStorage.setItem(SQLFormatter.SETTINGS_KEY, JSON.stringify(settings));
@@ -955,6 +968,8 @@ class SQLFormatter {
             breakGroupByItems: false,
             breakOrderBy: false,
             formatSubquery: true,
+            breakInsertValues: false,
+            breakStatementClauses: true,
             ignoreComment: true
         };
         
@@ -987,6 +1002,8 @@ class SQLFormatter {
         this.breakGroupByItems.checked = settings.breakGroupByItems !== undefined ? settings.breakGroupByItems : defaults.breakGroupByItems;
         this.breakOrderBy.checked = settings.breakOrderBy !== undefined ? settings.breakOrderBy : defaults.breakOrderBy;
         this.formatSubquery.checked = settings.formatSubquery !== undefined ? settings.formatSubquery : defaults.formatSubquery;
+        this.breakInsertValues.checked = settings.breakInsertValues !== undefined ? settings.breakInsertValues : defaults.breakInsertValues;
+        this.breakStatementClauses.checked = settings.breakStatementClauses !== undefined ? settings.breakStatementClauses : defaults.breakStatementClauses;
         this.ignoreComment.checked = settings.ignoreComment !== undefined ? settings.ignoreComment : defaults.ignoreComment;
         
         // Apply word wrap setting to editor
@@ -107,6 +107,14 @@ class SQLDagVisualizer {
                     'shape': 'ellipse'
                 }
             },
+            {
+                // Expensive subtrees, relativeCost is filled by the server side cost estimation
+                selector: 'node[relativeCost >= 0.2]',
+                style: {
+                    'border-width': 4,
+                    'border-color': '#e74c3c'
+                }
+            },
             {
                 selector: 'node:selected',
                 style: {
@@ -137,6 +145,15 @@ class SQLDagVisualizer {
                     'line-color': theme.cte,
                     'target-arrow-color': theme.cte
                 }
+            },
+            {
+                selector: 'edge[type="DUPLICATE_OF"]',
+                style: {
+                    'line-style': 'dashed',
+                    'line-color': '#e67e22',
+                    'target-arrow-color': '#e67e22',
+                    'target-arrow-shape': 'diamond'
+                }
             }
         ];
     }
@@ -200,10 +217,67 @@ class SQLDagVisualizer {
         this.setupEdgeEditor();
     }
     
-    renderDAG(nodes, edges) {
+    /**
+     * Expand the compact graph (application/vnd.starsqls.dag+json) into the nodes, edges and layout renderDAG expects
+     */
+    static decodeCompactGraph(graph) {
+        const strings = graph.strings;
+        const str = index => (index < 0 ? null : strings[index]);
+        const toData = flat => {
+            const data = {};
+            for (let i = 0; flat && i + 1 < flat.length; i += 2) {
+                data[strings[flat[i]]] = flat[i + 1];
+            }
+            return data;
+        };
+        
+        const n = graph.nodes;
+        const nodes = new Array(n.id.length);
+        for (let i = 0; i < nodes.length; i++) {
+            nodes[i] = {
+                id: str(n.id[i]),
+                type: str(n.type[i]),
+                label: str(n.label[i]),
+                details: n.details[i].map(str),
+                sqlFragment: str(n.sql[i]),
+                data: toData(n.data[i])
+            };
+        }
+        
+        const e = graph.edges;
+        const edges = new Array(e.source.length);
+        for (let i = 0; i < edges.length; i++) {
+            edges[i] = {
+                id: `edge_${i}`,
+                source: nodes[e.source[i]].id,
+                target: nodes[e.target[i]].id,
+                type: str(e.type[i]),
+                label: str(e.label[i]),
+                style: str(e.style[i]),
+                rows: e.rows[i],
+                data: toData(e.data[i])
+            };
+        }
+        
+        let layout = null;
+        if (graph.layout) {
+            const positions = {};
+            nodes.forEach((node, i) => {
+                positions[node.id] = { x: graph.layout.x[i], y: graph.layout.y[i] };
+            });
+            layout = { width: graph.layout.width, height: graph.layout.height, positions };
+        }
+        return { nodes, edges, layout };
+    }
+    
+    /**
+     * Draw the graph, at the positions computed by the server when a layout is given
+     */
+    renderDAG(nodes, edges, layout) {
         if (!this.cy) return;
         
         this.cy.elements().remove();
+        const positions = layout && layout.positions;
         
         // Add nodes
         nodes.forEach(node => {
@@ -217,8 +291,10 @@ class SQLDagVisualizer {
                     label: node.label,
                     displayLabel: displayLabel,
                     sqlFragment: node.sqlFragment,
+                    relativeCost: (node.data && node.data.relativeCost) || 0,
                     nodeData: node  // Store the entire node object
-                }
+                },
+                position: positions && positions[node.id] ? { ...positions[node.id] } : undefined
             });
         });
         
@@ -237,8 +313,8 @@ class SQLDagVisualizer {
             });
         });
         
-        // Apply layout (Bottom to Top for SQL execution flow)
-        const layout = this.cy.layout({
+        // Apply layout (Bottom to Top for SQL execution flow), the server side one only needs drawing
+        const cyLayout = this.cy.layout(positions ? { name: 'preset', fit: true } : {
             name: this.currentLayout,
             rankDir: 'BT',
             nodeSep: 50,
@@ -248,11 +324,20 @@ class SQLDagVisualizer {
         });
         
         // Initialize navigator after layout completes
-        layout.on('layoutstop', () => {
+        cyLayout.on('layoutstop', () => {
             this.initNavigator();
         });
         
-        layout.run();
+        cyLayout.run();
+    }
+    
+    formatEstimate(data) {
+        if (!data || data.estimatedRows === undefined) return '';
+        let text = `~${data.estimatedRows.toLocaleString()} rows, ${(data.relativeCost * 100).toFixed(1)}% of cost`;
+        if (data.statsMissing) {
+            text += ' (no statistics)';
+        }
+        return text;
     }
     
     buildDisplayLabel(node) {
@@ -291,11 +376,13 @@ class SQLDagVisualizer {
                 const label = nodeData.label || 'Unknown';
                 const id = nodeData.id || '';
                 const sqlFragment = nodeData.sqlFragment || '';
+                const estimate = this.formatEstimate(nodeData.data);
                 
                 // First line: label (id), Second line: SQL fragment
                 tooltip.innerHTML = `
                     <div class="tooltip-title">${this.escapeHtml(label)} (${this.escapeHtml(id)})</div>
                     ${sqlFragment ? `<div class="tooltip-sql">${this.escapeHtml(sqlFragment)}</div>` : ''}
+                    ${estimate ? `<div class="tooltip-estimate">${this.escapeHtml(estimate)}</div>` : ''}
                 `;
                 tooltip.style.display = 'block';
                 